@@ -7,7 +7,9 @@ import common.Order;
 import common.TaskType;
 import controllers.ClientController;
 
-import java.util.ArrayList;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.List;
 
 /**
  * The BistroClient class handles the client-side connection and communication logic
@@ -27,6 +29,9 @@ public class BistroClient extends AbstractClient {
     public BistroClient(String host, int port, ClientController controller) {
         super(host, port);
         this.controller = controller;
+        // -Dbistro.transport=framed must match the server's TRANSPORT setting
+        setFramedTransport("framed".equalsIgnoreCase(System.getProperty("bistro.transport", "object")));
+        setVirtualThreads(Boolean.getBoolean("bistro.virtualThreads"));
     }
 
     /**
@@ -65,7 +70,7 @@ public class BistroClient extends AbstractClient {
     private void processServerResponse(Message message) {
         switch (message.getTask()) {
             case ORDERS_IMPORTED:
-                ArrayList<Order> orders = (ArrayList<Order>) message.getObject();
+                List<Order> orders = (List<Order>) message.getObject();
                 System.out.println("--- Kryo Data from DB ---");
                 for (Order o : orders) {
                     System.out.println(o);
@@ -84,14 +89,27 @@ public class BistroClient extends AbstractClient {
      * Serializes a Message object using Kryo and sends it to the server.
      *
      * @param msg The message object to be sent.
+     * @return {@code true} if the message was sent; {@code false} otherwise.
      */
-    public void sendKryoRequest(Message msg) {
+    public boolean sendKryoRequest(Message msg) {
         try {
+            if (isFramedTransport()) {
+                Output out = KryoUtil.obtainOutput();
+                try {
+                    KryoUtil.serialize(msg, out);
+                    sendFrameToServer(out.getBuffer(), 0, out.position());
+                } finally {
+                    KryoUtil.freeOutput(out);
+                }
+                return true;
+            }
             byte[] data = KryoUtil.serialize(msg);
             sendToServer(data);
+            return true;
         } catch (Exception e) {
             System.out.println("Could not send Kryo message to server.");
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -3,6 +3,7 @@ package client;
 import common.BistroSchedule;
 import common.Order;
 import common.Table;
+import common.TaskType;
 import common.User;
 import common.WaitingList;
 import controllers.ClientController;
@@ -17,6 +18,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import java.util.ArrayList;
+import java.util.List;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import java.io.IOException;
@@ -241,6 +243,7 @@ public class ClientUI extends Application {
      */
     public void showRoleSelectionScreen(){
     	
+        if (repUI != null) repUI.stopLiveUpdates();
         this.repUI = null;          // Forget the previous Representative/Manager
         this.currentUser = null;    // Forget the previous User
         this.checkoutUI = null;     // Clear any active checkout reference
@@ -429,11 +432,23 @@ public class ClientUI extends Application {
                 repUI = new RepresentativeUI(mainLayout, this);
             }
             
-            // 2. Open the dashboard
+            // 2. Open the dashboard, load its lists concurrently and start receiving live floor/order/waiting-list changes
             repUI.showDashboardScreen(user.getUsername());
+            repUI.preloadDashboardData();
+            repUI.startLiveUpdates();
         });
     }
 
+    /**
+     * Forwards a change event pushed by the server to the Representative UI.
+     * @param topic The event type (FLOOR_CHANGED, ORDERS_CHANGED or WAITING_LIST_CHANGED).
+     */
+    public void onLiveUpdate(TaskType topic) {
+        if (repUI != null) {
+            repUI.onLiveUpdate(topic);
+        }
+    }
+
     /**
      * Updates the Representative UI with fresh table data from the server.
      * @param tables The list of tables.
@@ -458,7 +473,7 @@ public class ClientUI extends Application {
      * Updates the Representative UI with fresh order data from the server.
      * @param orders The list of orders.
      */
-    public void refreshOrderData(ArrayList<Order> orders) {
+    public void refreshOrderData(List<Order> orders) {
         if (repUI != null) {
             // Ensure RepresentativeUI has this method!
             repUI.updateOrdersData(orders);
@@ -575,7 +590,7 @@ public class ClientUI extends Application {
      *
      * @param history The list of past orders to display.
      */
-    public void openOrderHistory(ArrayList<Order> history) {
+    public void openOrderHistory(List<Order> history) {
         Platform.runLater(() -> {
             
             // 1. Define where "Back" goes
@@ -345,7 +345,8 @@ public class MonthlyReportUI {
         table.getColumns().addAll(colDate, colTime, colGuests, colOrderNum);
         
         if (currentReportData.getAllMonthOrders() != null) {
-            table.setItems(FXCollections.observableArrayList(currentReportData.getAllMonthOrders()));
+            // Backed by the report's list (possibly an OrderColumns): rows are built only when shown
+            table.setItems(FXCollections.observableList(currentReportData.getAllMonthOrders()));
         }
 
         chartContainer.getChildren().addAll(lblTitle, lblStats, barChart, new Separator(), lblTable, table);
@@ -3,8 +3,10 @@ package client;
 import common.*;
 import controllers.RepresentativeController;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
@@ -13,7 +15,9 @@ import javafx.scene.text.Font;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The RepresentativeUI class serves as the main boundary for restaurant staff (Representatives).
@@ -57,6 +61,12 @@ public class RepresentativeUI {
     private Map<String, DayRow> regularScheduleRows = new HashMap<>();
     private Map<String, BistroSchedule> cachedScheduleMap = new HashMap<>();
 
+    // --- Live Updates ---
+    /** True once this terminal subscribed to the server's change events. */
+    private boolean liveUpdates = false;
+    /** True if the orders screen shows only active orders, false for all orders. */
+    private boolean activeOrdersOnly = false;
+
     /**
      * Helper class to hold UI references for a single day in the schedule editor.
      * Contains the checkbox for closed status and dropdowns for open/close times.
@@ -562,6 +572,7 @@ public class RepresentativeUI {
      */
     public void displayCurrentDiners() {
         mainLayout.getChildren().clear();
+        activeOrdersOnly = true;
 
         Label header = new Label("Active Orders / Diners");
         header.setFont(new Font("Arial", 22));
@@ -611,6 +622,7 @@ public class RepresentativeUI {
      */
     public void displayAllOrders() {
         mainLayout.getChildren().clear();
+        activeOrdersOnly = false;
 
         Label header = new Label("All Orders");
         header.setFont(new Font("Arial", 22));
@@ -658,14 +670,90 @@ public class RepresentativeUI {
       
     /**
      * Callback method: Updates the orders view with data received from the server.
+     * The table is backed by the received list instead of a copy, so an OrderColumns reply
+     * only builds Order objects for the rows that are actually shown.
      * @param orders The list of Order objects.
      */
-    public void updateOrdersData(ArrayList<Order> orders) {
+    public void updateOrdersData(List<Order> orders) {
         Platform.runLater(() -> {
-            if (activeOrdersView != null) activeOrdersView.getItems().setAll(orders);
+            if (activeOrdersView != null) activeOrdersView.setItems(FXCollections.observableList(orders));
         });
     }
 
+    // --- Dashboard Preload ---
+
+    /**
+     * Loads tables, schedule and waiting list at dashboard start. The three requests are sent
+     * together and answered independently, instead of waiting for each reply before the next request.
+     * The lists are handed to the same callbacks as regular replies, so screens opened later start
+     * from fresh data and only receive deltas.
+     */
+    public void preloadDashboardData() {
+        CompletableFuture<ArrayList<Table>> tables = controller.fetchTables();
+        CompletableFuture<ArrayList<BistroSchedule>> schedule = controller.fetchSchedule();
+        CompletableFuture<ArrayList<WaitingList>> waitingList = controller.fetchWaitingList();
+
+        CompletableFuture.allOf(tables, schedule, waitingList).whenComplete((done, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                System.out.println("Dashboard preload failed: " + error.getMessage());
+                return;
+            }
+            mainUI.refreshTableData(tables.join());
+            mainUI.refreshScheduleData(schedule.join());
+            mainUI.refreshWaitingListData(waitingList.join());
+        }));
+    }
+
+    // --- Live Updates ---
+
+    /**
+     * Subscribes to the server's change events (once per login).
+     */
+    public void startLiveUpdates() {
+        if (!liveUpdates) {
+            controller.subscribeToLiveUpdates();
+            liveUpdates = true;
+        }
+    }
+
+    /**
+     * Cancels the change events (on logout).
+     */
+    public void stopLiveUpdates() {
+        if (liveUpdates) {
+            controller.unsubscribeFromLiveUpdates();
+            liveUpdates = false;
+        }
+    }
+
+    /**
+     * Callback for a change event pushed by the server.
+     * Re-requests the list of the screen currently shown; other screens load fresh data when opened.
+     * @param topic FLOOR_CHANGED, ORDERS_CHANGED or WAITING_LIST_CHANGED.
+     */
+    public void onLiveUpdate(TaskType topic) {
+        switch (topic) {
+            case FLOOR_CHANGED:
+                if (isShowing(tablesView)) refreshTableRequest();
+                break;
+            case WAITING_LIST_CHANGED:
+                if (isShowing(waitingListView)) controller.getWaitingList();
+                break;
+            case ORDERS_CHANGED:
+                if (isShowing(activeOrdersView)) {
+                    if (activeOrdersOnly) controller.getActiveOrders();
+                    else controller.getAllOrders();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isShowing(Node view) {
+        return view != null && view.getScene() != null;
+    }
+
     // --- Helpers ---
     protected Button createWideButton(String text, String icon) {
         Button btn = new Button(icon + "  " + text);
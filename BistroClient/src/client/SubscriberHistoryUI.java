@@ -1,6 +1,6 @@
 package client;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import common.Order;
 import javafx.collections.FXCollections;
@@ -47,12 +47,12 @@ public class SubscriberHistoryUI {
      * @param subscriberID The unique ID of the subscriber whose history is being viewed.
      * @param historyData  The list of Order objects retrieved from the server.
      */
-    public SubscriberHistoryUI(VBox mainLayout, ClientUI mainUI, Runnable onBack, String subscriberID, ArrayList<Order> historyData) {
+    public SubscriberHistoryUI(VBox mainLayout, ClientUI mainUI, Runnable onBack, String subscriberID, List<Order> historyData) {
         this.mainLayout = mainLayout;
         this.mainUI = mainUI;
         this.onBack = onBack;
         this.subscriberID = subscriberID;
-        this.historyList = FXCollections.observableArrayList(historyData);
+        this.historyList = FXCollections.observableList(historyData);
     }
 
     /**
@@ -3,6 +3,7 @@ package common;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -49,6 +50,9 @@ public class MonthlyReportData implements Serializable {
     /** Detailed list for "Activity Report" Table (All orders history). */
     private ArrayList<Order> allMonthOrders;
 
+    /** The same list in columnar form; when set, {@link #allMonthOrders} is null. */
+    private OrderColumns allMonthColumns;
+
     /**
      * Default constructor initializing collections.
      */
@@ -126,9 +130,17 @@ public class MonthlyReportData implements Serializable {
     public void setExceptionOrders(ArrayList<Order> list) { this.exceptionOrders = list; }
 
     /** @return List of all orders for the month. */
-    public ArrayList<Order> getAllMonthOrders() { return allMonthOrders; }
-    /** @param list List to set. */
-    public void setAllMonthOrders(ArrayList<Order> list) { this.allMonthOrders = list; }
+    public List<Order> getAllMonthOrders() { return allMonthColumns != null ? allMonthColumns : allMonthOrders; }
+    /** @param list List to set; an {@link OrderColumns} is kept as is. */
+    public void setAllMonthOrders(List<Order> list) {
+        if (list instanceof OrderColumns) {
+            this.allMonthColumns = (OrderColumns) list;
+            this.allMonthOrders = null;
+        } else {
+            this.allMonthColumns = null;
+            this.allMonthOrders = (list == null || list instanceof ArrayList) ? (ArrayList<Order>) list : new ArrayList<>(list);
+        }
+    }
 
     /**
      * Checks if the report contains any data.
@@ -136,6 +148,6 @@ public class MonthlyReportData implements Serializable {
      */
     public boolean isEmpty() {
         return totalOnTime == 0 && totalLate == 0 && totalNoShow == 0 &&
-               (allMonthOrders == null || allMonthOrders.isEmpty());
+               (getAllMonthOrders() == null || getAllMonthOrders().isEmpty());
     }
 }
\ No newline at end of file
@@ -140,5 +140,21 @@ public enum TaskType {
     /** Resend a verification code. */
     RESEND_CODE,
     /** Update subscriber details. */
-    UPDATE_SUBSCRIBER
+    UPDATE_SUBSCRIBER,
+
+    // --- Live Updates (Staff Terminals) ---
+    /** Subscribe to table/floor changes. */
+    SUBSCRIBE_FLOOR,
+    /** Subscribe to order changes. */
+    SUBSCRIBE_ORDERS,
+    /** Subscribe to waiting list changes. */
+    SUBSCRIBE_WAITING_LIST,
+    /** Cancel all subscriptions of this connection. */
+    UNSUBSCRIBE_ALL,
+    /** Event: tables changed (payload: new list version). */
+    FLOOR_CHANGED,
+    /** Event: orders changed (payload: new list version). */
+    ORDERS_CHANGED,
+    /** Event: waiting list changed (payload: new list version). */
+    WAITING_LIST_CHANGED
 }
\ No newline at end of file
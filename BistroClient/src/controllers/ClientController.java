@@ -1,6 +1,7 @@
 package controllers;
 
 import common.BistroSchedule;
+import common.DatasetDelta;
 import common.Message;
 import common.Order;
 import common.TaskType;
@@ -9,7 +10,14 @@ import common.User;
 import common.WaitingList;
 
 import javafx.application.Platform;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import client.BistroClient;
 import client.ClientUI;
@@ -24,15 +32,31 @@ import client.ClientUI;
  * <li>Routing outgoing requests from specific UI controllers (e.g., CasualController, SubscriberController) to the server.</li>
  * <li>Receiving incoming responses from the server and updating the appropriate UI screens on the JavaFX Application Thread.</li>
  * </ul>
+ * Requests sent with {@link #request(Message)} carry a request ID and return a future completed with
+ * the matching response, so several requests can be in flight on the one connection. Messages sent
+ * with {@link #accept(Object)} keep the original flow: the response is routed by its TaskType.
  */
 public class ClientController {
 
+    /** Time a correlated request waits for its response, in milliseconds. */
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+
     // Reference to the network client
     private BistroClient client;
 
     // Reference to the UI layer
     private ClientUI ui;
 
+    // Local copies of the staff lists, kept up to date with delta replies (see requestSync)
+    private final DatasetReplica<Order> ordersReplica = new DatasetReplica<>(Order::getOrderNumber);
+    private final DatasetReplica<Table> tablesReplica = new DatasetReplica<>(Table::getTableId);
+    private final DatasetReplica<WaitingList> waitingListReplica = new DatasetReplica<>(WaitingList::getWaitingId);
+    private final DatasetReplica<BistroSchedule> scheduleReplica = new DatasetReplica<>(BistroSchedule::getIdentifier);
+
+    // Correlated requests waiting for their response, by request ID (0 is never used)
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+    private final Map<Long, CompletableFuture<Message>> pendingRequests = new ConcurrentHashMap<>();
+
     /**
      * Constructs the ClientController.
      *
@@ -85,6 +109,7 @@ public class ClientController {
      * Triggers a UI alert to notify the user.
      */
     public void serverWentDown() {
+        failPendingRequests(new IOException("Connection to the server was lost"));
         Platform.runLater(() -> {
             ui.handleServerDisconnect();
         });
@@ -108,6 +133,103 @@ public class ClientController {
         }
     }
 
+    /**
+     * Requests one of the staff lists (GET_ORDERS, GET_TABLES, GET_WAITING_LIST or GET_SCHEDULE)
+     * by sending the version of the local copy. The server only returns the rows that changed
+     * since that version (or a full snapshot), and the reply is merged into the local copy.
+     *
+     * @param task The list request to send.
+     */
+    public void requestSync(TaskType task) {
+        accept(new Message(task, replicaFor(task).getVersion()));
+    }
+
+    /**
+     * Sends a request and returns a future for its response, waiting at most {@link #DEFAULT_TIMEOUT_MS}.
+     *
+     * @param msg The request.
+     * @return A future completed with the server's response (which may be FAIL or ERROR).
+     */
+    public CompletableFuture<Message> request(Message msg) {
+        return request(msg, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Sends a request with a request ID and a timeout, and returns a future for its response.
+     * <p>
+     * The response does not go through {@link #handleMessageFromClient(Message)}'s screen routing;
+     * the caller handles it. The future is completed on the network thread, so UI work must be
+     * moved to the JavaFX thread (e.g. with {@code Platform.runLater}). It fails with a
+     * TimeoutException when no response arrives in time, and with an IOException when the
+     * request cannot be sent or the connection is lost.
+     *
+     * @param msg The request.
+     * @param timeoutMillis How long to wait for the response (0 = no limit).
+     * @return A future completed with the server's response.
+     */
+    public CompletableFuture<Message> request(Message msg, long timeoutMillis) {
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        if (client == null) {
+            future.completeExceptionally(new IOException("Not connected to the server"));
+            return future;
+        }
+
+        long id = nextRequestId.getAndIncrement();
+        msg.setRequestId(id);
+        if (timeoutMillis > 0) {
+            // The server answers ERROR if the request is still queued this long after it arrived
+            msg.setTimeout(timeoutMillis);
+            future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        pendingRequests.put(id, future);
+        future.whenComplete((response, error) -> pendingRequests.remove(id));
+
+        if (!client.sendKryoRequest(msg)) {
+            future.completeExceptionally(new IOException("Could not send " + msg.getTask() + " to the server"));
+        }
+        return future;
+    }
+
+    /**
+     * Asynchronous version of {@link #requestSync(TaskType)}: sends the version of the local copy
+     * and completes with the complete, updated list once the delta is merged.
+     *
+     * @param task GET_ORDERS, GET_TABLES, GET_WAITING_LIST or GET_SCHEDULE.
+     * @param <T> The row type of the list.
+     * @return A future for the updated list.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<ArrayList<T>> requestSyncAsync(TaskType task) {
+        DatasetReplica<T> replica = (DatasetReplica<T>) replicaFor(task);
+        return request(new Message(task, replica.getVersion())).thenApply(response -> {
+            if (!(response.getObject() instanceof DatasetDelta)) {
+                throw new IllegalStateException(task + " failed: " + response.getTask() + " " + response.getObject());
+            }
+            return replica.apply((DatasetDelta<T>) response.getObject());
+        });
+    }
+
+    /**
+     * Fails every request still waiting for a response.
+     *
+     * @param cause The reason given to the callers.
+     */
+    private void failPendingRequests(Throwable cause) {
+        for (CompletableFuture<Message> future : pendingRequests.values()) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private DatasetReplica<?> replicaFor(TaskType task) {
+        switch (task) {
+            case GET_ORDERS: return ordersReplica;
+            case GET_TABLES: return tablesReplica;
+            case GET_WAITING_LIST: return waitingListReplica;
+            case GET_SCHEDULE: return scheduleReplica;
+            default: throw new IllegalArgumentException("No versioned list for " + task);
+        }
+    }
+
     // =======================================================
     // HANDLING RESPONSES (Server -> Client)
     // =======================================================
@@ -124,6 +246,17 @@ public class ClientController {
     @SuppressWarnings("unchecked")
     public void handleMessageFromClient(Message msg) {
 
+        // Responses to correlated requests go to the caller's future, not to the screens
+        if (msg.getRequestId() != 0) {
+            CompletableFuture<Message> future = pendingRequests.remove(msg.getRequestId());
+            if (future != null) {
+                future.complete(msg);
+            } else {
+                System.out.println("Log: Late response ignored: " + msg.getTask());
+            }
+            return;
+        }
+
         // Ensure UI updates run on the JavaFX Application Thread
         Platform.runLater(() -> {
         	
@@ -269,7 +402,9 @@ public class ClientController {
                     break;
 
                 case GET_WAITING_LIST:
-                    ArrayList<WaitingList> waitList = (ArrayList<WaitingList>) msg.getObject();
+                    ArrayList<WaitingList> waitList = msg.getObject() instanceof DatasetDelta
+                            ? waitingListReplica.apply((DatasetDelta<WaitingList>) msg.getObject())
+                            : (ArrayList<WaitingList>) msg.getObject();
                     ui.refreshWaitingListData(waitList);
                     break;
 
@@ -284,17 +419,29 @@ public class ClientController {
 
                 case GET_ORDERS:
                 case ORDERS_IMPORTED:
-                    ArrayList<Order> orders = (ArrayList<Order>) msg.getObject();
+                    // List, not ArrayList: the server may send an OrderColumns (COLUMNAR_ORDERS)
+                    List<Order> orders = msg.getObject() instanceof DatasetDelta
+                            ? ordersReplica.apply((DatasetDelta<Order>) msg.getObject())
+                            : (List<Order>) msg.getObject();
                     ui.refreshOrderData(orders); 
                     break;
                 
                 case HISTORY_IMPORTED:
-                    ArrayList<Order> history = (ArrayList<Order>) msg.getObject();
+                    List<Order> history = (List<Order>) msg.getObject();
                     ui.openOrderHistory(history);
                     break;
 
+                // --- LIVE UPDATES (pushed by the server) ---
+                case FLOOR_CHANGED:
+                case ORDERS_CHANGED:
+                case WAITING_LIST_CHANGED:
+                    ui.onLiveUpdate(msg.getTask());
+                    break;
+
                 case GET_TABLES:
-                    ArrayList<Table> tables = (ArrayList<Table>) msg.getObject();
+                    ArrayList<Table> tables = msg.getObject() instanceof DatasetDelta
+                            ? tablesReplica.apply((DatasetDelta<Table>) msg.getObject())
+                            : (ArrayList<Table>) msg.getObject();
                     ui.refreshTableData(tables); 
                     break;
 
@@ -304,7 +451,9 @@ public class ClientController {
                     break;
 
                 case GET_SCHEDULE:
-                    ArrayList<BistroSchedule> schedule = (ArrayList<BistroSchedule>) msg.getObject();
+                    ArrayList<BistroSchedule> schedule = msg.getObject() instanceof DatasetDelta
+                            ? scheduleReplica.apply((DatasetDelta<BistroSchedule>) msg.getObject())
+                            : (ArrayList<BistroSchedule>) msg.getObject();
                     ui.refreshScheduleData(schedule);
                     break;
                     
@@ -0,0 +1,62 @@
+package controllers;
+
+import common.DatasetDelta;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+/**
+ * Client-side copy of a server list (orders, tables, waiting list, schedule) kept in sync with deltas.
+ * <p>
+ * The client sends its {@link #getVersion() version} with the GET_* request and the server answers
+ * with a {@link DatasetDelta}: only the rows changed since that version, or a full snapshot.
+ * @param <T> The row type.
+ * @author Group 6
+ * @version 1.0
+ */
+public class DatasetReplica<T> {
+
+    /** Extracts the primary key of a row. */
+    private final Function<T, Object> keyOf;
+
+    /** Rows by key, in the order received. */
+    private final LinkedHashMap<Object, T> rows = new LinkedHashMap<>();
+
+    /** Version of the held rows (0 = nothing received yet, the server answers with a snapshot). */
+    private long version = 0;
+
+    /**
+     * Creates an empty replica.
+     * @param keyOf Extracts the primary key of a row.
+     */
+    public DatasetReplica(Function<T, Object> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * @return The version to send with the next request.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Applies a reply from the server.
+     * @param delta The snapshot or delta received.
+     * @return The complete, updated list.
+     */
+    public synchronized ArrayList<T> apply(DatasetDelta<T> delta) {
+        if (delta.isSnapshot()) {
+            rows.clear();
+        }
+        for (Object key : delta.getRemovedKeys()) {
+            rows.remove(key);
+        }
+        for (T row : delta.getRows()) {
+            rows.put(keyOf.apply(row), row);
+        }
+        version = delta.getVersion();
+        return new ArrayList<>(rows.values());
+    }
+}
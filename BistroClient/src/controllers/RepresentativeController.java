@@ -1,6 +1,7 @@
 package controllers;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import common.*;
 
@@ -43,7 +44,7 @@ public class RepresentativeController {
      * Requests the list of all tables in the restaurant from the server.
      */
     public void getAllTables() {
-        networkController.accept(new Message(TaskType.GET_TABLES, null));
+        networkController.requestSync(TaskType.GET_TABLES);
     }
 
     /**
@@ -93,21 +94,21 @@ public class RepresentativeController {
      * Requests the full history of all orders.
      */
     public void getAllOrders() {
-        networkController.accept(new Message(TaskType.GET_ORDERS, null));
+        networkController.requestSync(TaskType.GET_ORDERS);
     }
 
     /**
      * Requests the current waiting list.
      */
     public void getWaitingList() {
-        networkController.accept(new Message(TaskType.GET_WAITING_LIST, null));
+        networkController.requestSync(TaskType.GET_WAITING_LIST);
     }
     
     /**
      * Requests the restaurant's operating schedule (opening hours and special events).
      */
     public void getSchedule() {
-        networkController.accept(new Message(TaskType.GET_SCHEDULE, null));
+        networkController.requestSync(TaskType.GET_SCHEDULE);
     }
 
     /**
@@ -157,4 +158,53 @@ public class RepresentativeController {
         // identifier can be Subscriber ID or Phone Number
         networkController.accept(new Message(TaskType.CHECK_USER_EXISTS, identifier));
     }
+
+    // --- Pipelined Loading ---
+
+    /**
+     * Loads the tables without going through the screen routing; the request can be in flight
+     * together with other requests on the same connection.
+     *
+     * @return A future for the complete table list.
+     */
+    public CompletableFuture<ArrayList<Table>> fetchTables() {
+        return networkController.requestSyncAsync(TaskType.GET_TABLES);
+    }
+
+    /**
+     * Loads the opening-hours schedule (see {@link #fetchTables()}).
+     *
+     * @return A future for the complete schedule.
+     */
+    public CompletableFuture<ArrayList<BistroSchedule>> fetchSchedule() {
+        return networkController.requestSyncAsync(TaskType.GET_SCHEDULE);
+    }
+
+    /**
+     * Loads the waiting list (see {@link #fetchTables()}).
+     *
+     * @return A future for the complete waiting list.
+     */
+    public CompletableFuture<ArrayList<WaitingList>> fetchWaitingList() {
+        return networkController.requestSyncAsync(TaskType.GET_WAITING_LIST);
+    }
+
+    // --- Live Updates ---
+
+    /**
+     * Subscribes this terminal to table, order and waiting-list change events.
+     * The server then pushes FLOOR_CHANGED, ORDERS_CHANGED and WAITING_LIST_CHANGED after every change.
+     */
+    public void subscribeToLiveUpdates() {
+        networkController.accept(new Message(TaskType.SUBSCRIBE_FLOOR, null));
+        networkController.accept(new Message(TaskType.SUBSCRIBE_ORDERS, null));
+        networkController.accept(new Message(TaskType.SUBSCRIBE_WAITING_LIST, null));
+    }
+
+    /**
+     * Stops all change events for this terminal (e.g. on logout).
+     */
+    public void unsubscribeFromLiveUpdates() {
+        networkController.accept(new Message(TaskType.UNSUBSCRIBE_ALL, null));
+    }
 }
\ No newline at end of file
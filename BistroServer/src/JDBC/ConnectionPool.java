@@ -0,0 +1,368 @@
+package JDBC;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small bounded JDBC connection pool.
+ * Every controller borrows a connection per operation (try-with-resources) and
+ * closing the borrowed connection returns it to the pool instead of closing the MySQL session.
+ * <p>
+ * Features: configurable min/max size, validation on borrow, leak detection
+ * (connections held longer than a threshold are reported together with the borrowing stack)
+ * and wait-time metrics.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ConnectionPool {
+
+    /** Connections that were used within this window are handed out without a validation round-trip. */
+    private static final long VALIDATION_SKIP_MS = 500;
+
+    /** Timeout (seconds) for Connection.isValid() on borrow. */
+    private static final int VALIDATION_TIMEOUT_SEC = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long leakThresholdMs;
+
+    /** Limits the number of connections that can be leased at the same time. */
+    private final Semaphore permits;
+
+    /** Idle physical connections. Used as a stack (LIFO) so hot connections are reused first. */
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+
+    /** Currently leased connections, used by the leak detector. */
+    private final Map<PooledEntry, Boolean> leased = new ConcurrentHashMap<>();
+
+    /** Lease of the current thread, so nested calls on the same thread reuse one connection. */
+    private final ThreadLocal<PooledEntry> currentLease = new ThreadLocal<>();
+
+    private final ScheduledExecutorService leakDetector;
+
+    private volatile boolean closed = false;
+
+    // --- Metrics ---
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    /**
+     * Holds one physical connection together with its lease bookkeeping.
+     */
+    private static class PooledEntry {
+        final Connection physical;
+        long lastUsed = System.currentTimeMillis();
+        long leasedAt;
+        int holdCount;
+        Throwable borrowTrace;
+        String borrowThread;
+        boolean leakReported;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * Creates the pool and pre-fills it with the minimum number of connections.
+     * @param url JDBC url.
+     * @param user Database username.
+     * @param password Database password.
+     * @param minSize Connections opened on startup and kept idle.
+     * @param maxSize Maximum number of connections leased at the same time.
+     * @param borrowTimeoutMs How long a borrower waits for a free connection.
+     * @param leakThresholdMs Lease duration after which a connection is reported as leaked (0 disables).
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long borrowTimeoutMs, long leakThresholdMs) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.permits = new Semaphore(this.maxSize, true);
+
+        for (int i = 0; i < this.minSize; i++) {
+            try {
+                idle.offerFirst(new PooledEntry(openPhysical()));
+            } catch (SQLException e) {
+                System.err.println("[ConnectionPool] Prefill failed: " + e.getMessage());
+                break;
+            }
+        }
+
+        if (leakThresholdMs > 0) {
+            leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "db-pool-leak-detector");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1000, leakThresholdMs / 2);
+            leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            leakDetector = null;
+        }
+
+        System.out.println("[ConnectionPool] Ready (min=" + this.minSize + ", max=" + this.maxSize
+                + ", idle=" + idle.size() + ")");
+    }
+
+    /**
+     * Borrows a connection. The caller must close() it (preferably with try-with-resources),
+     * which returns it to the pool. Nested borrows on the same thread share one connection.
+     * @return A pooled connection.
+     * @throws SQLException if the pool is closed, the wait timed out or MySQL is unreachable.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        PooledEntry current = currentLease.get();
+        if (current != null) {
+            current.holdCount++;
+            return wrap(current);
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        recordWait(waited);
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLException("Timed out after " + borrowTimeoutMs + "ms waiting for a database connection ("
+                    + leased.size() + "/" + maxSize + " in use)");
+        }
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = new PooledEntry(openPhysical());
+            }
+            entry.holdCount = 1;
+            entry.leasedAt = System.currentTimeMillis();
+            entry.leakReported = false;
+            entry.borrowThread = Thread.currentThread().getName();
+            entry.borrowTrace = leakThresholdMs > 0 ? new Throwable("Connection borrowed here") : null;
+            leased.put(entry, Boolean.TRUE);
+            currentLease.set(entry);
+            return wrap(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Pops idle connections until one passes validation.
+     * @return A valid idle connection, or null if none is available.
+     */
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - entry.lastUsed < VALIDATION_SKIP_MS) {
+                return entry;
+            }
+            try {
+                if (entry.physical.isValid(VALIDATION_TIMEOUT_SEC)) {
+                    return entry;
+                }
+            } catch (SQLException e) {
+                // fall through and discard
+            }
+            discard(entry);
+        }
+        return null;
+    }
+
+    /**
+     * Called when a borrowed proxy is closed.
+     */
+    private void release(PooledEntry entry) {
+        if (--entry.holdCount > 0) return;
+
+        currentLease.remove();
+        leased.remove(entry);
+        entry.borrowTrace = null;
+        entry.lastUsed = System.currentTimeMillis();
+
+        boolean reusable = !closed;
+        if (reusable) {
+            try {
+                if (entry.physical.isClosed()) {
+                    reusable = false;
+                } else if (!entry.physical.getAutoCommit()) {
+                    // Never hand out a connection with a half-finished transaction
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            idle.offerFirst(entry);
+        } else {
+            discard(entry);
+        }
+        permits.release();
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return c;
+    }
+
+    private void discard(PooledEntry entry) {
+        discardedCount.incrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            // ignore, the connection is already broken
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Reports connections that were leased longer than the leak threshold.
+     */
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (PooledEntry entry : leased.keySet()) {
+            if (!entry.leakReported && now - entry.leasedAt > leakThresholdMs) {
+                entry.leakReported = true;
+                System.err.println("[ConnectionPool] Possible leak: connection held for " + (now - entry.leasedAt)
+                        + "ms by thread " + entry.borrowThread);
+                if (entry.borrowTrace != null) {
+                    entry.borrowTrace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps the physical connection so that close() returns it to the pool.
+     * Each borrow gets its own proxy, so a double close() only releases once.
+     */
+    private Connection wrap(PooledEntry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(entry);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || entry.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + entry.physical + "]";
+                    default:
+                        if (released) throw new SQLException("Connection already returned to the pool");
+                        try {
+                            return method.invoke(entry.physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Closes all idle connections and stops the leak detector.
+     * Leased connections are closed when their borrowers return them.
+     */
+    public void shutdown() {
+        closed = true;
+        if (leakDetector != null) leakDetector.shutdownNow();
+        List<PooledEntry> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        for (PooledEntry entry : drained) {
+            discard(entry);
+        }
+        System.out.println("[ConnectionPool] Shut down. " + getStats());
+    }
+
+    // --- Metrics getters ---
+
+    /** @return Number of connections currently leased. */
+    public int getActiveCount() { return leased.size(); }
+
+    /** @return Number of idle connections. */
+    public int getIdleCount() { return idle.size(); }
+
+    /** @return Number of threads currently waiting for a connection. */
+    public int getWaitingCount() { return permits.getQueueLength(); }
+
+    /** @return Total number of borrows that went through the wait path. */
+    public long getBorrowCount() { return borrowCount.get(); }
+
+    /** @return Number of borrows that timed out. */
+    public long getTimeoutCount() { return timeoutCount.get(); }
+
+    /** @return Average wait time in milliseconds. */
+    public double getAverageWaitMs() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    /** @return Longest wait time in milliseconds. */
+    public double getMaxWaitMs() { return maxWaitNanos.get() / 1_000_000.0; }
+
+    /**
+     * @return A one-line summary of the pool state, suitable for the server log.
+     */
+    public String getStats() {
+        return String.format("active=%d idle=%d waiting=%d max=%d borrows=%d avgWait=%.2fms maxWait=%.2fms timeouts=%d created=%d discarded=%d",
+                getActiveCount(), getIdleCount(), getWaitingCount(), maxSize, getBorrowCount(),
+                getAverageWaitMs(), getMaxWaitMs(), getTimeoutCount(), createdCount.get(), discardedCount.get());
+    }
+}
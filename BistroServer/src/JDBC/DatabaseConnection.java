@@ -1,13 +1,15 @@
 package JDBC;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import server.ServerConfig;
+
 /**
  * Singleton class responsible strictly for establishing and providing 
- * the JDBC connection to the MySQL database.
- * Ensures only one connection instance exists throughout the application lifecycle.
+ * JDBC connections to the MySQL database.
+ * Connections are served from a bounded {@link ConnectionPool}; callers borrow one per
+ * operation and return it by closing it (try-with-resources).
  * @author Group 6
  * @version 1.0
  */
@@ -16,8 +18,8 @@ public class DatabaseConnection {
     /** The single instance of this class. */
     private static DatabaseConnection instance = null;
     
-    /** The active SQL connection object. */
-    private static Connection conn = null;
+    /** The pool serving all database connections. */
+    private static ConnectionPool pool = null;
 
     /** Database URL string including timezone configuration. */
     private static final String URL = "jdbc:mysql://localhost:3306/bistro_db?serverTimezone=UTC";
@@ -30,15 +32,19 @@ public class DatabaseConnection {
 
     /**
      * Private Constructor to prevent instantiation.
-     * Loads the MySQL JDBC driver and establishes the connection.
+     * Loads the MySQL JDBC driver and creates the connection pool.
+     * Pool sizing is read from the .env file (DB_POOL_MIN_SIZE, DB_POOL_MAX_SIZE,
+     * DB_POOL_TIMEOUT_MS, DB_POOL_LEAK_THRESHOLD_MS).
      */
     private DatabaseConnection() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
-            conn = DriverManager.getConnection(URL, USER, PASSWORD);
+            pool = new ConnectionPool(URL, USER, PASSWORD,
+                    ServerConfig.getInt("DB_POOL_MIN_SIZE", 2),
+                    ServerConfig.getInt("DB_POOL_MAX_SIZE", 10),
+                    ServerConfig.getLong("DB_POOL_TIMEOUT_MS", 5000),
+                    ServerConfig.getLong("DB_POOL_LEAK_THRESHOLD_MS", 30000));
             System.out.println(">>> Connected Successfully to MySQL");
-        } catch (SQLException e) {
-            System.err.println("SQL Connection Error: " + e.getMessage());
         } catch (ClassNotFoundException e) {
             System.err.println("MySQL Driver Not Found: " + e.getMessage());
         }
@@ -57,10 +63,29 @@ public class DatabaseConnection {
     }
 
     /**
-     * Provides the active connection to other controllers.
-     * @return The SQL Connection object.
+     * Borrows a connection from the pool. The caller must close it to return it.
+     * @return A pooled SQL Connection object.
+     * @throws SQLException if no connection could be obtained.
+     */
+    public Connection getConnection() throws SQLException {
+        if (pool == null) throw new SQLException("Database pool is not initialized");
+        return pool.getConnection();
+    }
+
+    /**
+     * @return The underlying pool (for metrics and shutdown), or null if the driver failed to load.
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Shuts the pool down (idle MySQL sessions and the leak detector) and forgets the instance,
+     * so a server started again in the same JVM gets a fresh pool from {@link #getInstance()}.
      */
-    public Connection getConnection() {
-        return conn;
+    public static synchronized void close() {
+        if (pool != null) pool.shutdown();
+        pool = null;
+        instance = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Reply to a versioned list request ("GET_* since version V").
+ * Either a full snapshot of the list, or only the rows inserted/updated and the keys deleted
+ * after the version the client sent.
+ * @param <T> The row type (Order, Table, WaitingList, BistroSchedule).
+ * @author Group 6
+ * @version 1.0
+ */
+public class DatasetDelta<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Version of the list after applying this reply. */
+    private long version;
+
+    /** True if {@link #rows} is the complete list and replaces what the client holds. */
+    private boolean snapshot;
+
+    /** All rows (snapshot) or the inserted and updated rows (delta). */
+    private ArrayList<T> rows;
+
+    /** Primary keys of deleted rows (empty for a snapshot). */
+    private ArrayList<Object> removedKeys;
+
+    /**
+     * Default constructor required for serialization.
+     */
+    public DatasetDelta() {
+    }
+
+    /**
+     * Constructs a reply.
+     * @param version Version of the list after applying this reply.
+     * @param snapshot True if rows is the complete list.
+     * @param rows All rows, or the changed rows.
+     * @param removedKeys Keys of deleted rows.
+     */
+    public DatasetDelta(long version, boolean snapshot, ArrayList<T> rows, ArrayList<Object> removedKeys) {
+        this.version = version;
+        this.snapshot = snapshot;
+        this.rows = rows;
+        this.removedKeys = removedKeys;
+    }
+
+    /** @return The version after applying this reply. */
+    public long getVersion() { return version; }
+
+    /** @return True if this reply is a full snapshot. */
+    public boolean isSnapshot() { return snapshot; }
+
+    /** @return The rows (all, or only the changed ones). */
+    public ArrayList<T> getRows() { return rows; }
+
+    /** @return Keys of deleted rows. */
+    public ArrayList<Object> getRemovedKeys() { return removedKeys; }
+
+    @Override
+    public String toString() {
+        return (snapshot ? "Snapshot" : "Delta") + " v" + version + " | rows: " + rows.size()
+                + " | removed: " + removedKeys.size();
+    }
+}
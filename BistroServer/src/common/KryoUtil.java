@@ -1,52 +1,182 @@
 package common;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import com.esotericsoftware.kryo.util.Pool;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.sql.Date;
 import java.sql.Time;
 
 /**
  * Utility class for handling Kryo serialization.
  * Ensures consistent registration of classes across Client and Server for network communication.
+ * <p>
+ * Kryo instances and Input/Output buffers are shared through thread-safe pools instead of
+ * being created per thread or per message, so new connections (and virtual threads) do not
+ * build and register a fresh Kryo, and steady-state serialization allocates only the result.
+ * <p>
+ * The data classes use hand-written serializers: dates travel as epoch-day varints, times as
+ * second-of-day varints and well-known status strings as a single byte. Every class has an
+ * explicit registration ID, so the wire format does not depend on registration order.
+ * Large order lists can be sent as {@link OrderColumns}, which is written column by column.
+ * <p>
+ * A {@link Message} is written as a fixed envelope (task, request ID, timeout) followed by its
+ * payload, so a payload serialized once can be sent to several clients with
+ * {@link #serializeMessage(TaskType, long, byte[], Output)}.
  * @author Group 6
  * @version 1.0
  */
 public class KryoUtil {
 
+    /** Initial size of pooled output buffers. */
+    private static final int BUFFER_SIZE = 4096;
+
+    /** A pooled buffer that grew beyond this size is shrunk back when it is returned. */
+    private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+    /** Maximum number of idle instances kept by each pool. */
+    private static final int POOL_CAPACITY = 32;
+
+    /** Used to release the caller's array from a pooled Input. */
+    private static final byte[] EMPTY = new byte[0];
+
+    // --- Registration IDs (part of the wire format, never reuse or renumber) ---
+    // Kryo reserves 0-9 for primitives and String.
+    private static final int ID_HASH_MAP = 10;
+    private static final int ID_MESSAGE = 11;
+    private static final int ID_TASK_TYPE = 12;
+    private static final int ID_USER = 13;
+    private static final int ID_TABLE = 14;
+    private static final int ID_ORDER = 15;
+    private static final int ID_WAITING_LIST = 16;
+    private static final int ID_ARRAY_LIST = 17;
+    private static final int ID_DATE = 18;
+    private static final int ID_TIME = 19;
+    private static final int ID_SCHEDULE = 20;
+    private static final int ID_MONTHLY_REPORT = 21;
+    private static final int ID_OBJECT_ARRAY = 22;
+    private static final int ID_ORDER_COLUMNS = 23;
+    private static final int ID_DATASET_DELTA = 24;
+
+    /**
+     * Well-known status / type strings sent as a one-byte code (index + 1).
+     * Append only: the position of an entry is its wire code.
+     */
+    private static final String[] CODES = {
+        "PENDING", "APPROVED", "ACTIVE", "CANCELLED", "FINISHED",            // orders
+        "WAITING", "NOTIFIED", "FULFILLED",                                  // waiting list
+        "AVAILABLE", "OCCUPIED", "RESERVED", "BROKEN",                       // tables
+        "SUBSCRIBER", "CASUAL", "REPRESENTATIVE", "MANAGER",                 // user types
+        "REGULAR", "SPECIAL", "HOLIDAY", "WEEKDAY"                           // schedule types
+    };
+
+    /** Code of a null string. */
+    private static final int CODE_NULL = 0;
+
+    /** Code announcing a string that is not in {@link #CODES}; the string follows. */
+    private static final int CODE_TEXT = 255;
+
+    /** Reverse lookup of {@link #CODES}. */
+    private static final Map<String, Integer> CODE_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < CODES.length; i++) {
+            CODE_INDEX.put(CODES[i], i + 1);
+        }
+    }
+
+    /** Local 00:00 on 1970-01-01 in epoch millis: the date part that java.sql.Time values carry. */
+    private static final long TIME_BASE_MS =
+            LocalDateTime.of(1970, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    /** Size of the epoch-day to millis cache (a power of two). */
+    private static final int DAY_CACHE_SIZE = 1024;
+
     /**
-     * Kryo is not thread-safe, so we use ThreadLocal to ensure each thread has its own instance.
+     * Small direct-mapped cache of local-midnight millis per epoch day.
+     * Decoding a day is a zone-rules lookup; a reply usually repeats a handful of days.
+     */
+    private static final DayMillis[] dayCache = new DayMillis[DAY_CACHE_SIZE];
+
+    /** One immutable cache entry, so racing readers always see a consistent pair. */
+    private static final class DayMillis {
+        final long day;
+        final long millis;
+
+        DayMillis(long day, long millis) {
+            this.day = day;
+            this.millis = millis;
+        }
+    }
+
+    /**
+     * Kryo is not thread-safe, so every operation borrows an instance from this pool.
      * Registers all necessary classes for the Bistro application.
      */
-    private static final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        
-        kryo.register(java.util.HashMap.class);
-        // --- Registration ---
-        // EXACT SAME ORDER REQUIRED ON BOTH SIDES
-        kryo.register(Message.class);
-        kryo.register(TaskType.class);
-        
-        // Data Classes
-        kryo.register(User.class);        // Replaces Subscriber
-        kryo.register(Table.class); 
-        kryo.register(Order.class);
-        kryo.register(WaitingList.class); // New
-        
-        // Java Utils
-        kryo.register(ArrayList.class);
-        kryo.register(Date.class);
-        kryo.register(Time.class);   
-        
-        kryo.register(BistroSchedule.class);
-        kryo.register(MonthlyReportData.class);
-        kryo.register(Object[].class);  
-
-        return kryo;
-    });
+    private static final Pool<Kryo> kryoPool = new Pool<Kryo>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Kryo create() {
+            Kryo kryo = new Kryo();
+
+            // --- Registration ---
+            // Explicit IDs: the order of these calls does not matter
+            kryo.register(HashMap.class, ID_HASH_MAP);
+            kryo.register(Message.class, new MessageSerializer(), ID_MESSAGE);
+            kryo.register(TaskType.class, ID_TASK_TYPE);
+
+            // Data Classes
+            kryo.register(User.class, new UserSerializer(), ID_USER);
+            kryo.register(Table.class, new TableSerializer(), ID_TABLE);
+            kryo.register(Order.class, new OrderSerializer(), ID_ORDER);
+            kryo.register(WaitingList.class, new WaitingListSerializer(), ID_WAITING_LIST);
+
+            // Java Utils
+            kryo.register(ArrayList.class, ID_ARRAY_LIST);
+            kryo.register(Date.class, new DateSerializer(), ID_DATE);
+            kryo.register(Time.class, new TimeSerializer(), ID_TIME);
+
+            kryo.register(BistroSchedule.class, new ScheduleSerializer(), ID_SCHEDULE);
+            kryo.register(MonthlyReportData.class, ID_MONTHLY_REPORT);
+            kryo.register(Object[].class, ID_OBJECT_ARRAY);
+            kryo.register(OrderColumns.class, new OrderColumnsSerializer(), ID_ORDER_COLUMNS);
+            kryo.register(DatasetDelta.class, ID_DATASET_DELTA);
+
+            return kryo;
+        }
+    };
+
+    /** Reusable, growable output buffers. */
+    private static final Pool<Output> outputPool = new Pool<Output>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Output create() {
+            return new Output(BUFFER_SIZE, -1);
+        }
+    };
+
+    /** Reusable inputs that read from a caller's byte array. */
+    private static final Pool<Input> inputPool = new Pool<Input>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Input create() {
+            return new Input();
+        }
+    };
+
+    /** Reusable buffered inputs that read from a stream. */
+    private static final Pool<Input> streamInputPool = new Pool<Input>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Input create() {
+            return new Input(BUFFER_SIZE);
+        }
+    };
 
     /**
      * Serializes an object into a byte array.
@@ -54,12 +184,87 @@ public class KryoUtil {
      * @return The byte array representing the object.
      */
     public static byte[] serialize(Object object) {
-        Kryo kryo = kryoThreadLocal.get();
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        Output output = new Output(byteArrayOutputStream);
-        kryo.writeClassAndObject(output, object);
-        output.close();
-        return byteArrayOutputStream.toByteArray();
+        Output output = obtainOutput();
+        try {
+            serialize(object, output);
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+        }
+    }
+
+    /**
+     * Serializes an object into a caller-provided buffer, after its current position.
+     * @param object The object to serialize.
+     * @param output The destination buffer (e.g. from {@link #obtainOutput()}).
+     */
+    public static void serialize(Object object, Output output) {
+        Kryo kryo = kryoPool.obtain();
+        try {
+            kryo.writeClassAndObject(output, object);
+        } finally {
+            kryoPool.free(kryo);
+        }
+    }
+
+    /**
+     * Writes a message whose payload was serialized beforehand with {@link #serialize(Object)}.
+     * The result is identical to serializing {@code new Message(task, payload)} with the given
+     * request ID, but the payload bytes are only copied.
+     * @param task The task of the message.
+     * @param requestId The request ID to echo (0 = none).
+     * @param payload The serialized payload.
+     * @param output The destination buffer.
+     */
+    public static void serializeMessage(TaskType task, long requestId, byte[] payload, Output output) {
+        Kryo kryo = kryoPool.obtain();
+        try {
+            kryo.writeClass(output, Message.class);
+        } finally {
+            kryoPool.free(kryo);
+        }
+        writeEnvelope(output, task, requestId, 0);
+        output.writeBytes(payload);
+    }
+
+    /**
+     * Serializes an object directly into a stream through a pooled buffer.
+     * The stream is flushed but not closed.
+     * @param object The object to serialize.
+     * @param stream The destination stream.
+     */
+    public static void serialize(Object object, OutputStream stream) {
+        Output output = obtainOutput();
+        try {
+            output.setOutputStream(stream);
+            serialize(object, output);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            freeOutput(output);
+        }
+    }
+
+    /**
+     * Borrows an empty output buffer. The serialized bytes are {@code getBuffer()[0 .. position())}.
+     * Must be returned with {@link #freeOutput(Output)} once the bytes were written out.
+     * @return A pooled, growable output.
+     */
+    public static Output obtainOutput() {
+        Output output = outputPool.obtain();
+        output.reset();
+        return output;
+    }
+
+    /**
+     * Returns a buffer borrowed with {@link #obtainOutput()}. Buffers that grew very large are shrunk.
+     * @param output The buffer to return.
+     */
+    public static void freeOutput(Output output) {
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+            output.setBuffer(new byte[BUFFER_SIZE], -1);
+        }
+        outputPool.free(output);
     }
 
     /**
@@ -69,8 +274,384 @@ public class KryoUtil {
      */
     public static Object deserialize(byte[] bytes) {
         if (bytes == null) return null;
-        Kryo kryo = kryoThreadLocal.get();
-        Input input = new Input(new ByteArrayInputStream(bytes));
-        return kryo.readClassAndObject(input);
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Deserializes an object from a region of a byte array, without copying it.
+     * @param bytes The array holding the serialized object.
+     * @param offset Index of the first byte.
+     * @param length Number of bytes.
+     * @return The reconstructed object.
+     */
+    public static Object deserialize(byte[] bytes, int offset, int length) {
+        Input input = inputPool.obtain();
+        Kryo kryo = kryoPool.obtain();
+        try {
+            input.setBuffer(bytes, offset, length);
+            return kryo.readClassAndObject(input);
+        } finally {
+            kryoPool.free(kryo);
+            input.setBuffer(EMPTY);
+            inputPool.free(input);
+        }
+    }
+
+    /**
+     * Deserializes one object from a stream through a pooled buffer.
+     * The input may read ahead, so the stream should not be used for anything else afterwards.
+     * @param stream The source stream.
+     * @return The reconstructed object.
+     */
+    public static Object deserialize(InputStream stream) {
+        Input input = streamInputPool.obtain();
+        Kryo kryo = kryoPool.obtain();
+        try {
+            input.setInputStream(stream);
+            return kryo.readClassAndObject(input);
+        } finally {
+            kryoPool.free(kryo);
+            input.setInputStream(null);
+            streamInputPool.free(input);
+        }
+    }
+
+    // ===============================================================
+    // FIELD ENCODINGS
+    // ===============================================================
+
+    /** Writes a status / type string as its one-byte code, or as text if it is not well-known. */
+    private static void writeCode(Output output, String value) {
+        if (value == null) {
+            output.writeByte(CODE_NULL);
+            return;
+        }
+        Integer code = CODE_INDEX.get(value);
+        if (code != null) {
+            output.writeByte(code);
+        } else {
+            output.writeByte(CODE_TEXT);
+            output.writeString(value);
+        }
+    }
+
+    private static String readCode(Input input) {
+        int code = input.readByteUnsigned();
+        if (code == CODE_NULL) return null;
+        if (code == CODE_TEXT) return input.readString();
+        return CODES[code - 1];
+    }
+
+    /** Writes a nullable date as a zig-zag epoch-day varint, shifted by one so 0 means null. */
+    private static void writeDate(Output output, Date date) {
+        if (date == null) {
+            output.writeVarLong(0, true);
+            return;
+        }
+        long day = date.toLocalDate().toEpochDay();
+        output.writeVarLong(((day << 1) ^ (day >> 63)) + 1, true);
+    }
+
+    private static Date readDate(Input input) {
+        long zigzag = input.readVarLong(true);
+        if (zigzag == 0) return null;
+        zigzag--;
+        return new Date(midnightMillis((zigzag >>> 1) ^ -(zigzag & 1)));
+    }
+
+    /** Same instant as Date.valueOf(LocalDate.ofEpochDay(day)), served from {@link #dayCache}. */
+    private static long midnightMillis(long day) {
+        int slot = (int) (day & (DAY_CACHE_SIZE - 1));
+        DayMillis entry = dayCache[slot];
+        if (entry == null || entry.day != day) {
+            entry = new DayMillis(day, Date.valueOf(LocalDate.ofEpochDay(day)).getTime());
+            dayCache[slot] = entry;
+        }
+        return entry.millis;
+    }
+
+    /**
+     * Writes a nullable time as second-of-day + 1 (0 means null).
+     * Seconds are kept because arrival and leaving times are stored with seconds.
+     */
+    private static void writeTime(Output output, Time time) {
+        output.writeVarInt(time == null ? 0 : time.toLocalTime().toSecondOfDay() + 1, true);
+    }
+
+    private static Time readTime(Input input) {
+        int value = input.readVarInt(true);
+        // Same instant as Time.valueOf(LocalTime.ofSecondOfDay(value - 1)), without the calendar math
+        return value == 0 ? null : new Time(TIME_BASE_MS + (value - 1) * 1000L);
+    }
+
+    /** Writes the fixed part of a message: task (ordinal + 1, 0 = null), request ID and timeout. */
+    private static void writeEnvelope(Output output, TaskType task, long requestId, long timeout) {
+        output.writeVarInt(task == null ? 0 : task.ordinal() + 1, true);
+        output.writeVarLong(requestId, true);
+        output.writeVarLong(timeout, true);
+    }
+
+    // ===============================================================
+    // SERIALIZERS
+    // ===============================================================
+
+    /** The envelope first and the payload last, so a payload can be serialized once and reused. */
+    private static class MessageSerializer extends Serializer<Message> {
+        private static final TaskType[] TASKS = TaskType.values();
+
+        @Override
+        public void write(Kryo kryo, Output output, Message message) {
+            writeEnvelope(output, message.getTask(), message.getRequestId(), message.getTimeout());
+            kryo.writeClassAndObject(output, message.getObject());
+        }
+
+        @Override
+        public Message read(Kryo kryo, Input input, Class<? extends Message> type) {
+            int task = input.readVarInt(true);
+            long requestId = input.readVarLong(true);
+            long timeout = input.readVarLong(true);
+            Message message = new Message(task == 0 ? null : TASKS[task - 1], kryo.readClassAndObject(input));
+            message.setRequestId(requestId);
+            message.setTimeout(timeout);
+            return message;
+        }
+    }
+
+    /** java.sql.Date sent on its own (e.g. as a message payload). */
+    private static class DateSerializer extends Serializer<Date> {
+        DateSerializer() { setAcceptsNull(true); }
+
+        @Override
+        public void write(Kryo kryo, Output output, Date date) { writeDate(output, date); }
+
+        @Override
+        public Date read(Kryo kryo, Input input, Class<? extends Date> type) { return readDate(input); }
+    }
+
+    /** java.sql.Time sent on its own (e.g. as a message payload). */
+    private static class TimeSerializer extends Serializer<Time> {
+        TimeSerializer() { setAcceptsNull(true); }
+
+        @Override
+        public void write(Kryo kryo, Output output, Time time) { writeTime(output, time); }
+
+        @Override
+        public Time read(Kryo kryo, Input input, Class<? extends Time> type) { return readTime(input); }
+    }
+
+    private static class OrderSerializer extends Serializer<Order> {
+        @Override
+        public void write(Kryo kryo, Output output, Order order) {
+            output.writeVarInt(order.getOrderNumber(), true);
+            output.writeVarInt(order.getUserId(), true);
+            writeDate(output, order.getOrderDate());
+            writeTime(output, order.getOrderTime());
+            output.writeVarInt(order.getNumberOfDiners(), true);
+            writeCode(output, order.getStatus());
+            output.writeString(order.getConfirmationCode());
+            writeTime(output, order.getActualArrivalTime());
+            writeTime(output, order.getLeavingTime());
+        }
+
+        @Override
+        public Order read(Kryo kryo, Input input, Class<? extends Order> type) {
+            int orderNumber = input.readVarInt(true);
+            int userId = input.readVarInt(true);
+            Date orderDate = readDate(input);
+            Time orderTime = readTime(input);
+            int diners = input.readVarInt(true);
+            String status = readCode(input);
+            String code = input.readString();
+            Time arrival = readTime(input);
+            Time leaving = readTime(input);
+            return new Order(orderNumber, userId, orderDate, orderTime, diners, status, code, arrival, leaving);
+        }
+    }
+
+    private static class TableSerializer extends Serializer<Table> {
+        @Override
+        public void write(Kryo kryo, Output output, Table table) {
+            output.writeVarInt(table.getTableId(), true);
+            output.writeVarInt(table.getSeats(), true);
+            writeCode(output, table.getStatus());
+        }
+
+        @Override
+        public Table read(Kryo kryo, Input input, Class<? extends Table> type) {
+            int tableId = input.readVarInt(true);
+            int seats = input.readVarInt(true);
+            return new Table(tableId, seats, readCode(input));
+        }
+    }
+
+    private static class UserSerializer extends Serializer<User> {
+        @Override
+        public void write(Kryo kryo, Output output, User user) {
+            output.writeVarInt(user.getUserId(), true);
+            output.writeString(user.getPhoneNumber());
+            output.writeString(user.getEmail());
+            output.writeString(user.getFirstName());
+            output.writeString(user.getLastName());
+            writeCode(output, user.getUserType());
+            Integer subscriberNumber = user.getSubscriberNumber();
+            output.writeBoolean(subscriberNumber != null);
+            if (subscriberNumber != null) output.writeVarInt(subscriberNumber, true);
+            output.writeString(user.getUsername());
+            output.writeString(user.getPassword());
+        }
+
+        @Override
+        public User read(Kryo kryo, Input input, Class<? extends User> type) {
+            int userId = input.readVarInt(true);
+            String phone = input.readString();
+            String email = input.readString();
+            String firstName = input.readString();
+            String lastName = input.readString();
+            String userType = readCode(input);
+            Integer subscriberNumber = input.readBoolean() ? input.readVarInt(true) : null;
+            String username = input.readString();
+            String password = input.readString();
+            return new User(userId, phone, email, firstName, lastName, userType, subscriberNumber, username, password);
+        }
+    }
+
+    private static class WaitingListSerializer extends Serializer<WaitingList> {
+        @Override
+        public void write(Kryo kryo, Output output, WaitingList entry) {
+            output.writeVarInt(entry.getWaitingId(), true);
+            output.writeVarInt(entry.getUserId(), true);
+            writeDate(output, entry.getDateRequested());
+            writeTime(output, entry.getTimeRequested());
+            output.writeVarInt(entry.getNumOfDiners(), true);
+            writeCode(output, entry.getStatus());
+            output.writeString(entry.getCode());
+        }
+
+        @Override
+        public WaitingList read(Kryo kryo, Input input, Class<? extends WaitingList> type) {
+            int waitingId = input.readVarInt(true);
+            int userId = input.readVarInt(true);
+            Date date = readDate(input);
+            Time time = readTime(input);
+            int diners = input.readVarInt(true);
+            String status = readCode(input);
+            String code = input.readString();
+            return new WaitingList(waitingId, userId, date, time, diners, status, code);
+        }
+    }
+
+    private static class ScheduleSerializer extends Serializer<BistroSchedule> {
+        @Override
+        public void write(Kryo kryo, Output output, BistroSchedule schedule) {
+            output.writeString(schedule.getIdentifier());
+            output.writeString(schedule.getOpenTime());
+            output.writeString(schedule.getCloseTime());
+            output.writeBoolean(schedule.isClosed());
+            writeCode(output, schedule.getType());
+            output.writeString(schedule.getEventName());
+        }
+
+        @Override
+        public BistroSchedule read(Kryo kryo, Input input, Class<? extends BistroSchedule> type) {
+            String identifier = input.readString();
+            String openTime = input.readString();
+            String closeTime = input.readString();
+            boolean closed = input.readBoolean();
+            String scheduleType = readCode(input);
+            String eventName = input.readString();
+            return new BistroSchedule(identifier, openTime, closeTime, closed, scheduleType, eventName);
+        }
+    }
+
+    /**
+     * Writes an {@link OrderColumns} one column at a time. Order numbers and dates are delta
+     * encoded (rows usually come in key or date order), times use the same second-of-day + 1
+     * varint as single orders, and the dictionary columns send each distinct string once.
+     */
+    private static class OrderColumnsSerializer extends Serializer<OrderColumns> {
+        @Override
+        public void write(Kryo kryo, Output output, OrderColumns columns) {
+            int size = columns.size;
+            output.writeVarInt(size, true);
+
+            int previousNumber = 0;
+            for (int i = 0; i < size; i++) {
+                output.writeVarInt(columns.orderNumbers[i] - previousNumber, false);
+                previousNumber = columns.orderNumbers[i];
+            }
+            writeInts(output, columns.userIds, size, 0);
+
+            long previousDay = 0;
+            for (int i = 0; i < size; i++) {
+                int day = columns.epochDays[i];
+                if (day == OrderColumns.NO_DATE) {
+                    output.writeVarLong(0, true);
+                } else {
+                    long delta = day - previousDay;
+                    output.writeVarLong(((delta << 1) ^ (delta >> 63)) + 1, true);
+                    previousDay = day;
+                }
+            }
+            writeInts(output, columns.orderSeconds, size, 1);
+            writeInts(output, columns.diners, size, 0);
+            writeInts(output, columns.arrivalSeconds, size, 1);
+            writeInts(output, columns.leavingSeconds, size, 1);
+            writeDictionary(output, columns.statuses, size);
+            writeDictionary(output, columns.codes, size);
+        }
+
+        @Override
+        public OrderColumns read(Kryo kryo, Input input, Class<? extends OrderColumns> type) {
+            int size = input.readVarInt(true);
+            OrderColumns columns = new OrderColumns(size);
+
+            int number = 0;
+            for (int i = 0; i < size; i++) {
+                number += input.readVarInt(false);
+                columns.orderNumbers[i] = number;
+            }
+            readInts(input, columns.userIds, size, 0);
+
+            long day = 0;
+            for (int i = 0; i < size; i++) {
+                long zigzag = input.readVarLong(true);
+                if (zigzag == 0) {
+                    columns.epochDays[i] = OrderColumns.NO_DATE;
+                } else {
+                    zigzag--;
+                    day += (zigzag >>> 1) ^ -(zigzag & 1);
+                    columns.epochDays[i] = (int) day;
+                }
+            }
+            readInts(input, columns.orderSeconds, size, 1);
+            readInts(input, columns.diners, size, 0);
+            readInts(input, columns.arrivalSeconds, size, 1);
+            readInts(input, columns.leavingSeconds, size, 1);
+            readDictionary(input, columns.statuses, size);
+            readDictionary(input, columns.codes, size);
+            columns.size = size;
+            return columns;
+        }
+
+        /** Writes the first size values of a non-negative column (after adding bias) as varints. */
+        private static void writeInts(Output output, int[] column, int size, int bias) {
+            for (int i = 0; i < size; i++) output.writeVarInt(column[i] + bias, true);
+        }
+
+        private static void readInts(Input input, int[] column, int size, int bias) {
+            for (int i = 0; i < size; i++) column[i] = input.readVarInt(true) - bias;
+        }
+
+        private static void writeDictionary(Output output, OrderColumns.Dictionary dictionary, int size) {
+            output.writeVarInt(dictionary.values.size(), true);
+            for (String value : dictionary.values) writeCode(output, value);
+            writeInts(output, dictionary.ids, size, 0);
+        }
+
+        private static void readDictionary(Input input, OrderColumns.Dictionary dictionary, int size) {
+            int count = input.readVarInt(true);
+            for (int i = 0; i < count; i++) dictionary.values.add(readCode(input));
+            readInts(input, dictionary.ids, size, 0);
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,10 @@ package common;
 /**
  * Wrapper class for network transmission using Kryo.
  * Encapsulates a task type and an optional data object (payload).
+ * <p>
+ * A request may carry a request ID, which the server copies into its response so the client can
+ * match responses to requests while several are in flight, and a timeout: how long the client waits
+ * for the response. Both are 0 when not used.
  * @author Group 6
  * @version 1.0
  */
@@ -13,6 +17,15 @@ public class Message {
     /** The payload data associated with the message. */
     private Object object;
 
+    /** Correlation ID chosen by the client and echoed in the response (0 = none). */
+    private long requestId;
+
+    /**
+     * How long (millis) the client waits for the response (0 = no limit). It is relative, so the server
+     * counts it from the request's arrival on its own clock.
+     */
+    private long timeout;
+
     /**
      * No-arg constructor required for Kryo serialization.
      */
@@ -51,4 +64,28 @@ public class Message {
      * @param object The object to set.
      */
     public void setObject(Object object) { this.object = object; }
+
+    /**
+     * Gets the request ID.
+     * @return The correlation ID, or 0 if the message is not correlated.
+     */
+    public long getRequestId() { return requestId; }
+
+    /**
+     * Sets the request ID.
+     * @param requestId The correlation ID (0 = none).
+     */
+    public void setRequestId(long requestId) { this.requestId = requestId; }
+
+    /**
+     * Gets the timeout.
+     * @return How long the client waits for the response in millis, or 0 if there is no limit.
+     */
+    public long getTimeout() { return timeout; }
+
+    /**
+     * Sets the timeout.
+     * @param timeout How long the client waits for the response in millis (0 = no limit).
+     */
+    public void setTimeout(long timeout) { this.timeout = timeout; }
 }
\ No newline at end of file
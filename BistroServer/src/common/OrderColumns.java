@@ -0,0 +1,339 @@
+package common;
+
+import java.io.Serializable;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented list of orders used for large list replies (all orders, history, monthly report).
+ * <p>
+ * Instead of one object graph per row, every field is kept in a parallel primitive array:
+ * order numbers, user ids, epoch days, second-of-day times and diner counts. Status and
+ * confirmation code are dictionary encoded (one int per row pointing into a list of distinct values).
+ * <p>
+ * The class is still a {@code List<Order>}, so tables can bind to it directly. An {@link Order}
+ * is only built when a row is first read with {@link #get(int)} (e.g. when a table shows it) and
+ * is then reused. Changes made to such an Order are not written back to the columns.
+ * @author Group 6
+ * @version 1.0
+ */
+public class OrderColumns extends AbstractList<Order> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Epoch-day value of a missing date. */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** Second-of-day value of a missing time. */
+    public static final int NO_TIME = -1;
+
+    /** Initial capacity when none is given. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Columns are package-private so KryoUtil can stream them without going through rows.
+
+    /** Number of rows in use (the arrays may be longer). */
+    int size;
+
+    /** Order number per row. */
+    int[] orderNumbers;
+
+    /** User id per row. */
+    int[] userIds;
+
+    /** Reservation date per row as epoch day, or {@link #NO_DATE}. */
+    int[] epochDays;
+
+    /** Reservation time per row as second of day, or {@link #NO_TIME}. */
+    int[] orderSeconds;
+
+    /** Number of diners per row. */
+    int[] diners;
+
+    /** Arrival time per row as second of day, or {@link #NO_TIME}. */
+    int[] arrivalSeconds;
+
+    /** Leaving time per row as second of day, or {@link #NO_TIME}. */
+    int[] leavingSeconds;
+
+    /** Dictionary-encoded status column. */
+    final Dictionary statuses;
+
+    /** Dictionary-encoded confirmation code column. */
+    final Dictionary codes;
+
+    /** Orders already built by {@link #get(int)}, by row. */
+    private transient Order[] rows;
+
+    /**
+     * A string column stored as one id per row plus the list of distinct values.
+     */
+    static final class Dictionary implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /** Distinct values; the position is the id. May contain null. */
+        final ArrayList<String> values = new ArrayList<>();
+
+        /** Value id per row. */
+        int[] ids;
+
+        /** Reverse lookup of {@link #values}, rebuilt on demand after deserialization. */
+        private transient HashMap<String, Integer> index;
+
+        Dictionary(int capacity) {
+            ids = new int[capacity];
+        }
+
+        /**
+         * Returns the id of a value, adding it to the dictionary if it is new.
+         * @param value The value (may be null).
+         * @return Its id.
+         */
+        int idOf(String value) {
+            if (index == null) {
+                index = new HashMap<>();
+                for (int i = 0; i < values.size(); i++) index.put(values.get(i), i);
+            }
+            Integer id = index.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                index.put(value, id);
+            }
+            return id;
+        }
+
+        String get(int row) {
+            return values.get(ids[row]);
+        }
+    }
+
+    /**
+     * Creates an empty list.
+     */
+    public OrderColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list with room for the given number of rows.
+     * @param capacity Expected number of rows.
+     */
+    public OrderColumns(int capacity) {
+        capacity = Math.max(capacity, 1);
+        orderNumbers = new int[capacity];
+        userIds = new int[capacity];
+        epochDays = new int[capacity];
+        orderSeconds = new int[capacity];
+        diners = new int[capacity];
+        arrivalSeconds = new int[capacity];
+        leavingSeconds = new int[capacity];
+        statuses = new Dictionary(capacity);
+        codes = new Dictionary(capacity);
+    }
+
+    /**
+     * Appends one row given as column values (the server builds the list this way from a ResultSet).
+     * @param orderNumber Unique Order ID.
+     * @param userId User ID.
+     * @param orderDate Reservation date (may be null).
+     * @param orderTime Reservation time (may be null).
+     * @param numberOfDiners Guest count.
+     * @param status Current status.
+     * @param confirmationCode Code for check-in.
+     * @param actualArrivalTime Time of arrival (may be null).
+     * @param leavingTime Time of departure (may be null).
+     */
+    public void addRow(int orderNumber, int userId, LocalDate orderDate, LocalTime orderTime, int numberOfDiners,
+                       String status, String confirmationCode, LocalTime actualArrivalTime, LocalTime leavingTime) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        orderNumbers[row] = orderNumber;
+        userIds[row] = userId;
+        epochDays[row] = toEpochDay(orderDate);
+        orderSeconds[row] = toSecond(orderTime);
+        diners[row] = numberOfDiners;
+        arrivalSeconds[row] = toSecond(actualArrivalTime);
+        leavingSeconds[row] = toSecond(leavingTime);
+        statuses.ids[row] = statuses.idOf(status);
+        codes.ids[row] = codes.idOf(confirmationCode);
+        modCount++;
+    }
+
+    /**
+     * Makes sure the columns can hold the given number of rows.
+     * @param capacity Required number of rows.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= orderNumbers.length) return;
+        int newCapacity = Math.max(capacity, orderNumbers.length * 2);
+        orderNumbers = Arrays.copyOf(orderNumbers, newCapacity);
+        userIds = Arrays.copyOf(userIds, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        orderSeconds = Arrays.copyOf(orderSeconds, newCapacity);
+        diners = Arrays.copyOf(diners, newCapacity);
+        arrivalSeconds = Arrays.copyOf(arrivalSeconds, newCapacity);
+        leavingSeconds = Arrays.copyOf(leavingSeconds, newCapacity);
+        statuses.ids = Arrays.copyOf(statuses.ids, newCapacity);
+        codes.ids = Arrays.copyOf(codes.ids, newCapacity);
+        if (rows != null) rows = Arrays.copyOf(rows, newCapacity);
+    }
+
+    // --- Column access (no Order is created) ---
+
+    /**
+     * @param row Row index.
+     * @return The order number.
+     */
+    public int getOrderNumber(int row) { checkRow(row); return orderNumbers[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The user ID.
+     */
+    public int getUserId(int row) { checkRow(row); return userIds[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The reservation date as epoch day, or {@link #NO_DATE}.
+     */
+    public int getEpochDay(int row) { checkRow(row); return epochDays[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The reservation time as second of day, or {@link #NO_TIME}.
+     */
+    public int getOrderSecond(int row) { checkRow(row); return orderSeconds[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The number of diners.
+     */
+    public int getNumberOfDiners(int row) { checkRow(row); return diners[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The arrival time as second of day, or {@link #NO_TIME}.
+     */
+    public int getArrivalSecond(int row) { checkRow(row); return arrivalSeconds[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The leaving time as second of day, or {@link #NO_TIME}.
+     */
+    public int getLeavingSecond(int row) { checkRow(row); return leavingSeconds[row]; }
+
+    /**
+     * @param row Row index.
+     * @return The status.
+     */
+    public String getStatus(int row) { checkRow(row); return statuses.get(row); }
+
+    /**
+     * @param row Row index.
+     * @return The confirmation code.
+     */
+    public String getConfirmationCode(int row) { checkRow(row); return codes.get(row); }
+
+    // --- List view ---
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the row as an Order, building it on first access.
+     * @param row Row index.
+     * @return The Order for this row (the same instance on every call).
+     */
+    @Override
+    public Order get(int row) {
+        checkRow(row);
+        if (rows == null) rows = new Order[orderNumbers.length];
+        Order order = rows[row];
+        if (order == null) {
+            order = new Order(orderNumbers[row], userIds[row], toDate(epochDays[row]), toTime(orderSeconds[row]),
+                    diners[row], statuses.get(row), codes.get(row),
+                    toTime(arrivalSeconds[row]), toTime(leavingSeconds[row]));
+            rows[row] = order;
+        }
+        return order;
+    }
+
+    /**
+     * Overwrites a row (used when a table sorts its items in place).
+     * @param row Row index.
+     * @param order The new row content.
+     * @return The previous Order of this row.
+     */
+    @Override
+    public Order set(int row, Order order) {
+        Order previous = get(row);
+        writeRow(row, order);
+        rows[row] = order;
+        return previous;
+    }
+
+    /**
+     * Appends a row; only adding at the end is supported.
+     * @param row Must be equal to {@link #size()}.
+     * @param order The Order to append.
+     */
+    @Override
+    public void add(int row, Order order) {
+        if (row != size) throw new UnsupportedOperationException("OrderColumns only supports appending");
+        ensureCapacity(size + 1);
+        size++;
+        writeRow(row, order);
+        if (rows != null) rows[row] = order;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        rows = null;
+        modCount++;
+    }
+
+    private void writeRow(int row, Order order) {
+        orderNumbers[row] = order.getOrderNumber();
+        userIds[row] = order.getUserId();
+        epochDays[row] = order.getOrderDate() == null ? NO_DATE : (int) order.getOrderDate().toLocalDate().toEpochDay();
+        orderSeconds[row] = order.getOrderTime() == null ? NO_TIME : toSecond(order.getOrderTime().toLocalTime());
+        diners[row] = order.getNumberOfDiners();
+        arrivalSeconds[row] = order.getActualArrivalTime() == null ? NO_TIME : toSecond(order.getActualArrivalTime().toLocalTime());
+        leavingSeconds[row] = order.getLeavingTime() == null ? NO_TIME : toSecond(order.getLeavingTime().toLocalTime());
+        statuses.ids[row] = statuses.idOf(order.getStatus());
+        codes.ids[row] = codes.idOf(order.getConfirmationCode());
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+    }
+
+    // --- Conversions ---
+
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    private static int toSecond(LocalTime time) {
+        return time == null ? NO_TIME : time.toSecondOfDay();
+    }
+
+    private static Date toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : Date.valueOf(LocalDate.ofEpochDay(epochDay));
+    }
+
+    private static Time toTime(int second) {
+        return second == NO_TIME ? null : Time.valueOf(LocalTime.ofSecondOfDay(second));
+    }
+}
@@ -0,0 +1,199 @@
+package controllers;
+
+import JDBC.DatabaseConnection;
+import server.ServerConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deferred removal of casual (non-subscriber) users once they are done.
+ * <p>
+ * Checkout only marks the casual user as eligible ({@link #markEligible(int)}). A background run
+ * ({@link #runOnce()}) later takes every mark older than the retention period and, in batches,
+ * unlinks the users' orders and waiting-list rows and deletes the users, each batch with three
+ * set-based statements in one transaction. Users who booked or joined the waiting list again
+ * in the meantime are skipped.
+ * <p>
+ * Runs only off-peak, i.e. while the restaurant is closed according to the {@link ScheduleCalendar},
+ * unless the number of pending users exceeds CASUAL_CLEANUP_MAX_PENDING.
+ * Retention, batch size and the threshold come from CASUAL_RETENTION_MS, CASUAL_CLEANUP_BATCH
+ * and CASUAL_CLEANUP_MAX_PENDING.
+ * @author Group 6
+ * @version 1.0
+ */
+public class CasualUserCleanup {
+
+    /** Statuses that keep a user: they are still expected at, or sitting in, the restaurant. */
+    private static final String LIVE_GUARD =
+            "AND NOT EXISTS (SELECT 1 FROM orders o WHERE o.user_id = u.user_id AND o.status IN ('APPROVED', 'ACTIVE', 'PENDING')) " +
+            "AND NOT EXISTS (SELECT 1 FROM waiting_list w WHERE w.user_id = u.user_id AND w.status IN ('WAITING', 'NOTIFIED')) " +
+            "AND NOT EXISTS (SELECT 1 FROM restaurant_tables t WHERE t.user_id = u.user_id)";
+
+    /** The single instance of this class. */
+    private static final CasualUserCleanup instance = new CasualUserCleanup();
+
+    /** How long a finished casual user is kept before removal. */
+    private final long retentionMillis;
+
+    /** Maximum number of users removed per transaction. */
+    private final int batchSize;
+
+    /** Above this many pending users, the cleanup also runs during opening hours. */
+    private final int maxPending;
+
+    /** Eligible user -> time it was marked (epoch ms). */
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+
+    // --- Statistics ---
+    private final AtomicLong removed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private CasualUserCleanup() {
+        this.retentionMillis = ServerConfig.getLong("CASUAL_RETENTION_MS", 3_600_000L);
+        this.batchSize = Math.max(1, ServerConfig.getInt("CASUAL_CLEANUP_BATCH", 200));
+        this.maxPending = ServerConfig.getInt("CASUAL_CLEANUP_MAX_PENDING", 500);
+    }
+
+    /**
+     * @return The singleton CasualUserCleanup instance.
+     */
+    public static CasualUserCleanup getInstance() {
+        return instance;
+    }
+
+    /**
+     * Marks a casual user for removal after the retention period. Called after checkout; no database access.
+     * @param userId The casual user.
+     */
+    public void markEligible(int userId) {
+        pending.put(userId, System.currentTimeMillis());
+    }
+
+    /**
+     * Marks casual users left over from before the last restart (nothing live and no table held),
+     * so their removal is not lost with the in-memory marks. Called once when the server starts.
+     */
+    public void warmUp() {
+        String query = "SELECT u.user_id FROM users u WHERE u.user_type = 'CASUAL' " + LIVE_GUARD;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) markEligible(rs.getInt("user_id"));
+        } catch (SQLException e) {
+            System.err.println("[CasualCleanup] Failed to read casual users: " + e.getMessage());
+            return;
+        }
+        System.out.println("[CasualCleanup] " + pending.size() + " casual users pending removal.");
+    }
+
+    /**
+     * Removes the casual users whose retention period has passed, batch by batch.
+     * Does nothing during opening hours unless too many users are pending.
+     */
+    public void runOnce() {
+        if (pending.isEmpty()) return;
+        if (pending.size() <= maxPending && !isOffPeak()) return;
+
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        ArrayList<Integer> due = new ArrayList<>();
+        for (Map.Entry<Integer, Long> mark : pending.entrySet()) {
+            if (mark.getValue() <= cutoff) due.add(mark.getKey());
+        }
+
+        for (int from = 0; from < due.size(); from += batchSize) {
+            removeBatch(due.subList(from, Math.min(due.size(), from + batchSize)));
+        }
+    }
+
+    /**
+     * @return true if the restaurant is closed right now.
+     */
+    private boolean isOffPeak() {
+        LocalDateTime now = LocalDateTime.now();
+        return !ScheduleCalendar.getInstance().isOpenAt(now.toLocalDate(), now.getHour() * 60 + now.getMinute());
+    }
+
+    /**
+     * Removes one batch of users in a single transaction. The user rows are locked first, so a user
+     * can not book again between the check and the delete.
+     */
+    private void removeBatch(List<Integer> userIds) {
+        String ids = join(userIds);
+        ArrayList<Integer> confirmed = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // 1. Keep only casual users that are still done (locks their rows until commit)
+                String check = "SELECT u.user_id FROM users u WHERE u.user_id IN (" + ids + ") " +
+                               "AND u.user_type = 'CASUAL' " + LIVE_GUARD + " FOR UPDATE";
+                try (PreparedStatement ps = conn.prepareStatement(check);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) confirmed.add(rs.getInt("user_id"));
+                }
+
+                if (!confirmed.isEmpty()) {
+                    String targets = join(confirmed);
+                    // 2. Unlink orders and waiting-list rows (history stays), 3. delete the users
+                    try (PreparedStatement unlinkOrders = conn.prepareStatement("UPDATE orders SET user_id = NULL WHERE user_id IN (" + targets + ")");
+                         PreparedStatement unlinkWaiting = conn.prepareStatement("UPDATE waiting_list SET user_id = NULL WHERE user_id IN (" + targets + ")");
+                         PreparedStatement deleteUsers = conn.prepareStatement("DELETE FROM users WHERE user_id IN (" + targets + ")")) {
+                        unlinkOrders.executeUpdate();
+                        unlinkWaiting.executeUpdate();
+                        deleteUsers.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            failedBatches.incrementAndGet();
+            System.err.println("[CasualCleanup] Batch failed, will retry: " + e.getMessage());
+            return;
+        }
+
+        // Users that became active again are dropped; the next checkout marks them again
+        for (int userId : userIds) pending.remove(userId);
+        batches.incrementAndGet();
+        removed.addAndGet(confirmed.size());
+        skipped.addAndGet(userIds.size() - confirmed.size());
+        if (!confirmed.isEmpty()) {
+            System.out.println("[CasualCleanup] Removed " + confirmed.size() + " casual users.");
+        }
+    }
+
+    private static String join(List<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (int id : ids) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return Pending, removed and skipped users, for the logs.
+     */
+    public String getStats() {
+        return "Casual cleanup: pending=" + pending.size() + ", removed=" + removed.get()
+                + ", skipped=" + skipped.get() + ", batches=" + batches.get() + ", failed=" + failedBatches.get();
+    }
+}
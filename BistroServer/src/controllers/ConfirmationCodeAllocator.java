@@ -0,0 +1,216 @@
+package controllers;
+
+import JDBC.DatabaseConnection;
+import server.ServerConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hands out confirmation codes without probing the database.
+ * <p>
+ * A code is "live" while it belongs to an APPROVED / ACTIVE / PENDING order or to a WAITING / NOTIFIED
+ * waiting-list entry. The allocator keeps every code that is not live in a free list, so picking a
+ * random unused code and giving one back are both O(1). Codes of finished and cancelled orders are
+ * returned with {@link #release(String)} and reused; the orders table keeps them for history only.
+ * <p>
+ * The code width comes from CODE_DIGITS (default 4, at most 6). Live codes are read from the
+ * database once, when the server starts or on first use.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ConfirmationCodeAllocator {
+
+    /** Widest supported code; 10^6 codes keep the free list at a few megabytes. */
+    private static final int MAX_DIGITS = 6;
+
+    /** The single instance of this class. */
+    private static final ConfirmationCodeAllocator instance = new ConfirmationCodeAllocator();
+
+    /** Number of digits in a code. */
+    private final int digits;
+
+    /** Number of distinct codes (10^digits). */
+    private final int capacity;
+
+    /** Free codes; the first freeCount entries are valid. */
+    private final int[] free;
+
+    /** Position of each code in {@link #free}, or -1 while the code is live. */
+    private final int[] slot;
+
+    /** Number of free codes. */
+    private int freeCount;
+
+    /** True once the live codes were read from the database. */
+    private boolean loaded = false;
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private ConfirmationCodeAllocator() {
+        int configured = ServerConfig.getInt("CODE_DIGITS", 4);
+        this.digits = Math.max(1, Math.min(MAX_DIGITS, configured));
+        if (digits != configured) {
+            System.err.println("[CodeAllocator] CODE_DIGITS=" + configured + " out of range, using " + digits);
+        }
+        int cap = 1;
+        for (int i = 0; i < digits; i++) cap *= 10;
+        this.capacity = cap;
+        this.free = new int[cap];
+        this.slot = new int[cap];
+        resetFreeList();
+    }
+
+    /**
+     * @return The singleton ConfirmationCodeAllocator instance.
+     */
+    public static ConfirmationCodeAllocator getInstance() {
+        return instance;
+    }
+
+    // =========================================================================
+    // ALLOCATION
+    // =========================================================================
+
+    /**
+     * Picks a random code that is not live and marks it live.
+     * @return The zero-padded code, or null if every code is live (or the live codes could not be read).
+     */
+    public synchronized String allocate() {
+        if (!loaded && !load()) return null;
+        if (freeCount == 0) {
+            System.err.println("[CodeAllocator] All " + capacity + " confirmation codes are in use.");
+            return null;
+        }
+        int code = free[ThreadLocalRandom.current().nextInt(freeCount)];
+        take(code);
+        return format(code);
+    }
+
+    /**
+     * Gives a code back once its order is finished or cancelled, or its waiting-list entry is cancelled.
+     * Codes that are out of range, or already free, are ignored.
+     * @param code The confirmation code.
+     */
+    public synchronized void release(String code) {
+        int value = parse(code);
+        if (value < 0 || slot[value] >= 0) return;
+        free[freeCount] = value;
+        slot[value] = freeCount++;
+    }
+
+    /**
+     * Marks a code live again, e.g. when staff restore a cancelled order.
+     * @param code The confirmation code.
+     * @return true if the code was free, false if it is already live (or out of range).
+     */
+    public synchronized boolean reserve(String code) {
+        if (!loaded && !load()) return false;
+        int value = parse(code);
+        if (value < 0 || slot[value] < 0) return false;
+        take(value);
+        return true;
+    }
+
+    /**
+     * @param code A confirmation code.
+     * @return true if the code is currently live (handed out and not released).
+     */
+    public synchronized boolean isLive(String code) {
+        if (!loaded && !load()) return false;
+        int value = parse(code);
+        return value >= 0 && slot[value] < 0;
+    }
+
+    /**
+     * Brings a code to the zero-padded form handed out by {@link #allocate()}.
+     * orders.confirmation_code is an INT column, so a code issued as "0042" is read back as "42".
+     * @param code A confirmation code, as typed by a guest or read from the database.
+     * @return The zero-padded code, or the code unchanged if it is not a number in range.
+     */
+    public String canonical(String code) {
+        int value = parse(code);
+        return value < 0 ? code : format(value);
+    }
+
+    /**
+     * @return Live and total code counts, for the logs.
+     */
+    public synchronized String getStats() {
+        return "Confirmation codes: " + (capacity - freeCount) + " live of " + capacity + " (" + digits + " digits)";
+    }
+
+    // =========================================================================
+    // LOADING
+    // =========================================================================
+
+    /**
+     * Reads the live codes from the database. Called once when the server starts listening,
+     * before any code is handed out.
+     */
+    public synchronized void warmUp() {
+        if (load()) System.out.println("[CodeAllocator] " + getStats());
+    }
+
+    private boolean load() {
+        String query = "SELECT confirmation_code FROM orders WHERE status IN ('APPROVED', 'ACTIVE', 'PENDING') " +
+                       "UNION SELECT confirmation_code FROM waiting_list WHERE status IN ('WAITING', 'NOTIFIED')";
+        resetFreeList();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int value = parse(rs.getString("confirmation_code"));
+                if (value >= 0 && slot[value] >= 0) take(value);
+            }
+        } catch (SQLException e) {
+            System.err.println("[CodeAllocator] Failed to load live codes: " + e.getMessage());
+            return false;
+        }
+        loaded = true;
+        return true;
+    }
+
+    private void resetFreeList() {
+        for (int i = 0; i < capacity; i++) {
+            free[i] = i;
+            slot[i] = i;
+        }
+        freeCount = capacity;
+    }
+
+    /** Removes a free code from the free list (swap with the last free entry). */
+    private void take(int code) {
+        int pos = slot[code];
+        int last = free[--freeCount];
+        free[pos] = last;
+        slot[last] = pos;
+        slot[code] = -1;
+    }
+
+    /** @return The numeric value of a code (with or without leading zeros), or -1 if it is not a code in range. */
+    private int parse(String code) {
+        if (code == null) return -1;
+        code = code.trim();
+        if (code.isEmpty()) return -1;
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+            if (value >= capacity) return -1;
+        }
+        return (int) value;
+    }
+
+    private String format(int code) {
+        StringBuilder sb = new StringBuilder(digits);
+        String s = Integer.toString(code);
+        for (int i = s.length(); i < digits; i++) sb.append('0');
+        return sb.append(s).toString();
+    }
+}
@@ -0,0 +1,246 @@
+package controllers;
+
+import JDBC.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Resident index of every live confirmation code.
+ * <p>
+ * Maps each code held by an APPROVED / ACTIVE / PENDING order or a WAITING / NOTIFIED waiting-list entry
+ * to what the kiosk needs to know about it (order or entry id, user, party size, date, status and the
+ * table assigned to it), so check-in, billing and cancellation start without a lookup query.
+ * <p>
+ * Like the {@link OccupancyEngine}, the index is kept consistent by the controllers: every write that
+ * creates, changes or ends a live order or waiting-list entry must be followed by the matching call here.
+ * When a code stops being live, {@link #retire(String)} also hands it back to the
+ * {@link ConfirmationCodeAllocator}. Codes are keyed in the allocator's zero-padded form, so "42" read
+ * back from the INT column of orders and "0042" typed by a guest find the same entry.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ConfirmationCodeIndex {
+
+    /** The single instance of this class. */
+    private static final ConfirmationCodeIndex instance = new ConfirmationCodeIndex();
+
+    /** Live code -> holder. */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** True once the live codes were read from the database. */
+    private volatile boolean loaded = false;
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private ConfirmationCodeIndex() {}
+
+    /**
+     * @return The singleton ConfirmationCodeIndex instance.
+     */
+    public static ConfirmationCodeIndex getInstance() {
+        return instance;
+    }
+
+    // =========================================================================
+    // ENTRY
+    // =========================================================================
+
+    /**
+     * Immutable snapshot of the order or waiting-list entry holding a code.
+     * Changes are made by replacing the entry with a modified copy.
+     */
+    public static final class Entry {
+        private final boolean waiting;
+        private final int id;
+        private final int userId;
+        private final int diners;
+        private final LocalDate date;
+        private final String status;
+        private final int tableId;
+        private final int tableSeats;
+        private final String userType;
+
+        /**
+         * @param waiting True for a waiting-list entry, false for an order.
+         * @param id Order number or waiting id.
+         * @param userId Owner of the order or entry.
+         * @param diners Size of the party.
+         * @param date Order date or requested date.
+         * @param status Current status.
+         * @param tableId Table reserved for / occupied by the party, or -1.
+         * @param tableSeats Seats of that table, or 0.
+         * @param userType CASUAL / SUBSCRIBER, or null if not known yet.
+         */
+        public Entry(boolean waiting, int id, int userId, int diners, LocalDate date, String status,
+                     int tableId, int tableSeats, String userType) {
+            this.waiting = waiting;
+            this.id = id;
+            this.userId = userId;
+            this.diners = diners;
+            this.date = date;
+            this.status = status;
+            this.tableId = tableId;
+            this.tableSeats = tableSeats;
+            this.userType = userType;
+        }
+
+        /** @return true for a waiting-list entry, false for an order. */
+        public boolean isWaiting() { return waiting; }
+
+        /** @return Order number or waiting id. */
+        public int getId() { return id; }
+
+        /** @return Owner of the order or entry. */
+        public int getUserId() { return userId; }
+
+        /** @return Size of the party. */
+        public int getDiners() { return diners; }
+
+        /** @return Order date or requested date. */
+        public LocalDate getDate() { return date; }
+
+        /** @return Current status. */
+        public String getStatus() { return status; }
+
+        /** @return Table reserved for / occupied by the party, or -1. */
+        public int getTableId() { return tableId; }
+
+        /** @return Seats of the assigned table, or 0. */
+        public int getTableSeats() { return tableSeats; }
+
+        /** @return CASUAL / SUBSCRIBER, or null if not known yet. */
+        public String getUserType() { return userType; }
+
+        /** @return A copy with another status. */
+        public Entry withStatus(String newStatus) {
+            return new Entry(waiting, id, userId, diners, date, newStatus, tableId, tableSeats, userType);
+        }
+
+        /** @return A copy with another assigned table. */
+        public Entry withTable(int newTableId, int newTableSeats) {
+            return new Entry(waiting, id, userId, diners, date, status, newTableId, newTableSeats, userType);
+        }
+
+        /** @return A copy with the user type filled in. */
+        public Entry withUserType(String newUserType) {
+            return new Entry(waiting, id, userId, diners, date, status, tableId, tableSeats, newUserType);
+        }
+    }
+
+    // =========================================================================
+    // LOOKUP AND UPDATES
+    // =========================================================================
+
+    /**
+     * @param code A confirmation code.
+     * @return The live order or waiting-list entry holding it, or null if the code is not live.
+     */
+    public Entry get(String code) {
+        if (code == null) return null;
+        if (!loaded) warmUp();
+        return entries.get(key(code));
+    }
+
+    /**
+     * Records a new live order or waiting-list entry (or replaces the one holding the code).
+     */
+    public void put(String code, Entry entry) {
+        if (code != null && entry != null) entries.put(key(code), entry);
+    }
+
+    /**
+     * Replaces the entry holding a code with a modified copy, if the code is live.
+     * @param code The confirmation code.
+     * @param change Function producing the new entry.
+     */
+    public void update(String code, UnaryOperator<Entry> change) {
+        if (code != null) entries.computeIfPresent(key(code), (k, e) -> change.apply(e));
+    }
+
+    /**
+     * Drops a code whose order was finished or cancelled, or whose waiting-list entry was cancelled,
+     * and gives the code back to the allocator.
+     * @param code The confirmation code.
+     */
+    public void retire(String code) {
+        if (code == null) return;
+        entries.remove(key(code));
+        ConfirmationCodeAllocator.getInstance().release(code);
+    }
+
+    /**
+     * @return Number of live codes, for the logs.
+     */
+    public String getStats() {
+        return "Code index: " + entries.size() + " live codes";
+    }
+
+    // =========================================================================
+    // LOADING
+    // =========================================================================
+
+    /**
+     * Loads every live order and waiting-list entry with its user type and assigned table.
+     * Called once when the server starts listening; entries recorded before the load are kept.
+     */
+    public synchronized void warmUp() {
+        if (loaded) return;
+        // An ACTIVE order sits at an OCCUPIED table, a NOTIFIED entry holds a RESERVED table (both linked by user)
+        String orders = "SELECT o.order_number, o.user_id, o.num_of_diners, o.order_date, o.status, o.confirmation_code, " +
+                        "u.user_type, t.table_id, t.seats " +
+                        "FROM orders o " +
+                        "LEFT JOIN users u ON o.user_id = u.user_id " +
+                        "LEFT JOIN restaurant_tables t ON o.status = 'ACTIVE' AND t.status = 'OCCUPIED' AND t.user_id = o.user_id " +
+                        "WHERE o.status IN ('APPROVED', 'ACTIVE', 'PENDING')";
+        String waiting = "SELECT w.waiting_id, w.user_id, w.num_of_diners, w.date_requested, w.status, w.confirmation_code, " +
+                         "u.user_type, t.table_id, t.seats " +
+                         "FROM waiting_list w " +
+                         "LEFT JOIN users u ON w.user_id = u.user_id " +
+                         "LEFT JOIN restaurant_tables t ON w.status = 'NOTIFIED' AND t.status = 'RESERVED' AND t.user_id = w.user_id " +
+                         "WHERE w.status IN ('WAITING', 'NOTIFIED')";
+        int count = 0;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(orders);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (index(rs, false, rs.getInt("order_number"), rs.getDate("order_date"))) count++;
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(waiting);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (index(rs, true, rs.getInt("waiting_id"), rs.getDate("date_requested"))) count++;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[CodeIndex] Warm-up failed: " + e.getMessage());
+            return;
+        }
+        loaded = true;
+        System.out.println("[CodeIndex] Indexed " + count + " live codes.");
+    }
+
+    private boolean index(ResultSet rs, boolean isWaiting, int id, java.sql.Date date) throws SQLException {
+        String code = rs.getString("confirmation_code");
+        if (code == null) return false;
+        int tableId = rs.getInt("table_id");
+        if (rs.wasNull()) tableId = -1;
+        Entry entry = new Entry(isWaiting, id, rs.getInt("user_id"), rs.getInt("num_of_diners"),
+                date == null ? null : date.toLocalDate(), rs.getString("status"),
+                tableId, rs.getInt("seats"), rs.getString("user_type"));
+        // Keep anything recorded by a controller since the server started
+        return entries.putIfAbsent(key(code), entry) == null;
+    }
+
+    private static String key(String code) {
+        return ConfirmationCodeAllocator.getInstance().canonical(code);
+    }
+}
@@ -4,12 +4,13 @@ import java.util.ArrayList;
 
 import common.Order;
 import common.User;
-import server.EmailService;
+import server.NotificationDispatcher;
 import server.ServerEventListener;
 
 /**
  * Manages outgoing notifications to users via simulated SMS and real Email.
  * Handles templates for confirmations, alerts, reminders, and cancellations.
+ * Messages are handed to the shared {@link NotificationDispatcher}, which sends them on its worker pool.
  * @author Group 6
  * @version 1.0
  */
@@ -17,6 +18,7 @@ public class NotificationController {
 
     private UserController userController;
     private ServerEventListener serverLogger;
+    private final NotificationDispatcher notifier = NotificationDispatcher.getInstance();
 
     /**
      * Constructor with logger.
@@ -55,7 +57,7 @@ public class NotificationController {
      */
     public void sendReservationConfirmation(int userId, String date, String time, String code, int guests) {
         // 1. Mock SMS (Everyone gets this)
-        System.out.println(">>> [SMS MOCK] To User " + userId + ": Reservation confirmed. Code: " + code);
+        notifier.sendSms("User " + userId, "Reservation confirmed. Code: " + code);
         log("Sending Confirmation to User " + userId + ". Code: " + code);
         // 2. Real Email (Only if User has email & is not Casual)
         User user = userController.getUserById(userId); 
@@ -67,8 +69,8 @@ public class NotificationController {
                           "<p><b>Guests:</b> " + guests + "</p>" +
                           "<p><b>Code:</b> " + code + "</p>";
             
-            // Run in background thread to avoid freezing the server
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, body)).start();
+            // Queued, so the server does not wait for the SMTP server
+            notifier.sendEmail(user.getEmail(), subject, body);
         }
     }
 
@@ -84,7 +86,7 @@ public class NotificationController {
         String msg = "Good news! A table is available and reserved for you for 15 minutes. " +
                      "Please check in using code: " + confirmationCode;
                      
-        System.out.println(">>> [SMS MOCK] To User " + userId + ": " + msg);
+        notifier.sendSms("User " + userId, msg);
 
         User user = userController.getUserById(userId);
         if (shouldSendEmail(user)) {
@@ -103,7 +105,7 @@ public class NotificationController {
                           "<p>Please proceed to the terminal and enter this code to claim your table immediately.</p>" +
                           "</div>";
             
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, body)).start();
+            notifier.sendEmail(user.getEmail(), subject, body);
         }
     }
     
@@ -122,7 +124,7 @@ public class NotificationController {
                           "<p>You are now a registered Subscriber.</p>" +
                           "<p><b>Subscriber ID:</b> " + user.getSubscriberNumber() + "</p>";
             
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, body)).start();
+            notifier.sendEmail(user.getEmail(), subject, body);
         }
     }
     
@@ -153,7 +155,7 @@ public class NotificationController {
             }
             body.append("<p>We look forward to seeing you!</p>");
 
-            new Thread(() -> EmailService.sendEmail(contact, subject, body.toString())).start();
+            notifier.sendEmail(contact, subject, body.toString());
         } else {
             log("Warning: No valid email found for recovery. SMS simulation only.");
         }
@@ -169,8 +171,7 @@ public class NotificationController {
     public void sendTwoHourReminder(String contactInfo, String time) {
     	log("Sending 2-Hour Reminder to: " + contactInfo);
         // 1. Simulation / SMS Log
-        System.out.println(">>> [SIMULATION - SMS SENT] To: " + contactInfo);
-        System.out.println(">>> Message: Reminder! Your reservation is in 2 hours (" + time + ").");
+        notifier.sendSms(contactInfo, "Reminder! Your reservation is in 2 hours (" + time + ").");
 
         // 2. Real Email Logic
         if (contactInfo != null && contactInfo.contains("@")) {
@@ -182,10 +183,8 @@ public class NotificationController {
                           "<p>Please arrive on time to ensure your seating.</p>" +
                           "<br><p>Best regards,<br>Bistro Team</p>";
 
-            // Send in a background thread to prevent blocking the Server Scheduler
-            new Thread(() -> {
-                EmailService.sendEmail(contactInfo, subject, body);
-            }).start();
+            // Queued, so the Server Scheduler does not wait for the SMTP server
+            notifier.sendEmail(contactInfo, subject, body);
         }
     }
     
@@ -200,7 +199,7 @@ public class NotificationController {
         log("Sending Cancellation Notification to User " + userId);
         
         // 1. Mock SMS
-        System.out.println(">>> [SMS MOCK] To User " + userId + ": Reservation " + code + " cancelled.");
+        notifier.sendSms("User " + userId, "Reservation " + code + " cancelled.");
 
         // 2. Real Email
         User user = userController.getUserById(userId);
@@ -210,8 +209,7 @@ public class NotificationController {
                           "<p>Your reservation with confirmation code <b>" + code + "</b> has been successfully cancelled.</p>" +
                           "<p>We hope to see you again soon!</p>";
             
-            // Run in background thread
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, body)).start();
+            notifier.sendEmail(user.getEmail(), subject, body);
         }
     }
     
@@ -226,7 +224,7 @@ public class NotificationController {
         log("Sending 2-Hour Bill Notification to User " + userId);
         
         // 1. Mock SMS
-        System.out.println(">>> [SMS MOCK] To User " + userId + ": Your 2 hours are up. Please checkout. Code: " + code);
+        notifier.sendSms("User " + userId, "Your 2 hours are up. Please checkout. Code: " + code);
 
         // 2. Real Email
         User user = userController.getUserById(userId);
@@ -238,7 +236,7 @@ public class NotificationController {
                           "<p><b>Please proceed to checkout using your code: <span style='color:blue;'>" + code + "</span></b></p>" +
                           "<p>You can pay at the terminal or via the app.</p>";
             
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, body)).start();
+            notifier.sendEmail(user.getEmail(), subject, body);
         }
     }
     
@@ -262,7 +260,7 @@ public class NotificationController {
 
         // 1. Mock SMS
         String msg = isClosed ? "Restaurant closed on " + date : "Restaurant hours changed on " + date;
-        System.out.println(">>> [SMS MOCK] To User " + userId + ": " + msg);
+        notifier.sendSms("User " + userId, msg);
 
         // 2. Real Email
         User user = userController.getUserById(userId);
@@ -283,8 +281,7 @@ public class NotificationController {
             body += "<br><p>Best regards,<br>Bistro Team</p>";
             String finalBody = body;
 
-            // Run in background thread
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, finalBody)).start();        }
+            notifier.sendEmail(user.getEmail(), subject, finalBody);        }
     }
 
     
@@ -304,7 +301,7 @@ public class NotificationController {
         log("Sending System Cancellation to User " + userId);
 
         // 1. Mock SMS
-        System.out.println(">>> [SMS MOCK] To User " + userId + ": Urgent. Your reservation on " + date + " was cancelled due to restaurant changes.");
+        notifier.sendSms("User " + userId, "Urgent. Your reservation on " + date + " was cancelled due to restaurant changes.");
 
         // 2. Real Email
         User user = userController.getUserById(userId);
@@ -318,7 +315,7 @@ public class NotificationController {
                           "<p>We sincerely apologize for the inconvenience.</p>" +
                           "<br><p>Bistro Management</p>";
             
-            new Thread(() -> EmailService.sendEmail(user.getEmail(), subject, body)).start();
+            notifier.sendEmail(user.getEmail(), subject, body);
         }
     }
 
@@ -0,0 +1,655 @@
+package controllers;
+
+import JDBC.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resident, in-memory view of restaurant occupancy used for capacity checks.
+ * <p>
+ * Keeps, per date, a timeline of live bookings (APPROVED / ACTIVE / PENDING) sorted by start minute,
+ * plus the inventory of usable tables (every table that is not BROKEN) sorted by seat count.
+ * A capacity question ("can a party of N sit at T for 120 minutes") is answered from memory
+ * using the same "Best Fit" simulation that used to run against the database.
+ * <p>
+ * The engine is kept consistent by the controllers that change orders or tables:
+ * every successful write to the orders / restaurant_tables tables must be followed by the matching call here.
+ * Dates are loaded lazily from the database on first use, and all upcoming dates are warmed at server start.
+ * @author Group 6
+ * @version 1.0
+ */
+public class OccupancyEngine {
+
+    /** Length of a seating in minutes. */
+    public static final int MEAL_DURATION = 120;
+
+    /**
+     * Ids of provisional holds ({@link #tryReserve}) start here, above any real order number,
+     * so a hold counts as the newest booking of its day.
+     */
+    private static final int HOLD_BASE = 2_000_000_000;
+
+    /** Statuses that occupy a table for the duration of the meal. */
+    private static final String LIVE_STATUSES = "('APPROVED', 'ACTIVE', 'PENDING')";
+
+    /** The single instance of this class. */
+    private static final OccupancyEngine instance = new OccupancyEngine();
+
+    /** Loaded dates and their booking timelines. */
+    private final Map<LocalDate, DayTimeline> days = new ConcurrentHashMap<>();
+
+    /** Reverse index: live order number -> date it is booked on. */
+    private final Map<Integer, LocalDate> dateByOrder = new ConcurrentHashMap<>();
+
+    /** Reverse index: confirmation code -> live order number. */
+    private final Map<String, Integer> orderByCode = new ConcurrentHashMap<>();
+
+    /** Reverse index: live order number -> confirmation code. */
+    private final Map<Integer, String> codeByOrder = new ConcurrentHashMap<>();
+
+    /** Seat counts of all usable tables, sorted ascending. Replaced as a whole on table changes. */
+    private volatile int[] tableSeats = null;
+
+    /** Serializes day loading against mutations so a concurrent load can not lose an update. */
+    private final Object loadLock = new Object();
+
+    /** Next provisional hold id (offset from HOLD_BASE). */
+    private final AtomicInteger nextHold = new AtomicInteger();
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private OccupancyEngine() {}
+
+    /**
+     * @return The singleton OccupancyEngine instance.
+     */
+    public static OccupancyEngine getInstance() {
+        return instance;
+    }
+
+    // =========================================================================
+    // DAY TIMELINE
+    // =========================================================================
+
+    /**
+     * Bookings of a single date, stored in parallel primitive arrays sorted by start minute
+     * (ties broken by order number). All access goes through the object's monitor.
+     */
+    static final class DayTimeline {
+        private int size = 0;
+        private int[] starts = new int[16];
+        private int[] orderNumbers = new int[16];
+        private int[] diners = new int[16];
+
+        /** Inserts or replaces the booking with the given order number. */
+        synchronized void put(int orderNumber, int startMinute, int numOfDiners) {
+            removeInternal(orderNumber);
+            if (size == starts.length) {
+                int newCap = size * 2;
+                starts = Arrays.copyOf(starts, newCap);
+                orderNumbers = Arrays.copyOf(orderNumbers, newCap);
+                diners = Arrays.copyOf(diners, newCap);
+            }
+            int pos = size;
+            while (pos > 0 && (starts[pos - 1] > startMinute
+                    || (starts[pos - 1] == startMinute && orderNumbers[pos - 1] > orderNumber))) {
+                pos--;
+            }
+            System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+            System.arraycopy(orderNumbers, pos, orderNumbers, pos + 1, size - pos);
+            System.arraycopy(diners, pos, diners, pos + 1, size - pos);
+            starts[pos] = startMinute;
+            orderNumbers[pos] = orderNumber;
+            diners[pos] = numOfDiners;
+            size++;
+        }
+
+        /** Removes the booking with the given order number, if present. */
+        synchronized void remove(int orderNumber) {
+            removeInternal(orderNumber);
+        }
+
+        private void removeInternal(int orderNumber) {
+            for (int i = 0; i < size; i++) {
+                if (orderNumbers[i] == orderNumber) {
+                    int tail = size - i - 1;
+                    System.arraycopy(starts, i + 1, starts, i, tail);
+                    System.arraycopy(orderNumbers, i + 1, orderNumbers, i, tail);
+                    System.arraycopy(diners, i + 1, diners, i, tail);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        /** @return Index of the first booking starting at or after the given minute. */
+        private int lowerBound(int minute) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < minute) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * Collects the bookings overlapping a meal that starts at startMinute, i.e. bookings starting
+         * strictly within 120 minutes before or after it, ordered by order number (booking order).
+         * @param referenceOrderId If not -1, only bookings with a smaller order number are included.
+         * @return Array of {start, diners} pairs flattened as [s0, d0, s1, d1, ...].
+         */
+        synchronized int[] overlapping(int startMinute, int referenceOrderId) {
+            int from = lowerBound(startMinute - MEAL_DURATION + 1);
+            int to = lowerBound(startMinute + MEAL_DURATION);
+            return collect(starts, orderNumbers, diners, from, to, referenceOrderId);
+        }
+
+        /**
+         * @return A consistent copy of the timeline as {starts, orderNumbers, diners}, for sweeps.
+         */
+        synchronized int[][] snapshot() {
+            return new int[][] {
+                Arrays.copyOf(starts, size), Arrays.copyOf(orderNumbers, size), Arrays.copyOf(diners, size)
+            };
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Flattens the bookings in index range [from, to) into {start, diners} pairs in booking order.
+     */
+    private static int[] collect(int[] starts, int[] orderNumbers, int[] diners, int from, int to, int referenceOrderId) {
+        int count = 0;
+        // Pack (orderNumber, index) so a primitive sort yields booking order (like the primary key scan)
+        long[] byOrder = new long[Math.max(0, to - from)];
+        for (int i = from; i < to; i++) {
+            if (referenceOrderId == -1 || orderNumbers[i] < referenceOrderId) {
+                byOrder[count++] = ((long) orderNumbers[i] << 32) | i;
+            }
+        }
+        Arrays.sort(byOrder, 0, count);
+        int[] result = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            int idx = (int) byOrder[i];
+            result[2 * i] = starts[idx];
+            result[2 * i + 1] = diners[idx];
+        }
+        return result;
+    }
+
+    // =========================================================================
+    // LOADING
+    // =========================================================================
+
+    /**
+     * Loads the table inventory and every live booking from today onward.
+     * Called once when the server starts listening.
+     */
+    public void warmUp() {
+        reloadTables();
+
+        String query = "SELECT order_number, order_date, order_time, num_of_diners, confirmation_code FROM orders " +
+                       "WHERE order_date >= CURDATE() AND status IN " + LIVE_STATUSES;
+        int count = 0;
+        synchronized (loadLock) {
+            // Build the timelines aside so readers never observe a half-loaded date
+            Map<LocalDate, DayTimeline> warmed = new HashMap<>();
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement ps = conn.prepareStatement(query);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate date = rs.getDate("order_date").toLocalDate();
+                    if (days.containsKey(date)) continue; // Already loaded on demand, and kept up to date since
+                    DayTimeline day = warmed.computeIfAbsent(date, d -> new DayTimeline());
+                    index(day, date, rs.getInt("order_number"), toMinute(rs.getTime("order_time")),
+                          rs.getInt("num_of_diners"), rs.getString("confirmation_code"));
+                    count++;
+                }
+            } catch (SQLException e) {
+                System.err.println("[OccupancyEngine] Warm-up failed: " + e.getMessage());
+                return;
+            }
+            days.putAll(warmed);
+        }
+        int[] seats = tableSeats;
+        System.out.println("[OccupancyEngine] Warmed " + count + " bookings over " + days.size() + " dates, "
+                + (seats == null ? 0 : seats.length) + " tables.");
+    }
+
+    /**
+     * Re-reads the usable table inventory. Must be called after any table add / update / remove.
+     * @return true if existing bookings may no longer fit, i.e. the new inventory does not dominate the old one
+     * (or the inventory could not be read). false means every previously feasible day is still feasible.
+     */
+    public boolean reloadTables() {
+        int[] oldSeats = tableSeats;
+        String query = "SELECT seats FROM restaurant_tables WHERE status != 'BROKEN' ORDER BY seats ASC";
+        int[] seats = new int[16];
+        int count = 0;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (count == seats.length) seats = Arrays.copyOf(seats, count * 2);
+                seats[count++] = rs.getInt("seats");
+            }
+            tableSeats = Arrays.copyOf(seats, count);
+        } catch (SQLException e) {
+            System.err.println("[OccupancyEngine] Failed to load tables: " + e.getMessage());
+            return true;
+        }
+        return oldSeats == null || !dominates(tableSeats, oldSeats);
+    }
+
+    /**
+     * Checks if every table of the old inventory can be matched to a distinct table of the new inventory
+     * with at least as many seats. Since best-fit seating on nested table sizes is optimal, any group
+     * arrangement that fit before still fits in that case.
+     * @param newSeats New seat counts, sorted ascending.
+     * @param oldSeats Old seat counts, sorted ascending.
+     */
+    static boolean dominates(int[] newSeats, int[] oldSeats) {
+        if (newSeats.length < oldSeats.length) return false;
+        // Match largest to largest
+        for (int k = 1; k <= oldSeats.length; k++) {
+            if (newSeats[newSeats.length - k] < oldSeats[oldSeats.length - k]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the timeline of a date, loading it from the database the first time it is needed.
+     * @return The timeline, or null if the date could not be loaded.
+     */
+    private DayTimeline getDay(LocalDate date) {
+        DayTimeline day = days.get(date);
+        if (day != null) return day;
+
+        synchronized (loadLock) {
+            day = days.get(date);
+            if (day != null) return day;
+
+            String query = "SELECT order_number, order_time, num_of_diners, confirmation_code FROM orders " +
+                           "WHERE order_date = ? AND status IN " + LIVE_STATUSES;
+            DayTimeline loaded = new DayTimeline();
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement ps = conn.prepareStatement(query)) {
+                ps.setDate(1, Date.valueOf(date));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        index(loaded, date, rs.getInt("order_number"), toMinute(rs.getTime("order_time")),
+                              rs.getInt("num_of_diners"), rs.getString("confirmation_code"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("[OccupancyEngine] Failed to load " + date + ": " + e.getMessage());
+                return null;
+            }
+            days.put(date, loaded);
+            return loaded;
+        }
+    }
+
+    private int[] getTableSeats() {
+        int[] seats = tableSeats;
+        if (seats == null) {
+            reloadTables();
+            seats = tableSeats;
+        }
+        return seats;
+    }
+
+    // =========================================================================
+    // CAPACITY QUERIES
+    // =========================================================================
+
+    /**
+     * Checks if a party can be seated for a full meal.
+     * LOGIC: "Best Fit" Bin Packing on a Timeline. The requested party is seated first, then every
+     * overlapping booking in booking order, each taking the smallest free table that fits.
+     * The check runs at the requested start and at every overlapping booking start during the meal.
+     * @param date Date of the meal.
+     * @param time Start time of the meal.
+     * @param requestedDiners Size of the party.
+     * @param referenceOrderId If -1, counts ALL live orders.
+     * If > 0, ONLY counts orders with ID &lt; referenceOrderId (First-Come-First-Served validation).
+     * @return true if every group fits at every check point.
+     */
+    public boolean canSeat(Date date, Time time, int requestedDiners, int referenceOrderId) {
+        int[] seats = getTableSeats();
+        if (seats == null || seats.length == 0) return false;
+
+        DayTimeline day = getDay(date.toLocalDate());
+        if (day == null) return false;
+
+        return fits(seats, day.overlapping(toMinute(time), referenceOrderId), toMinute(time), requestedDiners);
+    }
+
+    /**
+     * Sweeps a whole day once and returns the start times at which the party can be seated.
+     * Candidates lie on a grid of {@code step} minutes through the requested time, between opening and
+     * closing time (inclusive). The requested time itself is excluded. Results are ranked by distance from
+     * the requested time (earlier first on ties).
+     * @param date Date of the meal.
+     * @param targetMinute Requested start (minutes after midnight).
+     * @param openMinute Opening time (minutes after midnight).
+     * @param closeMinute Closing time (minutes after midnight).
+     * @param step Grid spacing in minutes.
+     * @param diners Size of the party.
+     * @param limit Maximum number of results.
+     * @return Feasible start minutes, best first.
+     */
+    public int[] findAvailableSlots(Date date, int targetMinute, int openMinute, int closeMinute,
+                                    int step, int diners, int limit) {
+        int[] seats = getTableSeats();
+        if (seats == null || seats.length == 0 || step <= 0 || limit <= 0) return new int[0];
+
+        DayTimeline day = getDay(date.toLocalDate());
+        if (day == null) return new int[0];
+
+        int[][] snap = day.snapshot();
+        int[] starts = snap[0];
+        int[] orderNumbers = snap[1];
+        int[] diners0 = snap[2];
+
+        // First grid point at or after opening time
+        int first = targetMinute - Math.floorDiv(targetMinute - openMinute, step) * step;
+        int[] feasible = new int[Math.max(0, (closeMinute - first) / step + 1)];
+        int found = 0;
+
+        // Two pointers over the sorted timeline: [lo, hi) = bookings starting within 120 minutes of the slot
+        int lo = 0, hi = 0;
+        for (int slot = first; slot <= closeMinute; slot += step) {
+            while (lo < starts.length && starts[lo] <= slot - MEAL_DURATION) lo++;
+            while (hi < starts.length && starts[hi] < slot + MEAL_DURATION) hi++;
+            if (slot == targetMinute) continue;
+
+            if (fits(seats, collect(starts, orderNumbers, diners0, lo, hi, -1), slot, diners)) {
+                feasible[found++] = slot;
+            }
+        }
+
+        // Rank by distance from the requested time; pack (distance, slot) for a primitive sort
+        long[] ranked = new long[found];
+        for (int i = 0; i < found; i++) {
+            ranked[i] = ((long) Math.abs(feasible[i] - targetMinute) << 32) | feasible[i];
+        }
+        Arrays.sort(ranked);
+        int[] result = new int[Math.min(limit, found)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) ranked[i];
+        }
+        return result;
+    }
+
+    /**
+     * Re-solves the given dates against the current table inventory using "First-Come-First-Served":
+     * bookings are replayed in order-number order and each one must fit next to the earlier survivors.
+     * Days are solved independently in parallel on the common fork-join pool.
+     * The engine itself is not modified; the caller cancels the returned orders and removes them.
+     * @param dates Dates to re-check.
+     * @return Order numbers that no longer fit, ascending.
+     */
+    public int[] findDisplacedBookings(Collection<LocalDate> dates) {
+        int[] seats = getTableSeats();
+        if (seats == null) return new int[0];
+
+        return dates.parallelStream()
+                .map(this::getDay)
+                .filter(day -> day != null)
+                .flatMapToInt(day -> Arrays.stream(solveDay(seats, day.snapshot())))
+                .filter(orderNumber -> orderNumber < HOLD_BASE) // Holds are not orders yet
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * FCFS replay of one day.
+     * @param snap Timeline snapshot {starts, orderNumbers, diners}.
+     * @return Order numbers that could not be seated.
+     */
+    private static int[] solveDay(int[] seats, int[][] snap) {
+        int[] starts = snap[0];
+        int[] orderNumbers = snap[1];
+        int[] diners = snap[2];
+        int n = starts.length;
+
+        long[] byOrder = new long[n];
+        for (int i = 0; i < n; i++) byOrder[i] = ((long) orderNumbers[i] << 32) | i;
+        Arrays.sort(byOrder);
+
+        // Survivors in booking order, as flattened {start, diners} pairs
+        int[] accepted = new int[n * 2];
+        int acceptedCount = 0;
+        int[] displaced = new int[n];
+        int displacedCount = 0;
+
+        for (long packed : byOrder) {
+            int idx = (int) packed;
+            int start = starts[idx];
+
+            int[] overlaps = new int[acceptedCount * 2];
+            int k = 0;
+            for (int j = 0; j < acceptedCount; j++) {
+                int s = accepted[2 * j];
+                if (s > start - MEAL_DURATION && s < start + MEAL_DURATION) {
+                    overlaps[k++] = s;
+                    overlaps[k++] = accepted[2 * j + 1];
+                }
+            }
+
+            if (fits(seats, Arrays.copyOf(overlaps, k), start, diners[idx])) {
+                accepted[2 * acceptedCount] = start;
+                accepted[2 * acceptedCount + 1] = diners[idx];
+                acceptedCount++;
+            } else {
+                displaced[displacedCount++] = orderNumbers[idx];
+            }
+        }
+        return Arrays.copyOf(displaced, displacedCount);
+    }
+
+    /**
+     * Runs the best-fit simulation for one request against its overlapping bookings.
+     * @param seats Usable table sizes, sorted ascending.
+     * @param overlaps Flattened {start, diners} pairs in booking order.
+     * @param reqStart Requested start minute.
+     * @param requestedDiners Size of the requested party.
+     */
+    static boolean fits(int[] seats, int[] overlaps, int reqStart, int requestedDiners) {
+        int reqEnd = reqStart + MEAL_DURATION;
+        boolean[] used = new boolean[seats.length];
+
+        if (!seatAt(seats, used, overlaps, reqStart, requestedDiners)) return false;
+
+        for (int i = 0; i < overlaps.length; i += 2) {
+            int point = overlaps[i];
+            if (point > reqStart && point < reqEnd) {
+                if (!seatAt(seats, used, overlaps, point, requestedDiners)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Seats the request plus every booking active at the given minute.
+     * @return false if some group finds no free table.
+     */
+    private static boolean seatAt(int[] seats, boolean[] used, int[] overlaps, int point, int requestedDiners) {
+        Arrays.fill(used, false);
+        if (!take(seats, used, requestedDiners)) return false;
+        for (int i = 0; i < overlaps.length; i += 2) {
+            int start = overlaps[i];
+            if (point >= start && point < start + MEAL_DURATION) {
+                if (!take(seats, used, overlaps[i + 1])) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the smallest free table that fits the group as used.
+     */
+    private static boolean take(int[] seats, boolean[] used, int groupSize) {
+        int lo = 0, hi = seats.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seats[mid] < groupSize) lo = mid + 1; else hi = mid;
+        }
+        for (int i = lo; i < seats.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // =========================================================================
+    // PROVISIONAL HOLDS (check and record as one step)
+    // =========================================================================
+
+    /**
+     * Checks if a party can be seated and, if so, immediately takes the capacity with a provisional hold,
+     * so two concurrent requests can not both be granted the last fitting slot.
+     * The caller must end the hold with {@link #confirmHold} once the order row is inserted,
+     * or with {@link #releaseHold} if the reservation is not made.
+     * @param date Date of the meal.
+     * @param time Start time of the meal.
+     * @param requestedDiners Size of the party.
+     * @return The hold id, or -1 if the party does not fit (or the date could not be loaded).
+     */
+    public int tryReserve(Date date, Time time, int requestedDiners) {
+        int[] seats = getTableSeats();
+        if (seats == null || seats.length == 0) return -1;
+
+        DayTimeline day = getDay(date.toLocalDate());
+        if (day == null) return -1;
+
+        int start = toMinute(time);
+        synchronized (day) {
+            if (!fits(seats, day.overlapping(start, -1), start, requestedDiners)) return -1;
+            int hold = HOLD_BASE + Math.floorMod(nextHold.getAndIncrement(), Integer.MAX_VALUE - HOLD_BASE);
+            day.put(hold, start, requestedDiners);
+            return hold;
+        }
+    }
+
+    /**
+     * Replaces a provisional hold with the order that was inserted for it.
+     */
+    public void confirmHold(int hold, int orderNumber, Date date, Time time, int numOfDiners, String code) {
+        LocalDate key = date.toLocalDate();
+        synchronized (loadLock) {
+            forget(orderNumber);
+            DayTimeline day = getDay(key);
+            if (day == null) return;
+            synchronized (day) {
+                day.remove(hold);
+                index(day, key, orderNumber, toMinute(time), numOfDiners, code);
+            }
+        }
+    }
+
+    /**
+     * Gives back the capacity of a hold whose reservation was not made.
+     */
+    public void releaseHold(int hold, Date date) {
+        DayTimeline day = days.get(date.toLocalDate());
+        if (day != null) day.remove(hold);
+    }
+
+    // =========================================================================
+    // MUTATIONS (call after the matching DB write succeeded)
+    // =========================================================================
+
+    /**
+     * Records a new live booking (created reservation or walk-in seating).
+     */
+    public void addBooking(int orderNumber, Date date, Time time, int numOfDiners, String code) {
+        LocalDate key = date.toLocalDate();
+        synchronized (loadLock) {
+            forget(orderNumber);
+            DayTimeline day = getDay(key);
+            if (day != null) {
+                index(day, key, orderNumber, toMinute(time), numOfDiners, code);
+            }
+        }
+    }
+
+    /**
+     * Applies an edited order. Live statuses move / resize the booking, any other status removes it.
+     */
+    public void updateBooking(int orderNumber, Date date, Time time, int numOfDiners, String status, String code) {
+        if ("APPROVED".equals(status) || "ACTIVE".equals(status) || "PENDING".equals(status)) {
+            if (code == null) code = codeByOrder.get(orderNumber);
+            addBooking(orderNumber, date, time, numOfDiners, code);
+        } else {
+            removeBooking(orderNumber);
+        }
+    }
+
+    /**
+     * Removes a booking that was cancelled or finished.
+     */
+    public void removeBooking(int orderNumber) {
+        synchronized (loadLock) {
+            forget(orderNumber);
+        }
+    }
+
+    /**
+     * Removes the live booking holding the given confirmation code.
+     */
+    public void removeBookingByCode(String code) {
+        if (code == null) return;
+        synchronized (loadLock) {
+            Integer orderNumber = orderByCode.get(code);
+            if (orderNumber != null) forget(orderNumber);
+        }
+    }
+
+    private void index(DayTimeline day, LocalDate date, int orderNumber, int startMinute, int numOfDiners, String code) {
+        day.put(orderNumber, startMinute, numOfDiners);
+        dateByOrder.put(orderNumber, date);
+        if (code != null) {
+            orderByCode.put(code, orderNumber);
+            codeByOrder.put(orderNumber, code);
+        }
+    }
+
+    private void forget(int orderNumber) {
+        LocalDate date = dateByOrder.remove(orderNumber);
+        if (date != null) {
+            DayTimeline day = days.get(date);
+            if (day != null) day.remove(orderNumber);
+        }
+        String code = codeByOrder.remove(orderNumber);
+        if (code != null) orderByCode.remove(code, orderNumber);
+    }
+
+    /**
+     * Converts a time to minutes after midnight.
+     */
+    static int toMinute(Time time) {
+        LocalTime t = time.toLocalTime();
+        return t.getHour() * 60 + t.getMinute();
+    }
+}
@@ -7,21 +7,65 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.time.LocalTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages payment processing, bill calculation, and closing of orders.
+ * <p>
+ * A checkout commits the closed order and the freed table in one transaction and returns.
+ * Promoting the next waiting party runs afterwards on a single background thread, and a casual
+ * user is only marked for the deferred {@link CasualUserCleanup}. The latency of every stage is
+ * recorded for the Server UI.
  * @author Group 6
  * @version 1.0
  */
 public class PaymentController {
 
-    private Connection conn;
+    /** Stages of a checkout, in the order they run. */
+    private enum Stage { COMMIT, WAITING_LIST }
+
+    /** Runs the post-commit stages, one checkout after the other. */
+    private final ExecutorService postCommit;
+
+    /** Called after the post-commit stage changed tables or the waiting list. May be null. */
+    private final Runnable onBackgroundChange;
+
+    // --- Metrics, indexed by Stage.ordinal() ---
+    private final AtomicLong[] stageCount = new AtomicLong[Stage.values().length];
+    private final AtomicLong[] stageNanos = new AtomicLong[Stage.values().length];
+    private final AtomicLong[] stageMaxNanos = new AtomicLong[Stage.values().length];
+    private final AtomicLong[] stageFailures = new AtomicLong[Stage.values().length];
 
     /**
-     * Initializes the controller with a database connection.
+     * Initializes the controller.
+     * Database connections are borrowed from the pool per operation.
      */
     public PaymentController() {
-        this.conn = DatabaseConnection.getInstance().getConnection();
+        this(null);
+    }
+
+    /**
+     * Initializes the controller.
+     * @param onBackgroundChange Called after the post-commit stage changed data, so the server can
+     *                           publish the new versions; may be null.
+     */
+    public PaymentController(Runnable onBackgroundChange) {
+        this.onBackgroundChange = onBackgroundChange;
+        this.postCommit = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "checkout-post-commit");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < stageCount.length; i++) {
+            stageCount[i] = new AtomicLong();
+            stageNanos[i] = new AtomicLong();
+            stageMaxNanos[i] = new AtomicLong();
+            stageFailures[i] = new AtomicLong();
+        }
     }
 
     /**
@@ -32,22 +76,36 @@ public class PaymentController {
      * @return Object array [Code, Price, UserType] or null if not found.
      */
     public Object[] getBillData(String code) { // Renamed to getBillData
-        if (conn == null) return null;
-
-        String query = "SELECT u.user_type FROM orders o " +
-                       "JOIN users u ON o.user_id = u.user_id " +
-                       "WHERE o.confirmation_code = ? AND o.status = 'ACTIVE'";
-
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
-            ps.setString(1, code);
-            ResultSet rs = ps.executeQuery();
-            
-            if (rs.next()) {
-                String userType = rs.getString("user_type");
-                double basePrice = 250.0; // Standard fixed price
-                
-                // Return data package: [Code, Price, UserType]
-                return new Object[]{code, basePrice, userType};
+        // The active order is resolved from memory (see ConfirmationCodeIndex)
+        ConfirmationCodeIndex.Entry entry = ConfirmationCodeIndex.getInstance().get(code);
+        if (entry == null || entry.isWaiting() || !"ACTIVE".equals(entry.getStatus())) return null;
+
+        String userType = getUserType(code, entry);
+        if (userType == null) return null;
+        double basePrice = 250.0; // Standard fixed price
+
+        // Return data package: [Code, Price, UserType]
+        return new Object[]{code, basePrice, userType};
+    }
+
+    /**
+     * Returns the user type of an indexed order, reading it once from the users table
+     * if the order was indexed without it.
+     * @return The user type, or null if the user can not be read.
+     */
+    private String getUserType(String code, ConfirmationCodeIndex.Entry entry) {
+        if (entry.getUserType() != null) return entry.getUserType();
+
+        String query = "SELECT user_type FROM users WHERE user_id = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, entry.getUserId());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    String userType = rs.getString("user_type");
+                    ConfirmationCodeIndex.getInstance().update(code, e -> e.withUserType(userType));
+                    return userType;
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -56,42 +114,25 @@ public class PaymentController {
     }
     
     /**
-     * Processes the bill payment, frees the table, and closes the order.
-     * Also triggers the waiting list mechanism to notify the next customer.
+     * Processes the bill payment: closes the order and frees the table in one transaction.
+     * The waiting list is notified after the commit, in the background; a casual user is marked for cleanup.
      * @param code The confirmation code.
      * @return true if payment successful, false otherwise.
      */
     public boolean payBill(String code) {
-        if (conn == null) return false;
-
-        int userId = -1;
-        String userType = "";
-        int seatsFreed = 0;
+        long start = System.nanoTime();
 
         // ==========================================================
-        // STEP 1: Find User, Role, and Table Size (Combined for efficiency)
+        // STEP 1: Find User, Role, and Table Size (from the code index, no query)
         // ==========================================================
-        String findDataSql = "SELECT o.user_id, u.user_type, t.seats " +
-                             "FROM orders o " +
-                             "JOIN users u ON o.user_id = u.user_id " +
-                             "JOIN restaurant_tables t ON o.user_id = t.user_id " +
-                             "WHERE o.confirmation_code = ? AND o.status = 'ACTIVE'";
-
-        try (PreparedStatement ps = conn.prepareStatement(findDataSql)) {
-            ps.setString(1, code);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    userId = rs.getInt("user_id");
-                    userType = rs.getString("user_type");
-                    seatsFreed = rs.getInt("seats");
-                } else {
-                    return false;
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        ConfirmationCodeIndex.Entry entry = ConfirmationCodeIndex.getInstance().get(code);
+        if (entry == null || entry.isWaiting() || !"ACTIVE".equals(entry.getStatus()) || entry.getTableId() == -1) {
             return false;
         }
+        int userId = entry.getUserId();
+        String userType = getUserType(code, entry);
+        int seatsFreed = entry.getTableSeats();
+        if (userType == null) return false;
 
         // ==========================================================
         // STEP 2: Calculate Price & Apply Subscriber Discount
@@ -105,66 +146,115 @@ public class PaymentController {
         }
 
         // ==========================================================
-        // STEP 3: Free the Table & Trigger Waiting List
-        // ==========================================================
-        String freeTable = "UPDATE restaurant_tables SET status = 'AVAILABLE', user_id = NULL WHERE user_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(freeTable)) {
-            ps.setInt(1, userId);
-            ps.executeUpdate();
-            
-            // AUTOMATION: Notify the next group that fits this specific table size
-            WaitingListController wlController = new WaitingListController();
-            wlController.notifyNextInLine(seatsFreed); 
-        } catch (SQLException e) { e.printStackTrace(); }
-
-        // ==========================================================
-        // STEP 4: Close Order & Record Leaving Time
+        // STEP 3: Close Order & Free the Table (one transaction)
         // ==========================================================
         String closeOrder = "UPDATE orders SET status = 'FINISHED', user_id = NULL, actual_arrival_time = actual_arrival_time " + 
-                            "WHERE confirmation_code = ?";
+                            "WHERE confirmation_code = ? AND status = 'ACTIVE'";
         // Note: Your DB schema uses 'actual_arrival_time' but the requirements ask for arrival/departure.
         // Ensure your table has a column for 'leaving_time' or similar for the visual reports.
-        try (PreparedStatement ps = conn.prepareStatement(closeOrder)) {
-            ps.setString(1, code);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        String freeTable = "UPDATE restaurant_tables SET status = 'AVAILABLE', user_id = NULL WHERE user_id = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement psClose = conn.prepareStatement(closeOrder);
+                 PreparedStatement psFree = conn.prepareStatement(freeTable)) {
+                psClose.setString(1, code);
+                if (psClose.executeUpdate() == 0) {
+                    conn.rollback(); // Paid by someone else meanwhile
+                    recordStage(Stage.COMMIT, start, false);
+                    return false;
+                }
+                psFree.setInt(1, userId);
+                psFree.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            recordStage(Stage.COMMIT, start, false);
+            return false;
+        }
+        OccupancyEngine.getInstance().removeBookingByCode(code);
+        ConfirmationCodeIndex.getInstance().retire(code); // Free for reuse
+        recordStage(Stage.COMMIT, start, true);
 
-     // ==========================================================
-        // STEP 5: Cleanup Casual User
+        // ==========================================================
+        // STEP 4: Post-commit stage (waiting list); casual users are removed later, in batches
         // ==========================================================
         if ("CASUAL".equalsIgnoreCase(userType)) {
-            try {
-                // 1. Unlink ALL orders associated with this user (Active, Cancelled, Finished)
-                // We set user_id to NULL so the history remains, but the link to the user is cut.
-                String unlinkOrders = "UPDATE orders SET user_id = NULL WHERE user_id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(unlinkOrders)) {
-                    ps.setInt(1, userId);
-                    ps.executeUpdate();
-                }
+            CasualUserCleanup.getInstance().markEligible(userId);
+        }
+        try {
+            postCommit.execute(() -> runPostCommit(seatsFreed));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Checkout: server stopping, waiting list not notified for " + code);
+        }
+        return true;
+    }
 
-                // 2. Unlink any Waiting List entries (just in case)
-                String unlinkWaiting = "UPDATE waiting_list SET user_id = NULL WHERE user_id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(unlinkWaiting)) {
-                    ps.setInt(1, userId);
-                    ps.executeUpdate();
-                }
+    /**
+     * Runs the post-commit stage of one checkout, then reports the change.
+     */
+    private void runPostCommit(int seatsFreed) {
+        // AUTOMATION: Notify the next group that fits this specific table size
+        long start = System.nanoTime();
+        boolean ok = true;
+        try {
+            new WaitingListController().notifyNextInLine(seatsFreed);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            ok = false;
+        }
+        recordStage(Stage.WAITING_LIST, start, ok);
 
-                // 3. NOW it is safe to delete the user
-                String deleteUser = "DELETE FROM users WHERE user_id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(deleteUser)) {
-                    ps.setInt(1, userId);
-                    ps.executeUpdate();
-                }
-                
-                System.out.println("DEBUG: Casual user " + userId + " cleaned up successfully.");
-                
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+        if (onBackgroundChange != null) onBackgroundChange.run();
+    }
+
+    // ==========================================================
+    // METRICS & SHUTDOWN
+    // ==========================================================
+
+    private void recordStage(Stage stage, long startNanos, boolean ok) {
+        int i = stage.ordinal();
+        long elapsed = System.nanoTime() - startNanos;
+        stageCount[i].incrementAndGet();
+        stageNanos[i].addAndGet(elapsed);
+        stageMaxNanos[i].accumulateAndGet(elapsed, Math::max);
+        if (!ok) stageFailures[i].incrementAndGet();
+    }
+
+    /**
+     * @return Count, average / max latency and failures per checkout stage, one line each.
+     */
+    public String getCheckoutReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-22s %8s %9s %9s %8s%n", "Checkout stage", "Count", "Avg(ms)", "Max(ms)", "Failed"));
+        for (Stage stage : Stage.values()) {
+            int i = stage.ordinal();
+            long count = stageCount[i].get();
+            double avg = count == 0 ? 0 : stageNanos[i].get() / 1_000_000.0 / count;
+            double max = stageMaxNanos[i].get() / 1_000_000.0;
+            sb.append(String.format("%-22s %8d %9.2f %9.2f %8d%n", stage, count, avg, max, stageFailures[i].get()));
         }
+        return sb.toString();
+    }
 
-        return true;
+    /**
+     * Lets the post-commit stage of checkouts already paid finish, for up to a few seconds.
+     */
+    public void shutdown() {
+        postCommit.shutdown();
+        try {
+            if (!postCommit.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Checkout: post-commit stages still running at shutdown.");
+                postCommit.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            postCommit.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
-    
-    
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@ package controllers;
 import JDBC.DatabaseConnection;
 import common.MonthlyReportData;
 import common.Order;
+import common.OrderColumns;
+import server.ServerConfig;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,13 +18,15 @@ import java.util.Map;
  */
 public class ReportController {
 
-    private Connection conn;
+    /** When true, the month's order list is sent as an {@link OrderColumns} (COLUMNAR_ORDERS). */
+    private final boolean columnarOrders;
 
     /**
-     * Initializes the controller with a database connection.
+     * Initializes the controller.
+     * Database connections are borrowed from the pool per operation.
      */
     public ReportController() {
-        this.conn = DatabaseConnection.getInstance().getConnection();
+        this.columnarOrders = ServerConfig.getBoolean("COLUMNAR_ORDERS", false);
     }
 
     /**
@@ -33,11 +37,6 @@ public class ReportController {
      */
     public MonthlyReportData generateMonthlyReport(int month, int year) {
         MonthlyReportData data = new MonthlyReportData(month, year);
-        
-        if (conn == null) {
-            System.out.println("Error: No DB Connection in ReportController");
-            return data;
-        }
 
         // ---------------------------------------------------------
         // 1. FETCH RAW DATA (Performance & Activity combined)
@@ -48,75 +47,63 @@ public class ReportController {
         long totalDurationMinutes = 0;
         int durationCount = 0;
         
-        ArrayList<Order> fullList = new ArrayList<>();
+        OrderColumns fullList = new OrderColumns();
         ArrayList<Order> exceptionList = new ArrayList<>();
 
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, month);
             ps.setInt(2, year);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    // Create Order Object
-                    Order order = new Order(
-                        rs.getInt("order_number"),
-                        rs.getInt("user_id"),
-                        rs.getDate("order_date"),
-                        rs.getTime("order_time"),
-                        rs.getInt("num_of_diners"),
-                        rs.getString("status"),
-                        rs.getString("confirmation_code"),
-                        rs.getTime("actual_arrival_time"),
-                        rs.getTime("leaving_time") // Make sure DB has this column
-                    );
-                    
-                    fullList.add(order); // Store for Activity Report Table
-
-                    // --- ANALYZE PERFORMANCE ---
-                    String status = order.getStatus();
-                    Time ordered = order.getOrderTime();
-                    Time arrived = order.getActualArrivalTime();
-                    Time left = order.getLeavingTime();
-
-                    if ("CANCELLED".equalsIgnoreCase(status)) {
-                        noShow++;
-                        exceptionList.add(order); // Add to "Bad" list
-                    } 
-                    else if (ordered != null && arrived != null) {
-                        // Calc Delay
-                        long diffMs = arrived.getTime() - ordered.getTime();
-                        long diffMinutes = diffMs / (60 * 1000);
-                        
-                        // Rule: Late if > 15 Minutes
-                        if (diffMinutes > 15) {
-                            late++;
-                            exceptionList.add(order); // Add to "Bad" list
-                        } else {
-                            onTime++;
-                        }
-
-                        // Calc Dining Duration (if they have left)
-                        if (left != null) {
-                            long diningMs = left.getTime() - arrived.getTime();
-                            if (diningMs > 0) {
-                                totalDurationMinutes += (diningMs / (60 * 1000));
-                                durationCount++;
-                            }
-                        }
-                    } else {
-                        // Fallback for active/finished without timestamps
-                        if (!"CANCELLED".equalsIgnoreCase(status)) onTime++;
+                // Rows go straight into columns; only exception rows become Order objects
+                fullList = ReservationController.readOrderColumns(rs);
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+
+        for (int i = 0; i < fullList.size(); i++) {
+            // --- ANALYZE PERFORMANCE ---
+            String status = fullList.getStatus(i);
+            int ordered = fullList.getOrderSecond(i);
+            int arrived = fullList.getArrivalSecond(i);
+            int left = fullList.getLeavingSecond(i);
+
+            if ("CANCELLED".equalsIgnoreCase(status)) {
+                noShow++;
+                exceptionList.add(fullList.get(i)); // Add to "Bad" list
+            } 
+            else if (ordered != OrderColumns.NO_TIME && arrived != OrderColumns.NO_TIME) {
+                // Calc Delay
+                long diffMinutes = (arrived - ordered) / 60;
+                
+                // Rule: Late if > 15 Minutes
+                if (diffMinutes > 15) {
+                    late++;
+                    exceptionList.add(fullList.get(i)); // Add to "Bad" list
+                } else {
+                    onTime++;
+                }
+
+                // Calc Dining Duration (if they have left)
+                if (left != OrderColumns.NO_TIME) {
+                    long diningSeconds = left - arrived;
+                    if (diningSeconds > 0) {
+                        totalDurationMinutes += (diningSeconds / 60);
+                        durationCount++;
                     }
                 }
+            } else {
+                // Fallback for active/finished without timestamps
+                if (!"CANCELLED".equalsIgnoreCase(status)) onTime++;
             }
-        } catch (SQLException e) { e.printStackTrace(); }
+        }
 
         // Set Counters
         data.setTotalOnTime(onTime);
         data.setTotalLate(late);
         data.setTotalNoShow(noShow);
         
-        // Set Lists
-        data.setAllMonthOrders(fullList);
+        // Set Lists (the columnar list is only sent when COLUMNAR_ORDERS is enabled)
+        data.setAllMonthOrders(columnarOrders ? fullList : new ArrayList<>(fullList));
         data.setExceptionOrders(exceptionList);
 
         // Calc Average
@@ -132,7 +119,8 @@ public class ReportController {
         // ---------------------------------------------------------
         
         // A. Total Guests (Sum from the full list we just fetched to save SQL calls)
-        int guests = fullList.stream().mapToInt(Order::getNumberOfDiners).sum();
+        int guests = 0;
+        for (int i = 0; i < fullList.size(); i++) guests += fullList.getNumberOfDiners(i);
         data.setTotalGuests(guests);
 
         // B. Orders by Day (using SQL for ease of grouping)
@@ -161,7 +149,8 @@ public class ReportController {
      */
     private Map<String, Integer> fetchMap(String query, int month, int year) {
         Map<String, Integer> map = new HashMap<>();
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, month);
             ps.setInt(2, year);
             try (ResultSet rs = ps.executeQuery()) {
@@ -3,17 +3,23 @@ package controllers;
 import JDBC.DatabaseConnection;
 import common.BistroSchedule;
 import common.Order;
+import common.OrderColumns;
 import common.Table;
+import server.ServerConfig;
 
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
 import java.sql.Time;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Locale;
 
 /**
  * Manages Orders (Reservations) and Physical Table configurations.
@@ -23,15 +29,22 @@ import java.util.ArrayList;
  */
 
 public class ReservationController {
-    private NotificationController notificationController;
+    /** How many times a check-in is retried after a deadlock with a concurrent check-in. */
+    private static final int CHECK_IN_ATTEMPTS = 3;
+
+    /** Striped locks serializing the duplicate check and insert of reservations per user. */
+    private static final Object[] USER_LOCKS = new Object[64];
+    static {
+        for (int i = 0; i < USER_LOCKS.length; i++) USER_LOCKS[i] = new Object();
+    }
 
-    private Connection conn;
+    private NotificationController notificationController;
 
     /**
-     * Initializes the controller with database and notification services.
+     * Initializes the controller with notification services.
+     * Database connections are borrowed from the pool per operation.
      */
     public ReservationController() {
-        this.conn = DatabaseConnection.getInstance().getConnection();
         this.notificationController = new NotificationController(); 
     }
 
@@ -45,10 +58,9 @@ public class ReservationController {
      */
     public ArrayList<Order> getAllOrders() {
         ArrayList<Order> orders = new ArrayList<>();
-        if (conn == null) return orders;
-
         String query = "SELECT * FROM orders";
-        try (PreparedStatement ps = conn.prepareStatement(query);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
              ResultSet rs = ps.executeQuery()) {
             
             while (rs.next()) {
@@ -78,8 +90,6 @@ public class ReservationController {
      * @return Confirmation code string or null.
      */
     public String findCodeByContact(String contactInfo) {
-        if (conn == null) return null;
-
         // Logic:
         // 1. Join 'orders' with 'users'.
         // 2. Match phone OR email.
@@ -94,7 +104,8 @@ public class ReservationController {
                        "ORDER BY o.order_date DESC, o.order_time DESC " +
                        "LIMIT 1";
 
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, contactInfo); // Check Phone
             ps.setString(2, contactInfo); // Check Email
             
@@ -117,10 +128,9 @@ public class ReservationController {
      */
     public ArrayList<Order> getActiveOrders() {
         ArrayList<Order> orders = new ArrayList<>();
-        if (conn == null) return orders;
-
         String query = "SELECT * FROM orders WHERE status = 'ACTIVE'";
-        try (PreparedStatement ps = conn.prepareStatement(query);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
              ResultSet rs = ps.executeQuery()) {
             
             while (rs.next()) {
@@ -151,8 +161,6 @@ public class ReservationController {
      */
     public ArrayList<Order> getActiveOrdersForContact(String identifier) {
         ArrayList<Order> orders = new ArrayList<>();
-        if (conn == null) return orders;
-
         // Try to parse identifier as Subscriber ID (int). If fails, use -1.
         int subscriberId = -1;
         try {
@@ -168,7 +176,8 @@ public class ReservationController {
                        "AND o.status IN ('APPROVED', 'ACTIVE', 'PENDING') " +
                        "ORDER BY o.order_date ASC, o.order_time ASC";
 
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, subscriberId);      // Check Subscriber ID column
             
             try (ResultSet rs = ps.executeQuery()) {
@@ -199,11 +208,10 @@ public class ReservationController {
      */
     public ArrayList<Order> getOrdersByUserId(int userId) {
         ArrayList<Order> history = new ArrayList<>();
-        if (conn == null) return history;
-
         String query = "SELECT * FROM orders WHERE user_id = ?";
         
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, userId);
             
             try (ResultSet rs = ps.executeQuery()) {
@@ -229,215 +237,223 @@ public class ReservationController {
         return history;
     }
 
+    // ========================
+    // COLUMNAR ORDER LISTS
+    // ========================
+
     /**
-     * Updates details of an existing order.
-     * @param order The updated Order object.
-     * @return true if successful.
+     * Retrieves all orders as a columnar list (no Order object per row).
+     * @return Column-oriented list of all orders.
      */
-    public boolean updateOrder(Order order) {
-        if (conn == null) return false;
-        String query = "UPDATE orders SET order_date = ?, order_time = ?, num_of_diners = ?, status = ? WHERE order_number = ?";
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
-            ps.setDate(1, order.getOrderDate());
-            ps.setTime(2, order.getOrderTime());
-            ps.setInt(3, order.getNumberOfDiners());
-            ps.setString(4, order.getStatus());
-            ps.setInt(5, order.getOrderNumber());
-            ps.executeUpdate();
-            return true;
+    public OrderColumns getAllOrderColumns() {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM orders");
+             ResultSet rs = ps.executeQuery()) {
+            return readOrderColumns(rs);
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
         }
+        return new OrderColumns();
     }
-    
-    // =========================================================================
-    // CAPACITY CHECKING LOGIC (UPDATED FOR ADMIN CHANGES)
-    // =========================================================================
 
     /**
-     * Wrapper for checkRestaurantCapacity for new reservations.
-     * referenceOrderId is -1, meaning "check against everyone".
+     * Retrieves the active orders as a columnar list.
+     * @return Column-oriented list of active orders.
      */
-    private boolean checkRestaurantCapacity(Date date, Time reqTime, int requestedDiners) {
-        return checkRestaurantCapacity(date, reqTime, requestedDiners, -1);
+    public OrderColumns getActiveOrderColumns() {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM orders WHERE status = 'ACTIVE'");
+             ResultSet rs = ps.executeQuery()) {
+            return readOrderColumns(rs);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new OrderColumns();
     }
 
     /**
-     * Checks if there is a specific physical table available.
-     * LOGIC: "Best Fit" Bin Packing on a Timeline.
-     * * @param referenceOrderId If -1, counts ALL active orders. 
-     * If > 0, ONLY counts orders with ID < referenceOrderId.
-     * (This enables First-Come-First-Served validation).
+     * Fetches a user's order history as a columnar list.
+     * @param userId The User ID.
+     * @return Column-oriented list of the user's orders.
      */
-    private boolean checkRestaurantCapacity(Date date, Time reqTime, int requestedDiners, int referenceOrderId) {
-        if (conn == null) return false;
-
-        // --- Helper Class: Physical Table ---
-        class TableInfo {
-            int id;
-            int seats;
-            public TableInfo(int id, int seats) { this.id = id; this.seats = seats; }
-        }
-
-        // --- Helper Class: Active Reservation ---
-        class BookingInfo {
-            Time time;
-            int diners;
-            public BookingInfo(Time t, int d) { this.time = t; this.diners = d; }
-        }
-
-        // 1. Fetch ALL Physical Tables (Sorted by Size ASC for "Best Fit")
-        ArrayList<TableInfo> allTables = new ArrayList<>();
-        // Added check for 'BROKEN' status just in case you use it, otherwise normal check
-        String tableQuery = "SELECT table_id, seats FROM restaurant_tables WHERE status != 'BROKEN' ORDER BY seats ASC";
-        try (PreparedStatement ps = conn.prepareStatement(tableQuery);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                allTables.add(new TableInfo(rs.getInt("table_id"), rs.getInt("seats")));
-            }
-        } catch (SQLException e) { 
-            e.printStackTrace(); 
-            return false; 
-        }
-
-        if (allTables.isEmpty()) return false;
-
-        // 2. Fetch overlapping reservations
-        // NEW LOGIC: Filter by referenceOrderId to support re-validation priority
-        String overlapQuery = "SELECT order_time, num_of_diners FROM orders " +
-                              "WHERE order_date = ? " +
-                              "AND status IN ('APPROVED', 'ACTIVE', 'PENDING') " + 
-                              "AND order_time < ADDTIME(?, '02:00:00') " +
-                              "AND order_time > SUBTIME(?, '02:00:00') " +
-                              "AND ( (? = -1) OR (order_number < ?) )"; // <--- KEY CHANGE
-
-        ArrayList<BookingInfo> overlaps = new ArrayList<>();
-
-        try (PreparedStatement ps = conn.prepareStatement(overlapQuery)) {
-            ps.setDate(1, date);
-            ps.setTime(2, reqTime); 
-            ps.setTime(3, reqTime); 
-            // Set the ID filter parameters
-            ps.setInt(4, referenceOrderId);
-            ps.setInt(5, referenceOrderId);
-
+    public OrderColumns getOrderColumnsByUserId(int userId) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM orders WHERE user_id = ?")) {
+            ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    overlaps.add(new BookingInfo(rs.getTime("order_time"), rs.getInt("num_of_diners")));
-                }
+                return readOrderColumns(rs);
             }
-        } catch (SQLException e) { 
-            e.printStackTrace(); 
-            return false; 
+        } catch (SQLException e) {
+            System.err.println("Error fetching user history: " + e.getMessage());
+            e.printStackTrace();
         }
+        return new OrderColumns();
+    }
 
-        // 3. Define Critical Time Points to check
-        long reqStartMin = (reqTime.getTime() / 60000) % (24 * 60); 
-        long reqEndMin = reqStartMin + 120; // 2 Hours duration
-
-        ArrayList<Long> checkPoints = new ArrayList<>();
-        checkPoints.add(reqStartMin); // Check start of our meal
-
-        // Add start times of other bookings that occur *during* our meal
-        for (BookingInfo b : overlaps) {
-            long oStart = (b.time.getTime() / 60000) % (24 * 60);
-            if (oStart > reqStartMin && oStart < reqEndMin) {
-                checkPoints.add(oStart);
-            }
+    /**
+     * Copies the rows of an 'orders' result set straight into columns.
+     * Dates and times are read as LocalDate/LocalTime, so no java.sql.Date/Time is created per row.
+     * @param rs The result set, positioned before the first row.
+     * @return The rows as an OrderColumns list.
+     * @throws SQLException If reading the result set fails.
+     */
+    static OrderColumns readOrderColumns(ResultSet rs) throws SQLException {
+        OrderColumns columns = new OrderColumns();
+        while (rs.next()) {
+            columns.addRow(
+                rs.getInt("order_number"),
+                rs.getInt("user_id"),
+                rs.getObject("order_date", LocalDate.class),
+                rs.getObject("order_time", LocalTime.class),
+                rs.getInt("num_of_diners"),
+                rs.getString("status"),
+                rs.getString("confirmation_code"),
+                rs.getObject("actual_arrival_time", LocalTime.class),
+                rs.getObject("leaving_time", LocalTime.class)
+            );
         }
+        return columns;
+    }
 
-        // 4. Run "Best Fit" Simulation at every check point
-        for (Long point : checkPoints) {
-            
-            // A. Identify all active groups at this specific minute
-            ArrayList<Integer> activeGroups = new ArrayList<>();
-            // Always include the new request
-            activeGroups.add(requestedDiners);
-
-            for (BookingInfo b : overlaps) {
-                long oStart = (b.time.getTime() / 60000) % (24 * 60);
-                long oEnd = oStart + 120;
-                if (point >= oStart && point < oEnd) {
-                    activeGroups.add(b.diners);
-                }
+    /**
+     * Updates details of an existing order.
+     * A finished or cancelled order can only be made live again while its code is not used by another live booking.
+     * @param order The updated Order object.
+     * @return true if successful, false if the order does not exist, its code is taken, or the update failed.
+     */
+    public boolean updateOrder(Order order) {
+        int orderNumber = order.getOrderNumber();
+        String status = order.getStatus();
+        String code = order.getConfirmationCode();
+        boolean live = "APPROVED".equals(status) || "ACTIVE".equals(status) || "PENDING".equals(status);
+
+        // Who holds the code right now (null if nobody live does)
+        ConfirmationCodeIndex.Entry holder = ConfirmationCodeIndex.getInstance().get(code);
+        boolean ownCode = holder != null && !holder.isWaiting() && holder.getId() == orderNumber;
+        boolean reservedHere = false;
+        if (live && !ownCode) {
+            // Restoring a finished / cancelled order: its code may have been recycled meanwhile
+            if (holder == null) reservedHere = ConfirmationCodeAllocator.getInstance().reserve(code);
+            if (holder != null || (!reservedHere && ConfirmationCodeAllocator.getInstance().isLive(code))) {
+                System.out.println("Log: Order #" + orderNumber + " not restored, code " + code + " belongs to another live booking.");
+                return false;
             }
+        }
 
-            // B. Try to fit these groups into the tables
-            // Strategy: For each group, consume the *smallest available table* that fits them.
-            
-            ArrayList<TableInfo> availableTables = new ArrayList<>(allTables);
-            boolean allGroupsSeated = true;
-
-            // Sort activeGroups? Usually descending sort is better for Bin Packing,
-            // but for exact "Best Fit" with sorted tables, simple iteration often works.
-            // Let's stick to the previous working logic:
-            for (int groupSize : activeGroups) {
-                TableInfo bestMatch = null;
-                
-                // Find smallest table that fits this group
-                for (TableInfo t : availableTables) {
-                    if (t.seats >= groupSize) {
-                        bestMatch = t;
-                        break; 
-                    }
-                }
-
-                if (bestMatch != null) {
-                    availableTables.remove(bestMatch); // Table is taken
-                } else {
-                    allGroupsSeated = false; // No table fits this group!
-                    break;
-                }
+        String query = "UPDATE orders SET order_date = ?, order_time = ?, num_of_diners = ?, status = ? WHERE order_number = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setDate(1, order.getOrderDate());
+            ps.setTime(2, order.getOrderTime());
+            ps.setInt(3, order.getNumberOfDiners());
+            ps.setString(4, status);
+            ps.setInt(5, orderNumber);
+            if (ps.executeUpdate() != 1) {
+                if (reservedHere) ConfirmationCodeAllocator.getInstance().release(code);
+                return false; // No such order, nothing in memory changes
             }
 
-            if (!allGroupsSeated) {
-                // System.out.println("Capacity Check Failed at min " + point);
-                return false; 
+            OccupancyEngine.getInstance().updateBooking(orderNumber, order.getOrderDate(),
+                    order.getOrderTime(), order.getNumberOfDiners(), status, code);
+            if (live) {
+                ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(false,
+                        orderNumber, order.getUserId(), order.getNumberOfDiners(),
+                        order.getOrderDate().toLocalDate(), status,
+                        ownCode ? holder.getTableId() : -1, ownCode ? holder.getTableSeats() : 0,
+                        ownCode ? holder.getUserType() : null));
+            } else if (ownCode) {
+                // Only give the code back if it was still this order's
+                ConfirmationCodeIndex.getInstance().retire(code);
             }
+            return true;
+        } catch (SQLException e) {
+            if (reservedHere) ConfirmationCodeAllocator.getInstance().release(code);
+            e.printStackTrace();
+            return false;
         }
-
-        return true; // Passed all checks
     }
+    
+    // =========================================================================
+    // CAPACITY CHECKING LOGIC (UPDATED FOR ADMIN CHANGES)
+    // =========================================================================
 
     /**
      * Validates all future orders against the current table layout.
      * Called after a table is removed or modified.
      * Uses "First-Come-First-Served" logic to cancel newest orders if capacity is reduced.
+     * Every affected day is re-solved in memory by the {@link OccupancyEngine}; the displaced orders
+     * are then cancelled with one batch UPDATE and notified.
      */
     private void validateCapacityForAllFutureOrders() {
         System.out.println("System: Validating all future orders against new table capacity...");
         
-        // Fetch all future active orders, ORDERED BY ID (First Come, First Served)
-        String sql = "SELECT * FROM orders WHERE status IN ('APPROVED', 'ACTIVE') AND order_date >= CURDATE() ORDER BY order_number ASC";
-        
-        try (PreparedStatement ps = conn.prepareStatement(sql);
+        // 1. Dates that have live future orders (one query instead of one per order)
+        String datesSql = "SELECT DISTINCT order_date FROM orders WHERE status IN ('APPROVED', 'ACTIVE', 'PENDING') AND order_date >= CURDATE()";
+        ArrayList<LocalDate> dates = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(datesSql);
              ResultSet rs = ps.executeQuery()) {
-            
             while (rs.next()) {
-                int orderId = rs.getInt("order_number");
-                int userId = rs.getInt("user_id");
-                Date date = rs.getDate("order_date");
-                Time time = rs.getTime("order_time");
-                int diners = rs.getInt("num_of_diners");
-                
-                // Check capacity specifically for THIS order
-                // passing 'orderId' to exclude this order (and newer ones) from the 'occupied' calculation
-                // effectively simulating if the restaurant was empty up to this point + older orders.
-                boolean fits = checkRestaurantCapacity(date, time, diners, orderId);
-                
-                if (!fits) {
-                    System.out.println(">>> Capacity Crunch! Cancelling Order #" + orderId);
-                    
-                    // 1. Cancel in DB
-                    cancelOrderInternal(orderId);
-                    
-                    // 2. Notify User (Admin Cancellation)
-                    notificationController.sendSystemCancellation(userId, date.toString(), time.toString());
+                dates.add(rs.getDate("order_date").toLocalDate());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        // 2. Re-solve every day in memory (in parallel)
+        int[] displaced = OccupancyEngine.getInstance().findDisplacedBookings(dates);
+        if (displaced.length == 0) return;
+
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < displaced.length; i++) {
+            if (i > 0) ids.append(",");
+            ids.append(displaced[i]);
+        }
+        System.out.println(">>> Capacity Crunch! Cancelling Orders #" + ids + " (those still live)");
+
+        // 3. Lock the displaced orders that are still live, then cancel exactly those in one batch.
+        // An order checked in, paid or cancelled since the sweep is left alone (and not notified).
+        String live = "AND status IN ('APPROVED', 'ACTIVE', 'PENDING')";
+        ArrayList<Order> cancelled = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement psFind = conn.prepareStatement("SELECT * FROM orders WHERE order_number IN (" + ids + ") " + live + " FOR UPDATE");
+                     ResultSet rs = psFind.executeQuery()) {
+                    while (rs.next()) cancelled.add(mapResultSetToOrder(rs));
                 }
+                if (!cancelled.isEmpty()) {
+                    StringBuilder lockedIds = new StringBuilder();
+                    for (Order order : cancelled) {
+                        if (lockedIds.length() > 0) lockedIds.append(",");
+                        lockedIds.append(order.getOrderNumber());
+                    }
+                    try (PreparedStatement psCancel = conn.prepareStatement("UPDATE orders SET status = 'CANCELLED' WHERE order_number IN (" + lockedIds + ") " + live)) {
+                        psCancel.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return;
+        }
+
+        for (Order order : cancelled) {
+            OccupancyEngine.getInstance().removeBooking(order.getOrderNumber());
+            ConfirmationCodeIndex.getInstance().retire(order.getConfirmationCode());
+        }
+
+        // 4. Notify Users (Admin Cancellation)
+        for (Order order : cancelled) {
+            notificationController.sendSystemCancellation(order.getUserId(),
+                    order.getOrderDate().toString(), order.getOrderTime().toString());
         }
     }
     
@@ -453,8 +469,15 @@ public class ReservationController {
             Date sqlDate = Date.valueOf(order.getOrderDate().toString());
             Time sqlTime = order.getOrderTime();
 
-            // --- 1. CAPACITY CHECK ---
-            if (!checkRestaurantCapacity(sqlDate, sqlTime, order.getNumberOfDiners())) {
+            // --- 0. OPENING HOURS CHECK ---
+            if (!ScheduleCalendar.getInstance().isOpenAt(sqlDate.toLocalDate(), OccupancyEngine.toMinute(sqlTime))) {
+                return "Closed: The restaurant is not open at the requested time.";
+            }
+
+            // --- 1. CAPACITY CHECK (the capacity is held until the order is inserted) ---
+            OccupancyEngine engine = OccupancyEngine.getInstance();
+            int hold = engine.tryReserve(sqlDate, sqlTime, order.getNumberOfDiners());
+            if (hold < 0) {
                 // IT IS FULL. Find alternatives.
                 String alternatives = getAlternativeTimes(sqlDate, sqlTime, order.getNumberOfDiners());
                 
@@ -465,23 +488,51 @@ public class ReservationController {
                 }
             }
 
-            // --- 2. DUPLICATE CHECK ---
-            if (checkIfReservationExists(userID, sqlDate, sqlTime)) {
-                return "Duplicate: You already have a reservation at this time.";
-            }
+            boolean booked = false;
+            String code;
+            try {
+                // Duplicate check and insert of one user run one at a time
+                synchronized (userLock(userID)) {
+                    // --- 2. DUPLICATE CHECK ---
+                    if (checkIfReservationExists(userID, sqlDate, sqlTime)) {
+                        return "Duplicate: You already have a reservation at this time.";
+                    }
 
-            // --- 3. PROCEED TO BOOK ---
-            String insertSQL = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code) VALUES (?, ?, ?, ?, ?, ?)";
-            PreparedStatement ps = conn.prepareStatement(insertSQL);
-            String code = userController.generateConfirmationCode();
-            
-            ps.setInt(1, userID);
-            ps.setDate(2, sqlDate);
-            ps.setTime(3, sqlTime);
-            ps.setInt(4, order.getNumberOfDiners());
-            ps.setString(5, "APPROVED");
-            ps.setString(6, code);
-            ps.executeUpdate();
+                    // --- 3. PROCEED TO BOOK ---
+                    String insertSQL = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code) VALUES (?, ?, ?, ?, ?, ?)";
+                    code = userController.generateConfirmationCode();
+                    if (code == null) {
+                        return "Error: No confirmation codes available.";
+                    }
+
+                    try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                         PreparedStatement ps = conn.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
+                        ps.setInt(1, userID);
+                        ps.setDate(2, sqlDate);
+                        ps.setTime(3, sqlTime);
+                        ps.setInt(4, order.getNumberOfDiners());
+                        ps.setString(5, "APPROVED");
+                        ps.setString(6, code);
+                        ps.executeUpdate();
+
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            if (keys.next()) {
+                                engine.confirmHold(hold, keys.getInt(1), sqlDate, sqlTime,
+                                        order.getNumberOfDiners(), code);
+                                booked = true;
+                                ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(false,
+                                        keys.getInt(1), userID, order.getNumberOfDiners(), sqlDate.toLocalDate(),
+                                        "APPROVED", -1, 0, null));
+                            }
+                        }
+                    } catch (SQLException e) {
+                        ConfirmationCodeAllocator.getInstance().release(code); // Never stored
+                        throw e;
+                    }
+                }
+            } finally {
+                if (!booked) engine.releaseHold(hold, sqlDate);
+            }
             
             order.setConfirmationCode(code);
             return "OK:" + code;
@@ -499,12 +550,21 @@ public class ReservationController {
      * @return true if cancelled successfully.
      */
     public boolean cancelOrder(String code,int userId) {
-    	String sql = "UPDATE orders SET status = 'CANCELLED' WHERE confirmation_code = ? AND user_id = ? AND status != 'CANCELLED'";
+        // Not a live order of this user: nothing to cancel, no round trip needed
+        ConfirmationCodeIndex.Entry entry = ConfirmationCodeIndex.getInstance().get(code);
+        if (entry == null || entry.isWaiting() || entry.getUserId() != userId) return false;
+
+    	String sql = "UPDATE orders SET status = 'CANCELLED' WHERE confirmation_code = ? AND user_id = ? AND status IN ('APPROVED', 'ACTIVE', 'PENDING')";
     	
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, code);
             ps.setInt(2, userId);
             int rows = ps.executeUpdate();
+            if (rows > 0) {
+                OccupancyEngine.getInstance().removeBookingByCode(code);
+                ConfirmationCodeIndex.getInstance().retire(code);
+            }
             return rows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -512,6 +572,13 @@ public class ReservationController {
         }
     }
 
+    /**
+     * @return The lock guarding the reservations of a user (shared by every ReservationController).
+     */
+    private static Object userLock(int userId) {
+        return USER_LOCKS[Math.floorMod(userId, USER_LOCKS.length)];
+    }
+
     /**
      * Helper Method: Checks DB for existing reservation for a specific user.
      * @return true if reservation exists, false if clear.
@@ -519,7 +586,8 @@ public class ReservationController {
     private boolean checkIfReservationExists(int userId, Date date, Time time) {
         // Added 'user_id = ?' to ensure we only block if THIS specific user already booked this time
         String query = "SELECT order_number FROM orders WHERE user_id = ? AND order_date = ? AND order_time = ? AND status != 'CANCELLED'";
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, userId);
             ps.setDate(2, date);
             ps.setTime(3, time);
@@ -533,235 +601,221 @@ public class ReservationController {
     
     /**
      * Handles the customer check-in process.
-     * Validates reservation, assigns table (reserved or new), and updates status.
+     * Validates the code from memory, then claims a table and moves the order (or waiting-list entry)
+     * to ACTIVE in one short transaction. Every write is conditional on the state that was validated,
+     * so two kiosks can never seat two parties at one table or check the same code in twice.
      * @param code The confirmation code.
      * @return Table ID if successful, negative error code otherwise.
      */
     public int checkIn(String code) {
-        if (conn == null) return -1;
-
-        int diners = 0;
-        int orderId = 0;
-        int userId = 0;
-        boolean ifWaitingList = true;
-        Date date;
-        String status = null;
-
         // =============================================================
         // PHASE 1: IDENTIFY THE RESERVATION OR WAITING LIST ENTRY
         // =============================================================
-        
-        // 1A. Check Standard Orders first
-        String orderQuery = "SELECT order_number, user_id, num_of_diners FROM orders WHERE confirmation_code = ?";
-        try (PreparedStatement ps = conn.prepareStatement(orderQuery)) {
-            ps.setString(1, code);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    orderId = rs.getInt("order_number");
-                    userId = rs.getInt("user_id");
-                    diners = rs.getInt("num_of_diners");
-                    ifWaitingList = false;
-                }
-            }
-        } catch (SQLException e) { e.printStackTrace(); return -1; }
-        
-        // 1B. If not found in Orders, check Waiting List
-        if (ifWaitingList) {
-            // FIX: Changed status check from 'WAITING' to 'NOTIFIED'
-            // The user status is 'NOTIFIED' because we sent them the alert.
-            orderQuery = "SELECT waiting_id, user_id, num_of_diners FROM waiting_list WHERE confirmation_code = ? AND status = 'NOTIFIED'";
-            
-            try (PreparedStatement ps = conn.prepareStatement(orderQuery)) {
-                ps.setString(1, code);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        orderId = rs.getInt("waiting_id");
-                        userId = rs.getInt("user_id");
-                        diners = rs.getInt("num_of_diners");
-                    } else {
-                        // Error: Code not found or Status is not 'NOTIFIED' (maybe expired?)
-                        return -2; 
-                    }
-                }
-            } catch (SQLException e) { e.printStackTrace(); return -1; }
-        }
-        
+        // Live orders and waiting-list entries are resolved from memory (see ConfirmationCodeIndex)
+        ConfirmationCodeIndex.Entry entry = ConfirmationCodeIndex.getInstance().get(code);
+        if (entry == null) return -2; // Code not found (or no longer live)
+
         // =============================================================
         // PHASE 2: VALIDATION (Date & Status Checks)
         // =============================================================
-        if (!ifWaitingList) {
-            // Check Date (Only for standard orders)
-            String dateQuery = "SELECT order_date, status FROM orders WHERE order_number = ?";
-            try (PreparedStatement ps = conn.prepareStatement(dateQuery)) {
-                ps.setInt(1, orderId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        date = rs.getDate("order_date");
-                        status = rs.getString("status");
-                        
-                        if (!Date.valueOf(LocalDate.now()).equals(date)) return -3; // Wrong Date
-                        if (!"APPROVED".equals(status)) return -4; // Wrong Status
-                    }
-                }
-            } catch (SQLException e) { e.printStackTrace(); return -1; }
+        if (entry.isWaiting()) {
+            // The user status is 'NOTIFIED' once we sent them the alert
+            if (!"NOTIFIED".equals(entry.getStatus())) return -2;
+        } else {
+            if (!LocalDate.now().equals(entry.getDate())) return -3; // Wrong Date
+            if (!"APPROVED".equals(entry.getStatus())) return -4; // Wrong Status
         }
 
         // =============================================================
-        // PHASE 3: FIND TABLE (Priority: Check Reserved Tables First)
+        // PHASE 3: CLAIM TABLE & COMMIT CHECK-IN (one transaction)
         // =============================================================
-        int assignedTableId = -1;
-
-        // 3A. CHECK FOR RESERVED TABLE (The 15-minute hold)
-        String reservedQuery = "SELECT table_id FROM restaurant_tables WHERE user_id = ? AND status = 'RESERVED'";
-        try (PreparedStatement ps = conn.prepareStatement(reservedQuery)) {
-            ps.setInt(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    assignedTableId = rs.getInt("table_id");
-                    System.out.println("Log: Found reserved table #" + assignedTableId);
+        // A deadlock or lock wait timeout between kiosks rolls the whole attempt back, so it is safe to retry
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return checkInTransaction(code, entry);
+            } catch (SQLTransactionRollbackException e) {
+                if (attempt >= CHECK_IN_ATTEMPTS) {
+                    e.printStackTrace();
+                    return -1;
                 }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return -1;
             }
-        } catch (SQLException e) { e.printStackTrace(); }
-
-        // 3B. IF NO RESERVED TABLE, SEARCH FOR ANY AVAILABLE TABLE
-        if (assignedTableId == -1) {
-            String tableQuery = "SELECT table_id FROM restaurant_tables WHERE status = 'AVAILABLE' AND seats >= ? ORDER BY seats ASC LIMIT 1";
-            try (PreparedStatement ps = conn.prepareStatement(tableQuery)) {
-                ps.setInt(1, diners);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        assignedTableId = rs.getInt("table_id");
-                    } else {
-                        return -5; // No Table Available
-                    }
-                }
-            } catch (SQLException e) { e.printStackTrace(); return -1; }
         }
+    }
 
-        
-        // =============================================================
-        // PHASE 4: UPDATE DATABASE & COMMIT CHECK-IN
-        // =============================================================
-        if (assignedTableId != -1) {
+    /**
+     * One check-in attempt. Claims the held or the smallest fitting free table, then moves the order
+     * to ACTIVE (or turns the waiting-list entry into an ACTIVE order), and commits once.
+     * The in-memory views are only updated after the commit.
+     * @return Table ID if successful, negative error code otherwise.
+     */
+    private int checkInTransaction(String code, ConfirmationCodeIndex.Entry entry) throws SQLException {
+        int userId = entry.getUserId();
+        int diners = entry.getDiners();
+        int[] table;
+        int orderId = entry.getId();
+        Date today = Date.valueOf(LocalDate.now());
+        Time now = Time.valueOf(LocalTime.now());
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
             try {
-                // 1. Mark table as OCCUPIED
-                String updateTable = "UPDATE restaurant_tables SET status = 'OCCUPIED', user_id = ? WHERE table_id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(updateTable)) {
-                    ps.setInt(1, userId);          
-                    ps.setInt(2, assignedTableId);
-                    ps.executeUpdate();
+                // 1. Claim a table (only succeeds if nobody took it since we looked)
+                table = claimTable(conn, entry);
+                if (table == null) {
+                    conn.rollback();
+                    return -5; // No Table Available
                 }
-                
-                // 2. Update Order/Waiting List Status
-                if (ifWaitingList) {
+
+                // 2. Update Order/Waiting List Status (only from the state validated above)
+                if (entry.isWaiting()) {
                     // A. Mark Waiting List as Fulfilled (Unlink User)
-                    String updateWL = "UPDATE waiting_list SET user_id = NULL, status = 'FULFILLED' WHERE waiting_id = ?";
+                    String updateWL = "UPDATE waiting_list SET user_id = NULL, status = 'FULFILLED' WHERE waiting_id = ? AND status = 'NOTIFIED'";
                     try (PreparedStatement ps = conn.prepareStatement(updateWL)) {
-                        ps.setInt(1, orderId);
-                        ps.executeUpdate();
+                        ps.setInt(1, entry.getId());
+                        if (ps.executeUpdate() == 0) {
+                            conn.rollback();
+                            return -2; // Already used or expired meanwhile
+                        }
                     }
-                    
-                    // B. Create New Active Order (Your provided snippet)
-                    String insertSQL = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code, actual_arrival_time) VALUES (?, ?, ?, ?, ?, ?, ?)";
-                    try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {                    
+
+                    // B. Create New Active Order with the same code
+                    String insertSQL = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code, actual_arrival_time) VALUES (?, ?, ?, ?, 'ACTIVE', ?, ?)";
+                    try (PreparedStatement ps = conn.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
                         ps.setInt(1, userId);
-                        ps.setDate(2, Date.valueOf(LocalDate.now()));
-                        ps.setTime(3, Time.valueOf(LocalTime.now()));
+                        ps.setDate(2, today);
+                        ps.setTime(3, now);
                         ps.setInt(4, diners);
-                        ps.setString(5, "ACTIVE");
-                        ps.setString(6, code);
-                        ps.setTime(7, new Time(System.currentTimeMillis()));
+                        ps.setString(5, code);
+                        ps.setTime(6, now);
                         ps.executeUpdate();
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            orderId = keys.next() ? keys.getInt(1) : -1;
+                        }
                     }
-                    
                 } else {
                     // Standard Order Update
-                    String updateOrd = "UPDATE orders SET status = 'ACTIVE', actual_arrival_time = ? WHERE order_number = ?";
+                    String updateOrd = "UPDATE orders SET status = 'ACTIVE', actual_arrival_time = ? WHERE order_number = ? AND status = 'APPROVED'";
                     try (PreparedStatement ps = conn.prepareStatement(updateOrd)) {
-                        ps.setTime(1, new Time(System.currentTimeMillis()));
+                        ps.setTime(1, now);
                         ps.setInt(2, orderId);
-                        ps.executeUpdate();
+                        if (ps.executeUpdate() == 0) {
+                            conn.rollback();
+                            return -4; // Checked in (or cancelled) by someone else meanwhile
+                        }
                     }
                 }
-                                               
-                return assignedTableId; // SUCCESS
-                
+
+                conn.commit();
             } catch (SQLException e) {
-                e.printStackTrace();
-                return -1;
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
 
-        return -1;
+        // 3. Committed: bring the in-memory views up to date
+        int tableId = table[0], seats = table[1];
+        if (entry.isWaiting()) {
+            if (orderId != -1) {
+                OccupancyEngine.getInstance().addBooking(orderId, today, now, diners, code);
+            }
+            // The code moves from the waiting-list entry to the new order
+            ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(false,
+                    orderId, userId, diners, today.toLocalDate(), "ACTIVE", tableId, seats, entry.getUserType()));
+        } else {
+            ConfirmationCodeIndex.getInstance().update(code,
+                    e -> e.withStatus("ACTIVE").withTable(tableId, seats));
+        }
+        System.out.println("Log: User " + userId + " checked in at table #" + tableId);
+        return tableId; // SUCCESS
     }
-    
-    
- 
 
     /**
-     * Calculates alternative time slots if a requested slot is full.
-     * Looks at times +/- 30 and 60 minutes from target.
-     * @return Comma-separated string of available times.
+     * Claims a table for a check-in inside the caller's transaction.
+     * First the table held for a notified waiting-list entry (if it is still RESERVED for the user),
+     * otherwise the smallest AVAILABLE table that fits. Each claim is a conditional UPDATE, so a table
+     * taken by a concurrent check-in is skipped instead of being seated twice.
+     * @return {table_id, seats} of the claimed table, or null if none is free.
      */
-    private String getAlternativeTimes(Date date, Time targetTime, int diners) {
-        StringBuilder suggestions = new StringBuilder();
-        int[] offsets = {-30, 30, -60, 60}; 
-
-        // Default: Open 24/7 if no schedule found (failsafe)
-        Time openTime = Time.valueOf("00:00:00");
-        Time closeTime = Time.valueOf("23:59:59");
-        boolean isClosed = false;
-        boolean scheduleFound = false;
-
-        // --- STEP A: Check for SPECIAL DATE first (e.g., "2026-01-02") ---
-        String dateId = date.toString(); 
-        String query = "SELECT open_time, close_time, is_closed FROM schedule WHERE identifier = ?";
-        
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
-            ps.setString(1, dateId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    isClosed = rs.getBoolean("is_closed");
-                    openTime = parseTimeSafe(rs.getString("open_time"));   
-                    closeTime = parseTimeSafe(rs.getString("close_time")); 
-                    scheduleFound = true;
+    private int[] claimTable(Connection conn, ConfirmationCodeIndex.Entry entry) throws SQLException {
+        int userId = entry.getUserId();
+
+        // A. The 15-minute hold recorded when the entry was notified
+        if (entry.getTableId() != -1) {
+            String claimHeld = "UPDATE restaurant_tables SET status = 'OCCUPIED' WHERE table_id = ? AND status = 'RESERVED' AND user_id = ?";
+            try (PreparedStatement ps = conn.prepareStatement(claimHeld)) {
+                ps.setInt(1, entry.getTableId());
+                ps.setInt(2, userId);
+                if (ps.executeUpdate() == 1) {
+                    System.out.println("Log: Found reserved table #" + entry.getTableId());
+                    return new int[] { entry.getTableId(), entry.getTableSeats() };
                 }
             }
-        } catch (SQLException e) { e.printStackTrace(); }
+        }
 
-        // --- STEP B: If no special date, check WEEKDAY (e.g., "Friday") ---
-        if (!scheduleFound) {
-            int dayInt = getDayOfWeek(date); 
-            String dayName = getDayName(dayInt); 
-            
-            try (PreparedStatement ps = conn.prepareStatement(query)) {
-                ps.setString(1, dayName); 
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        isClosed = rs.getBoolean("is_closed");
-                        openTime = parseTimeSafe(rs.getString("open_time"));   
-                        closeTime = parseTimeSafe(rs.getString("close_time")); 
+        // B. Any fitting free table, smallest first
+        return claimFreeTable(conn, userId, entry.getDiners(), "OCCUPIED");
+    }
+
+    /**
+     * Claims the smallest AVAILABLE table that fits a party, inside the caller's transaction.
+     * Each candidate is taken with a conditional UPDATE; one taken meanwhile by another thread is skipped.
+     * Shared by check-in and the waiting list, so no path overwrites a table another one just claimed.
+     * @param conn Connection of the caller's transaction.
+     * @param userId The user the table is assigned to.
+     * @param diners Size of the party.
+     * @param newStatus OCCUPIED (seated now) or RESERVED (held for a notified waiting-list entry).
+     * @return {table_id, seats} of the claimed table, or null if none is free.
+     */
+    static int[] claimFreeTable(Connection conn, int userId, int diners, String newStatus) throws SQLException {
+        String candidates = "SELECT table_id, seats FROM restaurant_tables WHERE status = 'AVAILABLE' AND seats >= ? ORDER BY seats ASC, table_id ASC";
+        String claim = "UPDATE restaurant_tables SET status = ?, user_id = ? WHERE table_id = ? AND status = 'AVAILABLE'";
+        try (PreparedStatement psFind = conn.prepareStatement(candidates);
+             PreparedStatement psClaim = conn.prepareStatement(claim)) {
+            psFind.setInt(1, diners);
+            try (ResultSet rs = psFind.executeQuery()) {
+                while (rs.next()) {
+                    psClaim.setString(1, newStatus);
+                    psClaim.setInt(2, userId);
+                    psClaim.setInt(3, rs.getInt("table_id"));
+                    if (psClaim.executeUpdate() == 1) {
+                        return new int[] { rs.getInt("table_id"), rs.getInt("seats") };
                     }
                 }
-            } catch (SQLException e) { e.printStackTrace(); }
+            }
         }
+        return null;
+    }
+    
+    
+ 
 
-        if (isClosed) return ""; // Closed for the day
-
-        // --- STEP C: Calculate Suggestions ---
-        for (int offset : offsets) {
-            Time altTime = addMinutesToTime(targetTime, offset);
+    /**
+     * Calculates alternative time slots if a requested slot is full.
+     * Sweeps the whole opening window of the day in one pass (see {@link OccupancyEngine#findAvailableSlots})
+     * and returns the feasible times closest to the target.
+     * Grid spacing and number of options come from ALT_SLOT_STEP_MINUTES and ALT_SUGGESTION_COUNT.
+     * @return Comma-separated string of available times.
+     */
+    private String getAlternativeTimes(Date date, Time targetTime, int diners) {
+        // --- STEP A: Effective hours of the date (SPECIAL date wins over the weekday) ---
+        ScheduleCalendar.Hours hours = ScheduleCalendar.getInstance().resolve(date.toLocalDate());
+        if (hours.isClosed()) return ""; // Closed for the day
 
-            // 1. Check Opening Hours
-            if (altTime.before(openTime) || altTime.after(closeTime)) {
-                continue; 
-            }
+        // --- STEP B: One sweep over the day's bookings ---
+        int[] slots = OccupancyEngine.getInstance().findAvailableSlots(date,
+                OccupancyEngine.toMinute(targetTime), hours.getOpenMinute(), hours.getCloseMinute(),
+                ServerConfig.getInt("ALT_SLOT_STEP_MINUTES", 30), diners,
+                ServerConfig.getInt("ALT_SUGGESTION_COUNT", 4));
 
-            // 2. Check Capacity
-            if (checkRestaurantCapacity(date, altTime, diners)) {
-                if (suggestions.length() > 0) suggestions.append(",");
-                suggestions.append(altTime.toString().substring(0, 5));
-            }
+        StringBuilder suggestions = new StringBuilder();
+        for (int slot : slots) {
+            if (suggestions.length() > 0) suggestions.append(",");
+            suggestions.append(String.format("%02d:%02d", slot / 60, slot % 60));
         }
         return suggestions.toString();
     }
@@ -778,10 +832,9 @@ public class ReservationController {
      */
     public ArrayList<Table> getAllTables() {
         ArrayList<Table> tables = new ArrayList<>();
-        if (conn == null) return tables;
-
         String query = "SELECT * FROM restaurant_tables";
-        try (PreparedStatement ps = conn.prepareStatement(query);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
              ResultSet rs = ps.executeQuery()) {
             
             while (rs.next()) {
@@ -804,16 +857,19 @@ public class ReservationController {
      * @return true if update successful.
      */
     public boolean updateTable(Table table) {
-        if (conn == null) return false;
         String query = "UPDATE restaurant_tables SET seats = ?, status = ? WHERE table_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, table.getSeats());
             ps.setString(2, table.getStatus());
             ps.setInt(3, table.getTableId());
             ps.executeUpdate();
             
             // NEW: Check if this change broke any existing bookings
-            validateCapacityForAllFutureOrders();
+            // (skipped when the new layout seats at least everything the old one could)
+            if (OccupancyEngine.getInstance().reloadTables()) {
+                validateCapacityForAllFutureOrders();
+            }
             
             return true;
         } catch (SQLException e) {
@@ -830,13 +886,14 @@ public class ReservationController {
      * @return true if added successfully.
      */
     public boolean addTable(Table table) {
-        if (conn == null) return false;
         String query = "INSERT INTO restaurant_tables (table_id, seats, status) VALUES (?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, table.getTableId());
             ps.setInt(2, table.getSeats());
             ps.setString(3, table.getStatus());
             ps.executeUpdate();
+            OccupancyEngine.getInstance().reloadTables();
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -851,14 +908,17 @@ public class ReservationController {
      * @return true if removed successfully.
      */
     public boolean removeTable(int tableId) {
-        if (conn == null) return false;
         String query = "DELETE FROM restaurant_tables WHERE table_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, tableId);
             ps.executeUpdate();
             
             // NEW: Check if this removal broke any existing bookings
-            validateCapacityForAllFutureOrders(); 
+            // (skipped when the new layout seats at least everything the old one could)
+            if (OccupancyEngine.getInstance().reloadTables()) {
+                validateCapacityForAllFutureOrders();
+            } 
             
             return true;
         } catch (SQLException e) {
@@ -877,12 +937,9 @@ public class ReservationController {
      */
     public ArrayList<BistroSchedule> getSchedule() {
         ArrayList<BistroSchedule> list = new ArrayList<>();
-        if (conn == null) return list;
-
-        try {
-            
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM schedule");
-            ResultSet rs = ps.executeQuery();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM schedule");
+             ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 list.add(new BistroSchedule(
                     rs.getString("identifier"),
@@ -908,13 +965,11 @@ public class ReservationController {
      * @return true if successful.
      */
     public boolean saveScheduleItem(BistroSchedule item) {
-        if (conn == null) return false;
+        // 1. Update Database
+        String query = "REPLACE INTO schedule (identifier, open_time, close_time, is_closed, schedule_type, event_name) VALUES (?, ?, ?, ?, ?, ?)";
 
-        try {
-            // 1. Update Database
-            String query = "REPLACE INTO schedule (identifier, open_time, close_time, is_closed, schedule_type, event_name) VALUES (?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement ps = conn.prepareStatement(query);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, item.getIdentifier());
             ps.setString(2, item.getOpenTime());
             ps.setString(3, item.getCloseTime());
@@ -924,6 +979,7 @@ public class ReservationController {
             
             int rows = ps.executeUpdate();
             System.out.println("Server Log: Saved schedule for " + item.getIdentifier() + ". Rows affected: " + rows);
+            ScheduleCalendar.getInstance().reload();
 
             // 2. Trigger Notification & Cancellation Logic  
             notifyAndCancelAffectedCustomers(item); 
@@ -936,12 +992,15 @@ public class ReservationController {
     }
     /**
      * Finds customers affected by a schedule change, cancels their order, and notifies them.
+     * Must run after the calendar was reloaded: an order is affected only if it falls on a date the
+     * item governs and the date's effective hours (see {@link ScheduleCalendar}) no longer cover it,
+     * so a weekday change does not touch dates that have their own SPECIAL hours.
      */
     private void notifyAndCancelAffectedCustomers(BistroSchedule item) {
         ArrayList<Order> affectedOrders = new ArrayList<>();
         String sql = "";
 
-        try {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
             // 1. Find potential orders based on the change type
             if ("SPECIAL".equals(item.getType())) {
                 // Specific Date (e.g., "2026-01-01")
@@ -953,38 +1012,26 @@ public class ReservationController {
                 }
             } else if ("REGULAR".equals(item.getType())) {
                 // Day of Week (e.g., "Monday") - Find all future matching days
-                sql = "SELECT * FROM orders WHERE DAYNAME(order_date) = ? AND order_date >= CURDATE() AND status IN ('APPROVED', 'ACTIVE', 'PENDING')";
+                DayOfWeek weekday = DayOfWeek.valueOf(item.getIdentifier().trim().toUpperCase(Locale.ROOT));
+                sql = "SELECT * FROM orders WHERE DAYOFWEEK(order_date) = ? AND order_date >= CURDATE() AND status IN ('APPROVED', 'ACTIVE', 'PENDING')";
                 try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                    ps.setString(1, item.getIdentifier()); 
+                    // DAYOFWEEK counts from Sunday = 1, DayOfWeek from Monday = 1
+                    ps.setInt(1, weekday.getValue() % 7 + 1);
                     ResultSet rs = ps.executeQuery();
                     while (rs.next()) affectedOrders.add(mapResultSetToOrder(rs));
                 }
             }
 
-            // 2. Filter orders that actually conflict with the new hours
-            // Parse "08:00" to Time objects
-            Time newOpen = Time.valueOf(item.getOpenTime() + (item.getOpenTime().length() == 5 ? ":00" : ""));
-            Time newClose = Time.valueOf(item.getCloseTime() + (item.getCloseTime().length() == 5 ? ":00" : ""));
-
+            // 2. Filter orders that actually conflict with the effective hours of their date
+            //    (a date with its own SPECIAL hours keeps them after a weekday change)
+            ScheduleCalendar calendar = ScheduleCalendar.getInstance();
             for (Order order : affectedOrders) {
-                boolean needsCancellation = false;
-
-                // Case A: Restaurant is now Closed
-                if (item.isClosed()) {
-                    needsCancellation = true;
-                }
-                // Case B: Reservation is outside new hours
-                else {
-                    Time orderTime = order.getOrderTime();
-                    if (orderTime.before(newOpen) || orderTime.after(newClose)) {
-                        needsCancellation = true;
-                    }
-                }
+                LocalDate date = order.getOrderDate().toLocalDate();
 
-                // 3. Process Cancellation
-                if (needsCancellation) {
-                    // Update DB
-                    cancelOrderInternal(order.getOrderNumber());
+                // 3. Process Cancellation (closed, or reservation outside the new hours)
+                if (!calendar.isOpenAt(date, OccupancyEngine.toMinute(order.getOrderTime()))) {
+                    // Update DB (skip orders checked in, paid or cancelled meanwhile)
+                    if (!cancelOrderInternal(order)) continue;
 
                     // Send Notification
                     notificationController.sendScheduleUpdateNotification(
@@ -1004,13 +1051,18 @@ public class ReservationController {
         }
     }
 
-    // Helper to update status silently
-    private void cancelOrderInternal(int orderId) {
-        try (PreparedStatement ps = conn.prepareStatement("UPDATE orders SET status = 'CANCELLED' WHERE order_number = ?")) {
-            ps.setInt(1, orderId);
-            ps.executeUpdate();
+    // Helper to update status silently; returns true only if the order was still live and is now cancelled
+    private boolean cancelOrderInternal(Order order) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("UPDATE orders SET status = 'CANCELLED' WHERE order_number = ? AND status IN ('APPROVED', 'ACTIVE', 'PENDING')")) {
+            ps.setInt(1, order.getOrderNumber());
+            if (ps.executeUpdate() != 1) return false;
+            OccupancyEngine.getInstance().removeBooking(order.getOrderNumber());
+            ConfirmationCodeIndex.getInstance().retire(order.getConfirmationCode());
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -1036,12 +1088,11 @@ public class ReservationController {
      * @return true if successful.
      */
     public boolean deleteScheduleItem(String identifier) {
-        if (conn == null) return false;
-
-        try {
-            PreparedStatement ps = conn.prepareStatement("DELETE FROM schedule WHERE identifier = ?");
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM schedule WHERE identifier = ?")) {
             ps.setString(1, identifier);
             ps.executeUpdate();
+            ScheduleCalendar.getInstance().reload();
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1051,32 +1102,6 @@ public class ReservationController {
     
     
     
-    // --- HELPER METHODS ---
-    private Time parseTimeSafe(String timeStr) {
-        if (timeStr == null || timeStr.trim().isEmpty()) return Time.valueOf("00:00:00");
-        
-        // If DB has "08:00", append ":00" to make it "08:00:00" for Java
-        if (timeStr.length() == 5) {
-            timeStr += ":00";
-        }
-        try {
-            return Time.valueOf(timeStr);
-        } catch (IllegalArgumentException e) {
-            System.err.println("Error parsing time: " + timeStr + ". Defaulting to 00:00:00");
-            return Time.valueOf("00:00:00");
-        }
-    }
-    
-    
-    // 1. Add this helper to convert numbers to Names (matches your DB)
-    private String getDayName(int dayId) {
-        String[] days = {"", "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
-        if (dayId >= 1 && dayId <= 7) {
-            return days[dayId];
-        }
-        return "";
-    }
-    
     /**
      * Finds orders scheduled for TODAY for a specific contact (ID or Phone).
      * Used to populate the "Smart Check-In" dropdown for subscribers.
@@ -1085,8 +1110,6 @@ public class ReservationController {
      */
     public ArrayList<Order> getTodayOrdersForContact(String identifier) {
         ArrayList<Order> orders = new ArrayList<>();
-        if (conn == null) return orders;
-
         int subscriberId = -1;
         try {
             subscriberId = Integer.parseInt(identifier);
@@ -1102,7 +1125,8 @@ public class ReservationController {
                        "AND o.status = 'APPROVED' " +
                        "ORDER BY o.order_time ASC";
 
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, subscriberId);
             ps.setString(2, identifier);
             
@@ -1127,22 +1151,6 @@ public class ReservationController {
         }
         return orders;
     }
-    // Helper to get day of week (1=Sunday, ..., 7=Saturday)
-    private int getDayOfWeek(Date date) {
-        java.util.Calendar c = java.util.Calendar.getInstance();
-        c.setTime(date);
-        return c.get(java.util.Calendar.DAY_OF_WEEK);
-    }
-    
-    
-    // Helper method
-    private Time addMinutesToTime(Time time, int minutesToAdd) {
-        long millis = time.getTime();
-        long extraMillis = minutesToAdd * 60 * 1000;
-        return new Time(millis + extraMillis);
-    }
-
-    
     /**
      * Attempts to cancel a reservation using only the confirmation code.
      * <p>
@@ -0,0 +1,194 @@
+package controllers;
+
+import JDBC.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resident view of the restaurant's opening hours.
+ * <p>
+ * The schedule table holds two kinds of rows: REGULAR rows keyed by weekday name ("Monday")
+ * and SPECIAL rows keyed by ISO date ("2026-01-01"). The calendar loads the whole table once,
+ * parses every time into minutes after midnight, and answers "what are the hours on date D"
+ * with one hash lookup for special dates and one array lookup for the weekday.
+ * A special date always wins over its weekday; a weekday without a row is open all day (failsafe).
+ * <p>
+ * The calendar must be reloaded after every write to the schedule table.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ScheduleCalendar {
+
+    /** Last minute of the day, used as closing time when nothing else is known. */
+    public static final int END_OF_DAY = 23 * 60 + 59;
+
+    /** Hours used for a weekday that has no row in the schedule table. */
+    private static final Hours ALL_DAY = new Hours(0, END_OF_DAY, false, false);
+
+    /** The single instance of this class. */
+    private static final ScheduleCalendar instance = new ScheduleCalendar();
+
+    /** Current schedule. Replaced as a whole on reload, so readers never see a half-built one. */
+    private volatile Snapshot snapshot = null;
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private ScheduleCalendar() {}
+
+    /**
+     * @return The singleton ScheduleCalendar instance.
+     */
+    public static ScheduleCalendar getInstance() {
+        return instance;
+    }
+
+    // =========================================================================
+    // HOURS
+    // =========================================================================
+
+    /**
+     * Effective opening hours of one date, in minutes after midnight.
+     */
+    public static final class Hours {
+        private final int openMinute;
+        private final int closeMinute;
+        private final boolean closed;
+        private final boolean special;
+
+        Hours(int openMinute, int closeMinute, boolean closed, boolean special) {
+            this.openMinute = openMinute;
+            this.closeMinute = closeMinute;
+            this.closed = closed;
+            this.special = special;
+        }
+
+        /** @return Opening time in minutes after midnight. */
+        public int getOpenMinute() { return openMinute; }
+
+        /** @return Closing time in minutes after midnight. */
+        public int getCloseMinute() { return closeMinute; }
+
+        /** @return true if the restaurant is closed for the whole day. */
+        public boolean isClosed() { return closed; }
+
+        /** @return true if these hours come from a SPECIAL date rather than the weekday. */
+        public boolean isSpecial() { return special; }
+
+        /**
+         * @param minute Minutes after midnight.
+         * @return true if the restaurant is open on that minute (opening and closing time included).
+         */
+        public boolean contains(int minute) {
+            return !closed && minute >= openMinute && minute <= closeMinute;
+        }
+    }
+
+    /** Special dates plus the seven weekdays (index 0 = Monday), built aside and published at once. */
+    private static final class Snapshot {
+        final Map<LocalDate, Hours> specialDates = new HashMap<>();
+        final Hours[] weekdays = new Hours[7];
+    }
+
+    // =========================================================================
+    // LOOKUP
+    // =========================================================================
+
+    /**
+     * Resolves the effective hours of a date.
+     * @param date The date.
+     * @return The SPECIAL hours of that date if any, otherwise the REGULAR hours of its weekday.
+     */
+    public Hours resolve(LocalDate date) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            reload();
+            current = snapshot;
+            if (current == null) return ALL_DAY; // Database unreachable, fail open like before
+        }
+        Hours hours = current.specialDates.get(date);
+        if (hours != null) return hours;
+        hours = current.weekdays[date.getDayOfWeek().getValue() - 1];
+        return hours != null ? hours : ALL_DAY;
+    }
+
+    /**
+     * @param date The date.
+     * @param minute Minutes after midnight.
+     * @return true if the restaurant is open on that date and minute.
+     */
+    public boolean isOpenAt(LocalDate date, int minute) {
+        return resolve(date).contains(minute);
+    }
+
+    // =========================================================================
+    // LOADING
+    // =========================================================================
+
+    /**
+     * Re-reads the schedule table. Must be called after any schedule save / delete.
+     * If the table can not be read, the previous schedule stays in place.
+     */
+    public synchronized void reload() {
+        Snapshot loaded = new Snapshot();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT identifier, open_time, close_time, is_closed FROM schedule");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                add(loaded, rs.getString("identifier"), rs.getString("open_time"),
+                    rs.getString("close_time"), rs.getBoolean("is_closed"));
+            }
+        } catch (SQLException e) {
+            System.err.println("[ScheduleCalendar] Failed to load schedule: " + e.getMessage());
+            return;
+        }
+        snapshot = loaded;
+        System.out.println("[ScheduleCalendar] Loaded " + loaded.specialDates.size() + " special dates.");
+    }
+
+    /**
+     * Files one schedule row under its date or weekday. The identifier's shape decides the kind of row.
+     */
+    private static void add(Snapshot target, String identifier, String open, String close, boolean closed) {
+        if (identifier == null) return;
+        String id = identifier.trim();
+        try {
+            LocalDate date = LocalDate.parse(id);
+            target.specialDates.put(date, new Hours(toMinute(open), toMinute(close), closed, true));
+            return;
+        } catch (DateTimeParseException notADate) {
+            // Not a special date, try a weekday name
+        }
+        try {
+            DayOfWeek day = DayOfWeek.valueOf(id.toUpperCase(Locale.ROOT));
+            target.weekdays[day.getValue() - 1] = new Hours(toMinute(open), toMinute(close), closed, false);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ScheduleCalendar] Ignoring unknown schedule identifier: " + identifier);
+        }
+    }
+
+    /**
+     * Parses "HH:mm" or "HH:mm:ss" into minutes after midnight.
+     * @return The minute, or 0 if the value is missing or malformed.
+     */
+    static int toMinute(String time) {
+        if (time == null || time.trim().isEmpty()) return 0;
+        try {
+            LocalTime t = LocalTime.parse(time.trim());
+            return t.getHour() * 60 + t.getMinute();
+        } catch (DateTimeParseException e) {
+            System.err.println("Error parsing time: " + time + ". Defaulting to 00:00");
+            return 0;
+        }
+    }
+}
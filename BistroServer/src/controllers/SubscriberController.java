@@ -17,13 +17,11 @@ import java.util.ArrayList;
  */
 public class SubscriberController {
 
-    private Connection conn;
-
     /**
-     * Initializes the controller with a database connection.
+     * Initializes the controller.
+     * Database connections are borrowed from the pool per operation.
      */
     public SubscriberController() {
-        this.conn = DatabaseConnection.getInstance().getConnection();
     }
 
     /**
@@ -32,11 +30,10 @@ public class SubscriberController {
      */
     public ArrayList<User> getAllSubscribers() {
         ArrayList<User> subscribers = new ArrayList<>();
-        if (conn == null) return subscribers;
-
         String query = "SELECT * FROM users WHERE user_type = 'SUBSCRIBER'";
         
-        try (PreparedStatement ps = conn.prepareStatement(query);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
              ResultSet rs = ps.executeQuery()) {
             
             while (rs.next()) {
@@ -70,11 +67,10 @@ public class SubscriberController {
      * @return true if updated successfully.
      */
     public boolean updateSubscriberDetails(User user) {
-        if (conn == null) return false;
-
         String query = "UPDATE users SET phone_number = ?, email = ? WHERE user_id = ?";
         
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, user.getPhoneNumber());
             ps.setString(2, user.getEmail());
             ps.setInt(3, user.getUserId()); // Use the internal DB ID for safety
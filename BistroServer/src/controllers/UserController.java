@@ -16,13 +16,11 @@ import java.sql.SQLException;
  */
 public class UserController {
 
-    private Connection conn;
-
     /**
-     * Initializes the controller with a database connection.
+     * Initializes the controller.
+     * Database connections are borrowed from the pool per operation.
      */
     public UserController() {
-        this.conn = DatabaseConnection.getInstance().getConnection();
     }
 
     /**
@@ -32,8 +30,6 @@ public class UserController {
      * @return Email address string.
      */
     public String getEmailByIdentifier(String identifier) {
-        if (conn == null) return null;
-        
         int subId = -1;
         try {
             subId = Integer.parseInt(identifier);
@@ -43,7 +39,8 @@ public class UserController {
 
         String query = "SELECT email FROM users WHERE phone_number = ? OR email = ? OR subscriber_number = ?";
         
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, identifier);
             ps.setString(2, identifier);
             ps.setInt(3, subId);
@@ -68,9 +65,9 @@ public class UserController {
      * @return User object.
      */
     public User getUserById(int userId) {
-        if (conn == null) return null;
         String query = "SELECT * FROM users WHERE user_id = ?";
-        try (java.sql.PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             java.sql.PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, userId);
             try (java.sql.ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -146,14 +143,10 @@ public class UserController {
 
         // --- 2. DATABASE AUTHENTICATION (Subscribers) ---
         
-        if (conn == null) {
-            System.err.println("Error: No DB Connection.");
-            return null;
-        }
-        
         String query = "SELECT * FROM users WHERE username = ?";
         
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, username);
             
             try (ResultSet rs = ps.executeQuery()) {
@@ -202,11 +195,10 @@ public class UserController {
      * @return The email string if found, otherwise null.
      */
     public String getEmailByContact(String contactInfo) {
-        if (conn == null) return null;
-        
         String query = "SELECT email FROM users WHERE phone_number = ? OR email = ?";
         
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, contactInfo);
             ps.setString(2, contactInfo);
             
@@ -232,7 +224,6 @@ public class UserController {
      * @return The User object if found, null otherwise.
      */
     public User getSubscriber(String subscriberIdString) {
-        if (conn == null) return null;
         User user = null;
 
         try {
@@ -242,7 +233,8 @@ public class UserController {
             // 2. Query the users table
             String query = "SELECT * FROM users WHERE subscriber_number = ?";
             
-            try (PreparedStatement ps = conn.prepareStatement(query)) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement ps = conn.prepareStatement(query)) {
                 ps.setInt(1, subId);
                 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -271,9 +263,9 @@ public class UserController {
     public User getUserByPhone(String phone) {
         User user = null;
         
-        try {
-            String searchSQL = "SELECT * FROM users WHERE phone_number = ?";
-            PreparedStatement searchStmt = conn.prepareStatement(searchSQL);
+        String searchSQL = "SELECT * FROM users WHERE phone_number = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement searchStmt = conn.prepareStatement(searchSQL)) {
             searchStmt.setString(1, phone);
             ResultSet rs = searchStmt.executeQuery();
 
@@ -309,12 +301,11 @@ public class UserController {
      * @return true if successful (either registered OR already exists).
      */
     public boolean createCasualRecord(String phone, String email) {
-        if (conn == null) return false;
-
         // --- STEP 1: Check if this phone number already exists ---
         String checkQuery = "SELECT * FROM users WHERE phone_number = ?";
         
-        try (PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
             checkStmt.setString(1, phone);
             try (ResultSet rs = checkStmt.executeQuery()) {
                 if (rs.next()) {
@@ -334,7 +325,8 @@ public class UserController {
         String insertQuery = "INSERT INTO users (phone_number, username, user_type, password, first_name, last_name, email) " +
                              "VALUES (?, ?, 'CASUAL', 'casual', 'Guest', 'Diner', ?)";
         
-        try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
             stmt.setString(1, phone); // phone_number
             stmt.setString(2, phone); // username (using phone as username for casuals)
             stmt.setString(3, email);
@@ -348,38 +340,12 @@ public class UserController {
     }
     
     /**
-     * Generates a unique 4-digit confirmation code.
-     * Ensures code uniqueness by checking database.
-     * @return Unique 4-digit code.
+     * Generates a confirmation code that no live order or waiting-list entry holds.
+     * Served from memory by the {@link ConfirmationCodeAllocator}; the width comes from CODE_DIGITS.
+     * @return Unique code, or null if every code is currently in use.
      */
     public String generateConfirmationCode() {
-    	String code;
-        boolean isUnique = false;
-        
-        // Loop until we find a code that doesn't exist in the DB
-        do {
-            code = String.format("%04d", new java.util.Random().nextInt(10000));
-            
-            // Check database for existence
-            // Adjust "orders" to your actual table name if different (e.g., "reservations")
-            String query = "SELECT confirmation_code FROM orders WHERE confirmation_code = ?";
-            
-            try (PreparedStatement ps = conn.prepareStatement(query)) {
-                ps.setString(1, code);
-                try (ResultSet rs = ps.executeQuery()) {
-                    // If rs.next() is false, the code is not found -> it is unique
-                    if (!rs.next()) {
-                        isUnique = true;
-                    }
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                // In case of error, break to avoid infinite loop (or handle appropriately)
-                break; 
-            }
-        } while (!isUnique);
-        
-        return code;
+        return ConfirmationCodeAllocator.getInstance().allocate();
     }
     /**
      * Helper method to map a SQL ResultSet row to a User object.
@@ -412,8 +378,6 @@ public class UserController {
      * @return The registered User object with generated ID.
      */
     public User registerNewSubscriber(User user) {
-        if (conn == null) return null;
-
         // 1. Generate a random 6-digit subscriber number (100000 - 999999)
         int subNum = 100000 + new java.util.Random().nextInt(900000);
 
@@ -421,7 +385,8 @@ public class UserController {
         String query = "INSERT INTO users (first_name, last_name, phone_number, email, username, password, user_type, subscriber_number) " +
                        "VALUES (?, ?, ?, ?, ?, ?, 'SUBSCRIBER', ?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(query, java.sql.Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query, java.sql.Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, user.getFirstName());
             ps.setString(2, user.getLastName());
             ps.setString(3, user.getPhoneNumber());
@@ -4,9 +4,14 @@ import JDBC.DatabaseConnection;
 import common.WaitingList;
 
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 
 /**
@@ -17,13 +22,11 @@ import java.util.ArrayList;
  */
 public class WaitingListController {
 
-    private Connection conn;
-
     /**
-     * Initializes the controller with a database connection.
+     * Initializes the controller.
+     * Database connections are borrowed from the pool per operation.
      */
     public WaitingListController() {
-        this.conn = DatabaseConnection.getInstance().getConnection();
     }
 
     /**
@@ -32,10 +35,9 @@ public class WaitingListController {
      */
     public ArrayList<WaitingList> getAllWaitingList() {
         ArrayList<WaitingList> list = new ArrayList<>();
-        if (conn == null) return list;
-
         String query = "SELECT * FROM waiting_list";
-        try (PreparedStatement ps = conn.prepareStatement(query);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(query);
              ResultSet rs = ps.executeQuery()) {
             
             while (rs.next()) {
@@ -68,11 +70,10 @@ public class WaitingListController {
      * @return Status string indicating outcome.
      */
     public String addToWaitingList(WaitingList wlData) {
-        if (conn == null) return "ERROR";
-
         // --- STEP 1: Check if User is already waiting ---
         String checkQuery = "SELECT waiting_id FROM waiting_list WHERE user_id = ? AND status = 'WAITING'";
-        try (PreparedStatement psCheck = conn.prepareStatement(checkQuery)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement psCheck = conn.prepareStatement(checkQuery)) {
             psCheck.setInt(1, wlData.getUserId());
             try (ResultSet rs = psCheck.executeQuery()) {
                 if (rs.next()) return "DUPLICATE"; 
@@ -80,37 +81,56 @@ public class WaitingListController {
         } catch (SQLException e) { return "ERROR"; }
 
         // --- STEP 2: CHECK FOR AVAILABLE TABLE (Instant Seating Rule) ---
-        // Look for a table that fits the group and is currently FREE
-        String findTable = "SELECT table_id FROM restaurant_tables " +
-                           "WHERE status = 'AVAILABLE' AND seats >= ? " +
-                           "ORDER BY seats ASC LIMIT 1"; // 'ASC' to get the smallest fitting table (efficiency)
-
-        try (PreparedStatement psFind = conn.prepareStatement(findTable)) {
-            psFind.setInt(1, wlData.getNumOfDiners());
-            ResultSet rsTable = psFind.executeQuery();
-
-            if (rsTable.next()) {
-                // FOUND A TABLE! Assign it immediately.
-                int tableId = rsTable.getInt("table_id");
-                UserController userController = new UserController();
-                String code = userController.generateConfirmationCode();
+        // Claim the smallest fitting FREE table and open the order in one transaction,
+        // so a concurrent check-in or promotion can not be given the same table
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            int[] table;
+            int orderId = -1;
+            String code = null;
+            conn.setAutoCommit(false);
+            try {
+                // A. Mark Table as OCCUPIED (only if it is still AVAILABLE)
+                table = ReservationController.claimFreeTable(conn, wlData.getUserId(), wlData.getNumOfDiners(), "OCCUPIED");
+                if (table != null) {
+                    UserController userController = new UserController();
+                    code = userController.generateConfirmationCode();
+                    if (code == null) {
+                        conn.rollback();
+                        return "ERROR";
+                    }
 
-                // A. Mark Table as OCCUPIED
-                String updateTable = "UPDATE restaurant_tables SET status = 'OCCUPIED', user_id = ? WHERE table_id = ?";
-                try (PreparedStatement psUpd = conn.prepareStatement(updateTable)) {
-                    psUpd.setInt(1, wlData.getUserId());
-                    psUpd.setInt(2, tableId);
-                    psUpd.executeUpdate();
+                    // B. Create an ACTIVE ORDER (So they can pay later)
+                    String createOrder = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code) " +
+                            "VALUES (?, CURDATE(), CURTIME(), ?, 'ACTIVE', ?)";
+                    try (PreparedStatement psOrd = conn.prepareStatement(createOrder, Statement.RETURN_GENERATED_KEYS)) {
+                        psOrd.setInt(1, wlData.getUserId());
+                        psOrd.setInt(2, wlData.getNumOfDiners());
+                        psOrd.setString(3, code);
+                        psOrd.executeUpdate();
+                        try (ResultSet keys = psOrd.getGeneratedKeys()) {
+                            if (keys.next()) orderId = keys.getInt(1);
+                        }
+                    }
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                if (code != null) ConfirmationCodeAllocator.getInstance().release(code); // Never stored
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
 
-                // B. Create an ACTIVE ORDER (So they can pay later)
-                String createOrder = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code) " +
-                        "VALUES (?, CURDATE(), CURTIME(), ?, 'ACTIVE', ?)";
-                try (PreparedStatement psOrd = conn.prepareStatement(createOrder)) {
-                    psOrd.setInt(1, wlData.getUserId());
-                    psOrd.setInt(2, wlData.getNumOfDiners());
-                    psOrd.setString(3, code);
-                    psOrd.executeUpdate();
+            if (table != null) {
+                int tableId = table[0];
+                // Keep the occupancy engine in sync (CURDATE()/CURTIME() on the server clock)
+                if (orderId != -1) {
+                    OccupancyEngine.getInstance().addBooking(orderId,
+                            Date.valueOf(LocalDate.now()), Time.valueOf(LocalTime.now()),
+                            wlData.getNumOfDiners(), code);
+                    ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(false,
+                            orderId, wlData.getUserId(), wlData.getNumOfDiners(), LocalDate.now(),
+                            "ACTIVE", tableId, table[1], null));
                 }
                 
                 System.out.println("Log: User " + wlData.getUserId() + " skipped waiting list -> Assigned Table " + tableId + ". Code: " + code);
@@ -128,9 +148,11 @@ public class WaitingListController {
         
         UserController userController = new UserController();
         String code = userController.generateConfirmationCode();
+        if (code == null) return "ERROR";
         wlData.setCode(code); // Update object with code
         
-        try (PreparedStatement ps = conn.prepareStatement(insertWait)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(insertWait, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, wlData.getUserId());
             ps.setDate(2, wlData.getDateRequested());
             ps.setTime(3, wlData.getTimeRequested());
@@ -139,10 +161,18 @@ public class WaitingListController {
             ps.setString(6, code);
             
             ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(true,
+                            keys.getInt(1), wlData.getUserId(), wlData.getNumOfDiners(),
+                            wlData.getDateRequested().toLocalDate(), wlData.getStatus(), -1, 0, null));
+                }
+            }
             return "WAITING"; // Successfully added to list
             
         } catch (SQLException e) {
             e.printStackTrace();
+            ConfirmationCodeAllocator.getInstance().release(code); // Never stored
             return "ERROR";
         }
     }
@@ -153,12 +183,25 @@ public class WaitingListController {
      * @return true if successful.
      */
     public boolean exitWaitingList(int userId) {
-    	String sql = "UPDATE waiting_list SET status = 'CANCELLED' WHERE user_id = ? AND status = 'WAITING'";
+    	String find = "SELECT waiting_id, confirmation_code FROM waiting_list WHERE user_id = ? AND status = 'WAITING'";
+    	String sql = "UPDATE waiting_list SET status = 'CANCELLED' WHERE waiting_id = ? AND status = 'WAITING'";
         
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, userId);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement psFind = conn.prepareStatement(find);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            psFind.setInt(1, userId);
             
-            int rowsAffected = ps.executeUpdate();
+            // Cancel entry by entry so only codes that really left the list are given back
+            int rowsAffected = 0;
+            try (ResultSet rs = psFind.executeQuery()) {
+                while (rs.next()) {
+                    ps.setInt(1, rs.getInt("waiting_id"));
+                    if (ps.executeUpdate() > 0) {
+                        rowsAffected++;
+                        ConfirmationCodeIndex.getInstance().retire(rs.getString("confirmation_code"));
+                    }
+                }
+            }
             
             // returns TRUE if they were in the list (and are now out)
             // returns FALSE if they weren't in the list at all
@@ -183,7 +226,8 @@ public class WaitingListController {
                           "AND num_of_diners <= ? " + 
                           "ORDER BY num_of_diners DESC, waiting_id ASC LIMIT 1";
                           
-        try (PreparedStatement ps = conn.prepareStatement(findNext)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(findNext)) {
             ps.setInt(1, vacatedTableSeats);
             ResultSet rs = ps.executeQuery();
             
@@ -195,42 +239,41 @@ public class WaitingListController {
                 // Get the Confirmation Code from DB ---
                 String code = rs.getString("confirmation_code"); 
 
-                // A. Find a suitable 'AVAILABLE' table
-                int tableToLock = -1;
-                String findTableSQL = "SELECT table_id FROM restaurant_tables " +
-                                      "WHERE status = 'AVAILABLE' AND seats >= ? " +
-                                      "ORDER BY seats ASC LIMIT 1";
-                
-                try (PreparedStatement psTable = conn.prepareStatement(findTableSQL)) {
-                    psTable.setInt(1, diners);
-                    ResultSet rsTable = psTable.executeQuery();
-                    if (rsTable.next()) {
-                        tableToLock = rsTable.getInt("table_id");
+                // Hold the table and mark the entry NOTIFIED in one transaction. Both writes are conditional:
+                // a table claimed meanwhile by a check-in is skipped, and an entry that left the list meanwhile
+                // releases the table again.
+                int[] table;
+                conn.setAutoCommit(false);
+                try {
+                    // A. LOCK the smallest fitting 'AVAILABLE' table (Status='RESERVED', User=The Waiting Person)
+                    table = ReservationController.claimFreeTable(conn, userId, diners, "RESERVED");
+                    if (table != null) {
+                        // B. Update Waiting List Status
+                        String updateStatus = "UPDATE waiting_list SET status = 'NOTIFIED' WHERE waiting_id = ? AND status = 'WAITING'";
+                        try (PreparedStatement psUpdate = conn.prepareStatement(updateStatus)) {
+                            psUpdate.setInt(1, waitingId);
+                            if (psUpdate.executeUpdate() != 1) table = null;
+                        }
                     }
+                    if (table != null) conn.commit(); else conn.rollback();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
-                
-                if (tableToLock != -1) {
-                    // B. LOCK THE TABLE (Status='RESERVED', User=The Waiting Person)
-                    String lockTableSQL = "UPDATE restaurant_tables SET status = 'RESERVED', user_id = ? WHERE table_id = ?";
-                    try (PreparedStatement psLock = conn.prepareStatement(lockTableSQL)) {
-                        psLock.setInt(1, userId);
-                        psLock.setInt(2, tableToLock);
-                        psLock.executeUpdate();
-                    }
 
-                    // C. Update Waiting List Status
-                    String updateStatus = "UPDATE waiting_list SET status = 'NOTIFIED' WHERE waiting_id = ?";
-                    try (PreparedStatement psUpdate = conn.prepareStatement(updateStatus)) {
-                        psUpdate.setInt(1, waitingId);
-                        psUpdate.executeUpdate();
-                    }
+                if (table != null) {
+                    int lockedTable = table[0], lockedSeats = table[1];
+                    ConfirmationCodeIndex.getInstance().update(code,
+                            e -> e.withStatus("NOTIFIED").withTable(lockedTable, lockedSeats));
 
-                    // D. Send Notification
+                    // C. Send Notification
                     controllers.NotificationController nc = new controllers.NotificationController();
                     // Now 'code' is defined, so this line works
                     nc.sendWaitingListAlert(userId, code);
                     
-                    System.out.println("Log: Table " + tableToLock + " is now RESERVED for User " + userId + " (15 min hold).");
+                    System.out.println("Log: Table " + lockedTable + " is now RESERVED for User " + userId + " (15 min hold).");
                 }
             } 
         } catch (SQLException e) {
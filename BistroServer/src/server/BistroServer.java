@@ -2,11 +2,13 @@ package server;
 
 import ocsf.server.AbstractServer;
 import ocsf.server.ConnectionToClient;
+import ocsf.server.OverflowPolicy;
 import common.BistroSchedule;
 import common.KryoUtil;
 import common.Message;
 import common.MonthlyReportData;
 import common.Order;
+import common.OrderColumns;
 import common.Table;
 import common.TaskType;
 import common.User;
@@ -15,16 +17,26 @@ import common.WaitingList;
 // Import Controllers
 import controllers.UserController;
 import controllers.NotificationController;
+import controllers.OccupancyEngine;
 import controllers.PaymentController;
 import controllers.ReportController;
+import controllers.CasualUserCleanup;
+import controllers.ConfirmationCodeAllocator;
+import controllers.ConfirmationCodeIndex;
 import controllers.ReservationController;
+import controllers.ScheduleCalendar;
 import controllers.SubscriberController;
 import controllers.WaitingListController;
+import JDBC.ConnectionPool;
 import JDBC.DatabaseConnection;
 
+import com.esotericsoftware.kryo.io.Output;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +67,31 @@ public class BistroServer extends AbstractServer {
     private PaymentController paymentController;
     private ReportController reportController;
 
+    /** Runs request handlers on worker threads, keeping per-connection order. */
+    private RequestDispatcher dispatcher;
+
+    // --- Versioned lists for delta sync ("GET_* since version V") ---
+    private VersionedDataset<Order> ordersData;
+    private VersionedDataset<Table> tablesData;
+    private VersionedDataset<WaitingList> waitingListData;
+    private VersionedDataset<BistroSchedule> scheduleData;
+
+    // --- Single-flight groups: identical concurrent reads share one query and one serialization ---
+    private SingleFlight<String, EncodedMessage> ordersFlight;
+    private SingleFlight<String, EncodedMessage> tablesFlight;
+    private SingleFlight<String, EncodedMessage> waitingListFlight;
+    private SingleFlight<String, EncodedMessage> scheduleFlight;
+
+    // --- Serialized replies of the slow-changing lists, kept until the list changes ---
+    private ResponseCache tablesCache;
+    private ResponseCache scheduleCache;
+
+    /** Pushes FLOOR/ORDERS/WAITING_LIST change events to subscribed staff terminals. */
+    private TopicPublisher publisher;
+
+    /** COLUMNAR_ORDERS=true sends order lists as {@link OrderColumns} instead of ArrayList&lt;Order&gt;. */
+    private final boolean columnarOrders;
+
     /**
      * Constructor. Initializes the server on the specified port and sets up controllers.
      * @param port The port to listen on.
@@ -63,19 +100,69 @@ public class BistroServer extends AbstractServer {
     public BistroServer(int port, ServerEventListener uiListener) {
         super(port);
         this.uiListener = uiListener;
+
+        // TRANSPORT=framed sends Kryo bytes as length-prefixed frames instead of through ObjectOutputStream
+        setFramedTransport("framed".equalsIgnoreCase(ServerConfig.getString("TRANSPORT", "object")));
+
+        // SERVER_CORE=nio serves all clients from a few selector threads (always framed),
+        // SERVER_CORE=virtual reads each client on a virtual thread instead of a platform thread
+        String core = ServerConfig.getString("SERVER_CORE", "threads");
+        if ("nio".equalsIgnoreCase(core)) {
+            setNioReactors(ServerConfig.getInt("NIO_REACTORS", 2));
+        } else if ("virtual".equalsIgnoreCase(core) && !setVirtualThreads(true)) {
+            log("Virtual threads not available on this JVM, using one platform thread per client.");
+        }
+        setBacklog(ServerConfig.getInt("SERVER_BACKLOG", 50));
+
+        // Each client gets its own bounded outbound queue and writer, so a stalled terminal only delays itself.
+        // OUTBOUND_OVERFLOW=disconnect closes a client whose queue is full of replies; drop_oldest discards them instead.
+        String overflow = ServerConfig.getString("OUTBOUND_OVERFLOW", "disconnect");
+        setOutboundQueue(ServerConfig.getInt("OUTBOUND_QUEUE_SIZE", 256),
+                "drop_oldest".equalsIgnoreCase(overflow) ? OverflowPolicy.DROP_OLDEST : OverflowPolicy.DISCONNECT);
+        this.columnarOrders = ServerConfig.getBoolean("COLUMNAR_ORDERS", false);
         
         // Initialize Controllers
         this.userController = new UserController();
         this.reservationController = new ReservationController();
         this.subscriberController = new SubscriberController();
         this.waitingListController = new WaitingListController();
-        this.paymentController = new PaymentController();
+        // Waiting-list promotion runs after the checkout reply; publish what it changes
+        this.paymentController = new PaymentController(() -> {
+            datasetChanged(tablesData);
+            datasetChanged(waitingListData);
+        });
         this.reportController = new ReportController();
+
+        // Versioned lists: reloaded once after a change, then served as deltas to every staff terminal
+        long maxAge = ServerConfig.getLong("DELTA_MAX_AGE_MS", 5000);
+        int history = ServerConfig.getInt("DELTA_HISTORY", 1024);
+        this.ordersData = new VersionedDataset<>("orders", reservationController::getAllOrders, Order::getOrderNumber, maxAge, history);
+        this.tablesData = new VersionedDataset<>("tables", reservationController::getAllTables, Table::getTableId, maxAge, history);
+        this.waitingListData = new VersionedDataset<>("waiting list", waitingListController::getAllWaitingList, WaitingList::getWaitingId, maxAge, history);
+        this.scheduleData = new VersionedDataset<>("schedule", reservationController::getSchedule, BistroSchedule::getIdentifier, maxAge, history);
+
+        // A shared read reply is reused for SINGLE_FLIGHT_MS after it completed (until the next change)
+        long fresh = ServerConfig.getLong("SINGLE_FLIGHT_MS", 250);
+        this.ordersFlight = new SingleFlight<>("orders", fresh);
+        this.tablesFlight = new SingleFlight<>("tables", fresh);
+        this.waitingListFlight = new SingleFlight<>("waiting list", fresh);
+        this.scheduleFlight = new SingleFlight<>("schedule", fresh);
+        long ttl = ServerConfig.getLong("RESPONSE_CACHE_TTL_MS", 300000);
+        this.tablesCache = new ResponseCache("tables", ttl);
+        this.scheduleCache = new ResponseCache("schedule", ttl);
+
+        // Initialize request dispatching
+        this.dispatcher = new RequestDispatcher(this::sendKryoToClient, this::log);
+        // Change events are superseded by the next one, so they may be dropped for a client that falls behind
+        this.publisher = new TopicPublisher((msg, client) -> sendKryoToClient(msg, client, OverflowPolicy.DROP_OLDEST),
+                this::log);
+        registerHandlers();
     }
 
     /**
      * Handles incoming messages from clients.
-     * Expects serialized Kryo byte arrays.
+     * Expects serialized Kryo byte arrays. The message is decoded on the connection thread and
+     * then handed to the {@link RequestDispatcher}, so slow requests never block further reads.
      * @param msg The message object (byte array).
      * @param client The connection to the client sending the message.
      */
@@ -87,12 +174,8 @@ public class BistroServer extends AbstractServer {
             Object deserializedMsg = KryoUtil.deserialize((byte[]) msg);
             
             if (deserializedMsg instanceof Message) {
-                try {
-                    processMessage((Message) deserializedMsg, client);
-                } catch (Exception e) {
-                    log("Error processing message: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                // Step 3: Queue for a worker thread (ordered per connection)
+                dispatcher.dispatch((Message) deserializedMsg, client);
             }
         } else {
             log("Received unknown format from client.");
@@ -100,411 +183,515 @@ public class BistroServer extends AbstractServer {
     }
 
     /**
-     * Main Business Logic Switch.
-     * Routes the decoded Message to the appropriate controller based on TaskType.
-     * @param message The decoded Message object.
-     * @param client The client connection.
+     * Main Business Logic Registry.
+     * Routes every TaskType to the controller method that handles it.
+     * Each handler returns the response for the client (or null if none is sent).
+     * Handlers that modify orders, tables, the waiting list or the schedule are wrapped with
+     * {@link #changing} so the matching versioned lists are reloaded on the next sync request.
+     * The list reads are wrapped with {@link #shared} so identical concurrent reads run once;
+     * the table and schedule replies are also cached until those lists change.
      */
-    private void processMessage(Message message, ConnectionToClient client) {
-        Message response = null;
-        String resultMsg, code, result;
-        boolean success;
-        int tableId;
-
-        switch (message.getTask()) {
-
-            // ===============================================================
-            // USER & LOGIN (Updates UI List)
-            // ===============================================================
-            case LOGIN_REQUEST:
-                log("Processing Login Request from " + client.getInetAddress().getHostAddress());
-                User loginReq = (User) message.getObject();
-                User loggedInUser = userController.loginUser(loginReq.getUsername(), loginReq.getPassword());
-                
-                if (loggedInUser != null) {
-                    // NOTIFY UI: Update the client list with real name and role
-                    if (uiListener != null) {
-                        uiListener.onUserLoggedIn(client, loggedInUser.getUsername(), loggedInUser.getUserType());
-                    }
-                }
+    private void registerHandlers() {
+        // USER & LOGIN
+        dispatcher.register(TaskType.LOGIN_REQUEST, this::handleLogin);
+        dispatcher.register(TaskType.SET_USER, this::handleSetUser);
+        dispatcher.register(TaskType.CREATE_CASUAL, this::handleCreateCasual);
+        dispatcher.register(TaskType.REGISTER_USER, this::handleRegisterUser);
+        dispatcher.register(TaskType.CHECK_USER_EXISTS, this::handleCheckUserExists);
+        dispatcher.register(TaskType.GET_DAILY_ORDERS, this::handleGetDailyOrders);
+        dispatcher.register(TaskType.UPDATE_SUBSCRIBER, this::handleUpdateSubscriber);
+
+        // ORDERS & RESERVATIONS
+        dispatcher.register(TaskType.REQUEST_RESERVATION, changing(this::handleRequestReservation, ordersData));
+        dispatcher.register(TaskType.RESEND_CODE, this::handleResendCode);
+        dispatcher.register(TaskType.GET_ORDERS, shared(this::handleGetOrders, ordersFlight));
+        dispatcher.register(TaskType.GET_ACTIVE_ORDERS, shared(this::handleGetActiveOrders, ordersFlight));
+        dispatcher.register(TaskType.UPDATE_ORDER, changing(this::handleUpdateOrder, ordersData));
+        dispatcher.register(TaskType.CANCEL_ORDER, changing(this::handleCancelOrder, ordersData, waitingListData));
+        dispatcher.register(TaskType.GET_USER_HISTORY, this::handleGetUserHistory);
+
+        // CHECK-IN & WAITING LIST
+        dispatcher.register(TaskType.CHECK_IN_CUSTOMER, changing(this::handleCheckIn, ordersData, tablesData, waitingListData));
+        dispatcher.register(TaskType.ENTER_WAITING_LIST, changing(this::handleEnterWaitingList, waitingListData, ordersData));
+        dispatcher.register(TaskType.EXIT_WAITING_LIST, changing(this::handleExitWaitingList, waitingListData));
+        dispatcher.register(TaskType.GET_WAITING_LIST, shared(this::handleGetWaitingList, waitingListFlight));
+
+        // PAYMENT
+        dispatcher.register(TaskType.GET_BILL, this::handleGetBill);
+        dispatcher.register(TaskType.PAY_BILL, changing(this::handlePayBill, ordersData, tablesData, waitingListData));
+
+        // TABLE MANAGEMENT (shrinking or removing a table, or changing opening hours, can cancel orders)
+        dispatcher.register(TaskType.GET_TABLES, shared(this::handleGetTables, tablesFlight, tablesCache));
+        dispatcher.register(TaskType.UPDATE_TABLE, changing(this::handleUpdateTable, tablesData, ordersData));
+        dispatcher.register(TaskType.ADD_TABLE, changing(this::handleAddTable, tablesData));
+        dispatcher.register(TaskType.REMOVE_TABLE, changing(this::handleRemoveTable, tablesData, ordersData));
+
+        // SCHEDULE / OPENING HOURS
+        dispatcher.register(TaskType.GET_SCHEDULE, shared(this::handleGetSchedule, scheduleFlight, scheduleCache));
+        dispatcher.register(TaskType.SAVE_SCHEDULE_ITEM, changing(this::handleSaveSchedule, scheduleData, ordersData));
+        dispatcher.register(TaskType.DELETE_SCHEDULE_ITEM, changing(this::handleDeleteSchedule, scheduleData));
+
+        // REPORTS
+        dispatcher.register(TaskType.GET_MONTHLY_REPORT, this::handleMonthlyReport);
+        dispatcher.register(TaskType.GET_ALL_SUBSCRIBERS, this::handleGetAllSubscribers);
+
+        // LIVE UPDATES
+        dispatcher.register(TaskType.SUBSCRIBE_FLOOR, (m, c) -> handleSubscribe(c, TaskType.FLOOR_CHANGED));
+        dispatcher.register(TaskType.SUBSCRIBE_ORDERS, (m, c) -> handleSubscribe(c, TaskType.ORDERS_CHANGED));
+        dispatcher.register(TaskType.SUBSCRIBE_WAITING_LIST, (m, c) -> handleSubscribe(c, TaskType.WAITING_LIST_CHANGED));
+        dispatcher.register(TaskType.UNSUBSCRIBE_ALL, this::handleUnsubscribeAll);
+    }
 
-                response = new Message(TaskType.LOGIN_RESPONSE, loggedInUser);
-                sendKryoToClient(response, client);
-                break;
-
-            case SET_USER:
-                log("Retrieving user by phone...");
-                String phone = (String) message.getObject();
-                User user = userController.getUserByPhone(phone);
-                response = new Message(TaskType.SET_USER, user);
-                sendKryoToClient(response, client);
-                break;
-
-            case CREATE_CASUAL:
-                log("Registering/Identifying Casual User...");
-                Object[] obj = (Object[]) message.getObject();
-                String phoneNumber = (String) obj[0];
-                String email = (String) obj[1];
-
-                success = userController.createCasualRecord(phoneNumber,email);
-                
-                if (success) {
-                    // NOTIFY UI: Add casual user to the list
-                    if (uiListener != null) {
-                        uiListener.onUserLoggedIn(client, phoneNumber, "Casual Diner");
-                    }
-                }
-                
-                resultMsg = success ? "Welcome " + phoneNumber : "Error registering casual user";
-                response = new Message(success ? TaskType.SUCCESS : TaskType.FAIL, resultMsg);
-                if (!success)
-                	sendKryoToClient(response, client);
-                break;
-
-            case REGISTER_USER:
-                log("Processing Subscriber Registration...");
-                User subToRegister = (User) message.getObject();
-                User registeredSub = userController.registerNewSubscriber(subToRegister);
-
-                if (registeredSub != null) {
-                    new controllers.NotificationController().sendRegistrationWelcome(registeredSub);
-                    response = new Message(TaskType.REGISTRATION_SUCCESS, registeredSub);
-                } else {
-                    response = new Message(TaskType.FAIL, "Registration failed. User may already exist.");
-                }
-                sendKryoToClient(response, client);
-                break;
-                
-            case CHECK_USER_EXISTS:
-                log("Verifying user existence...");
-                String inputId = (String) message.getObject();
-                User foundUser = userController.getSubscriber(inputId); 
-                if (foundUser == null) {
-                    foundUser = userController.getUserByPhone(inputId);
-                }
-                if (foundUser != null) {
-                    response = new Message(TaskType.USER_FOUND, foundUser);
-                } else {
-                    response = new Message(TaskType.USER_NOT_FOUND, null);
-                }
-                sendKryoToClient(response, client);
-                break;
-                
-            case GET_DAILY_ORDERS:
-                try {
-                    String idForCheckIn = (String) message.getObject();
-                    log("Fetching today's orders for identifier: " + idForCheckIn);
-                    
-                    ArrayList<Order> dailyOrders = reservationController.getTodayOrdersForContact(idForCheckIn);
-                    
-                    response = new Message(TaskType.DAILY_ORDERS_RESULT, dailyOrders);
-                } catch (Exception e) {
-                    log("Error getting daily orders: " + e.getMessage());
-                    response = new Message(TaskType.FAIL, "Error fetching orders.");
-                }
-                sendKryoToClient(response, client);
-                break;
-            case UPDATE_SUBSCRIBER:
-                log("Updating subscriber details...");
-                User userToUpdate = (User) message.getObject();
-                success = subscriberController.updateSubscriberDetails(userToUpdate);
-                response = new Message(success ? TaskType.SUCCESS : TaskType.FAIL, 
-                        success ? "Profile updated!" : "Update failed.");
-                sendKryoToClient(response, client);
-                break;
-
-            // ===============================================================
-            // ORDERS & RESERVATIONS
-            // ===============================================================
-            case REQUEST_RESERVATION:
-                log("Creating New Reservation...");
-                Order order = (Order) message.getObject();
-                result = reservationController.createReservation(order);
-                response = new Message(TaskType.REQUEST_RESERVATION, result);
-	            if (result.startsWith("OK")) {
-	                new controllers.NotificationController(this.uiListener).sendReservationConfirmation(
-	                        order.getUserId(), 
-	                        order.getOrderDate().toString(), 
-	                        order.getOrderTime().toString(), 
-	                        order.getConfirmationCode(), 
-	                        order.getNumberOfDiners()
-	                    );
-                }
-                sendKryoToClient(response, client);
-                break;
+    /**
+     * Wraps a handler that modifies data so the given versioned lists are marked as changed
+     * once it has run (also when it fails, since part of the change may have been written),
+     * and subscribed terminals are told about the new version.
+     */
+    private RequestHandler changing(RequestHandler handler, VersionedDataset<?>... datasets) {
+        return (request, client) -> {
+            try {
+                return handler.handle(request, client);
+            } finally {
+                for (VersionedDataset<?> dataset : datasets) datasetChanged(dataset);
+            }
+        };
+    }
 
-                
-            case RESEND_CODE:
+    /**
+     * Wraps a read handler so requests with the same task and payload (e.g. GET_TABLES since
+     * version V) that arrive together run the handler once. The reply is serialized once as well;
+     * each client only gets its own envelope carrying its request ID.
+     */
+    private RequestHandler shared(RequestHandler handler, SingleFlight<String, EncodedMessage> flight) {
+        return shared(handler, flight, null);
+    }
 
-                String inputIdentifier = (String) message.getObject();
-                log("Processing Lost Code Request for: " + inputIdentifier);
-                String contactInput = (String) message.getObject();
-                log("Client requested lost code recovery for: " + contactInput);
+    /**
+     * Same as {@link #shared(RequestHandler, SingleFlight)}, but the serialized reply is first
+     * looked up in a cache, so a hot read runs no query and no serialization at all.
+     */
+    private RequestHandler shared(RequestHandler handler, SingleFlight<String, EncodedMessage> flight,
+                                  ResponseCache cache) {
+        return (request, client) -> {
+            String key = request.getTask() + ":" + request.getObject();
+            Callable<EncodedMessage> load = () -> flight.get(key, () -> {
+                Message response = handler.handle(request, client);
+                return response == null ? null : EncodedMessage.of(response);
+            });
+            EncodedMessage reply = cache == null ? load.call() : cache.get(key, load);
+            return reply == null ? null : reply.copy();
+        };
+    }
 
-                // 1. Fetch List of Orders (Active/Pending/Approved) using Subscriber ID or Phone
-                ArrayList<Order> ordersList = reservationController.getActiveOrdersForContact(inputIdentifier);
-                // 1. Find ALL active/approved orders for this contact
-                ArrayList<Order> ActiveOrders = reservationController.getActiveOrdersForContact(contactInput);
-                
+    /**
+     * Marks a versioned list as changed and drops the shared read replies built from it.
+     * If terminals subscribed to its topic, the list is reloaded on a publisher thread and
+     * the new version is pushed to them (only if rows changed).
+     */
+    private void datasetChanged(VersionedDataset<?> dataset) {
+        dataset.markDirty();
+        flightOf(dataset).invalidate();
+        if (dataset == tablesData) tablesCache.invalidate();
+        if (dataset == scheduleData) scheduleCache.invalidate();
+        TaskType topic = topicOf(dataset);
+        if (topic != null && publisher.hasSubscribers(topic)) {
+            publisher.publishAsync(topic, dataset::currentVersion);
+        }
+    }
 
-                if (!ordersList.isEmpty()) {
-                    // 2. Resolve Email for Notification (Using the new robust method)
-                    String emailTarget = userController.getEmailByIdentifier(inputIdentifier);
-                    
-                    // Fallback to input if email not found (e.g., if it's a phone number, NotificationController handles SMS simulation)
-                    if (emailTarget == null) emailTarget = inputIdentifier;
-                if (!ActiveOrders.isEmpty()) {
-                    log("Found " + ActiveOrders.size() + " active orders. Resolving email...");
+    private SingleFlight<String, EncodedMessage> flightOf(VersionedDataset<?> dataset) {
+        if (dataset == tablesData) return tablesFlight;
+        if (dataset == ordersData) return ordersFlight;
+        if (dataset == waitingListData) return waitingListFlight;
+        return scheduleFlight;
+    }
 
+    private TaskType topicOf(VersionedDataset<?> dataset) {
+        if (dataset == tablesData) return TaskType.FLOOR_CHANGED;
+        if (dataset == ordersData) return TaskType.ORDERS_CHANGED;
+        if (dataset == waitingListData) return TaskType.WAITING_LIST_CHANGED;
+        return null; // the schedule has no live topic
+    }
 
+    // ===============================================================
+    // USER & LOGIN (Updates UI List)
+    // ===============================================================
 
-                    log("Found " + ordersList.size() + " active/pending orders. Sending details to: " + emailTarget);
+    private Message handleLogin(Message message, ConnectionToClient client) {
+        log("Processing Login Request from " + client.getInetAddress().getHostAddress());
+        User loginReq = (User) message.getObject();
+        User loggedInUser = userController.loginUser(loginReq.getUsername(), loginReq.getPassword());
+        
+        if (loggedInUser != null) {
+            // NOTIFY UI: Update the client list with real name and role
+            if (uiListener != null) {
+                uiListener.onUserLoggedIn(client, loggedInUser.getUsername(), loggedInUser.getUserType());
+            }
+        }
 
-                    // 2. Resolve the REAL email address
-                    String realEmail = userController.getEmailByContact(contactInput);
-                    String targetContact = (realEmail != null) ? realEmail : contactInput;
-                    
-                    // 3. Send Notification (Pass 'this.uiListener' for UI logging)
-                    new controllers.NotificationController(this.uiListener)
-                        .sendLostCodes(targetContact, ActiveOrders);
+        return new Message(TaskType.LOGIN_RESPONSE, loggedInUser);
+    }
 
-                    
+    private Message handleSetUser(Message message, ConnectionToClient client) {
+        log("Retrieving user by phone...");
+        String phone = (String) message.getObject();
+        User user = userController.getUserByPhone(phone);
+        return new Message(TaskType.SET_USER, user);
+    }
 
-                    // 3. Send List Notification
-                    // Ensure you pass 'this.uiListener' if your NotificationController supports logging to UI
-                    new controllers.NotificationController(this.uiListener).sendLostCodes(emailTarget, ordersList);
-                    
+    private Message handleCreateCasual(Message message, ConnectionToClient client) {
+        log("Registering/Identifying Casual User...");
+        Object[] obj = (Object[]) message.getObject();
+        String phoneNumber = (String) obj[0];
+        String email = (String) obj[1];
 
-                    response = new Message(TaskType.SUCCESS, "Reservation details sent to your registered contact.");
-                } else {
-                    log("No active bookings found for identifier: " + inputIdentifier);
-                    response = new Message(TaskType.FAIL, "No active or pending bookings found.");
+        boolean success = userController.createCasualRecord(phoneNumber,email);
+        
+        if (success) {
+            // NOTIFY UI: Add casual user to the list
+            if (uiListener != null) {
+                uiListener.onUserLoggedIn(client, phoneNumber, "Casual Diner");
+            }
+            return null; // Only failures are reported back
+        }
+        
+        return new Message(TaskType.FAIL, "Error registering casual user");
+    }
 
-                    log("No active bookings found for: " + contactInput);
-                    response = new Message(TaskType.FAIL, "No active bookings found for this contact.");
+    private Message handleRegisterUser(Message message, ConnectionToClient client) {
+        log("Processing Subscriber Registration...");
+        User subToRegister = (User) message.getObject();
+        User registeredSub = userController.registerNewSubscriber(subToRegister);
 
-                }
-                sendKryoToClient(response, client);
-                break;}
-            case GET_ORDERS:
-                // log("Fetching all orders..."); 
-                ArrayList<Order> orders = reservationController.getAllOrders();
-                response = new Message(TaskType.GET_ORDERS, orders);
-                sendKryoToClient(response, client);
-                break;
-                
-            case GET_ACTIVE_ORDERS:
-                // log("Fetching all orders..."); 
-                ArrayList<Order> activeOrders = reservationController.getActiveOrders();
-                response = new Message(TaskType.GET_ORDERS, activeOrders);
-                sendKryoToClient(response, client);
-                break;
-
-            case UPDATE_ORDER:
-                log("Updating Order...");
-                Order orderUpdate = (Order) message.getObject();
-                success = reservationController.updateOrder(orderUpdate);
-                response = new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
-                sendKryoToClient(response, client);
-                break;
-
-            case CANCEL_ORDER:
-                log("Cancelling Order...");
-                Object[] cancelData = (Object[]) message.getObject();
-                String cCode = (String) cancelData[0];
-                int cUserId = (int) cancelData[1];
-                
-                success = reservationController.cancelOrder(cCode, cUserId);
-                
-                if (success) {
-                    // Passing 'this.uiListener' ensures the server log updates in the UI
-                    new controllers.NotificationController(this.uiListener)
-                        .sendCancellationNotification(cUserId, cCode);
-                }
-                response = new Message(success ? TaskType.SUCCESS : TaskType.FAIL, 
-                                       success ? "Order Canceled" : "Failed to Cancel");
-                sendKryoToClient(response, client);
-                break;
-                
-            case GET_USER_HISTORY:
-                log("Fetching history for user...");
-                int historyUserId = (int) message.getObject();
-                ArrayList<Order> history = reservationController.getOrdersByUserId(historyUserId);
-                response = new Message(TaskType.HISTORY_IMPORTED, history);
-                sendKryoToClient(response, client);
-                break;
-
-            // ===============================================================
-            // CHECK-IN & WAITING LIST
-            // ===============================================================
-            case CHECK_IN_CUSTOMER:
-                code = (String) message.getObject();
-                log("Check-In attempt: " + code);
-                
-                tableId = reservationController.checkIn(code);
-
-                if (tableId > 0) {
-                    log("Check-In Approved. Table " + tableId);
-                    response = new Message(TaskType.SUCCESS, "Check-in Successful! Table " + tableId); 
-                } 
-                else if (tableId == -2) {
-                    response = new Message(TaskType.FAIL, "Invalid confirmation code.");
-                } 
-                else if (tableId == -3) {
-                    response = new Message(TaskType.FAIL, "Your reservation is for a different day.");
-                } 
-                else if (tableId == -4) {
-                    response = new Message(TaskType.FAIL, "Your order is not approved.");
-                } 
-                else if (tableId == -5) {
-                    response = new Message(TaskType.FAIL, "No tables available, please wait.");
-                } 
-                else {
-                    response = new Message(TaskType.FAIL, "Database error.");
-                }
-                sendKryoToClient(response, client);
-                break;
-
-            case ENTER_WAITING_LIST:
-                WaitingList wlItem = (WaitingList) message.getObject();
-                
-                
-                String result1 = waitingListController.addToWaitingList(wlItem);
-                
-                
-                response = new Message(TaskType.WAITING_LIST_ADDED, result1);
-                sendKryoToClient(response, client);
-                break;
-                
-            case EXIT_WAITING_LIST:
-                log("Exiting Waiting List...");
-                int userId = (int) message.getObject();
-                success = waitingListController.exitWaitingList(userId);
-                resultMsg = success ? "You have successfully left the waiting list" : "You are not currently in the waiting list";                
-                response = new Message(success ? TaskType.SUCCESS : TaskType.FAIL, resultMsg);
-                sendKryoToClient(response, client);
-                break;
-
-            case GET_WAITING_LIST:
-                ArrayList<WaitingList> waitList = waitingListController.getAllWaitingList();
-                response = new Message(TaskType.GET_WAITING_LIST, waitList);
-                sendKryoToClient(response, client);
-                break;
-
-            // ===============================================================
-            // PAYMENT
-            // ===============================================================
-            case GET_BILL:
-                log("Retrieving Bill...");
-                code = (String) message.getObject();
-                
-                Object[] billData = paymentController.getBillData(code);
-                
-                success = (billData != null);
-                
-                response = new Message(success ? TaskType.GET_BILL : TaskType.FAIL, 
-                                       success ? billData : "Invalid Code or Order not Active");
-                sendKryoToClient(response, client);
-                break;
-
-            case PAY_BILL:
-                log("Processing Payment...");
-                code = (String) message.getObject();
-                success = paymentController.payBill(code);
-                response = new Message(success ? TaskType.SUCCESS : TaskType.FAIL, 
-                                       success ? "Payment Successful" : "Payment Failed");
-                sendKryoToClient(response, client);
-                break;
-
-            // ===============================================================
-            // TABLE MANAGEMENT
-            // ===============================================================
-            case GET_TABLES:
-                ArrayList<Table> tables = reservationController.getAllTables();
-                response = new Message(TaskType.GET_TABLES, tables);
-                sendKryoToClient(response, client);
-                break;
-
-            case UPDATE_TABLE:
-                log("Updating Table...");
-                Table tableToUpdate = (Table) message.getObject();
-                success = reservationController.updateTable(tableToUpdate);
-                response = new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
-                sendKryoToClient(response, client);
-                break;
-
-            case ADD_TABLE:
-                log("Adding Table...");
-                Table newTable = (Table) message.getObject();
-                success = reservationController.addTable(newTable);
-                response = new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
-                sendKryoToClient(response, client);
-                break;
-
-            case REMOVE_TABLE:
-                log("Removing Table...");
-                tableId = (int) message.getObject();
-                success = reservationController.removeTable(tableId);
-                response = new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
-                sendKryoToClient(response, client);
-                break;
-
-            // ===============================================================
-            // SCHEDULE / OPENING HOURS
-            // ===============================================================
-            case GET_SCHEDULE:
-                ArrayList<BistroSchedule> schedule = reservationController.getSchedule();
-                response = new Message(TaskType.GET_SCHEDULE, schedule);
-                sendKryoToClient(response, client);
-                break;
-
-            case SAVE_SCHEDULE_ITEM:
-                log("Saving Schedule...");
-                ArrayList<BistroSchedule> list = (ArrayList<BistroSchedule>) message.getObject();
-                boolean allSaved = true;
-                for (BistroSchedule item : list) {
-                    if (!reservationController.saveScheduleItem(item)) allSaved = false;
-                }
-                response = new Message(allSaved ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
-                sendKryoToClient(response, client);
-                break;
-
-            case DELETE_SCHEDULE_ITEM:
-                log("Deleting Schedule Item...");
-                String id = (String) message.getObject();
-                success = reservationController.deleteScheduleItem(id);
-                response = new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
-                sendKryoToClient(response, client);
-                break;
-
-            // ===============================================================
-            // REPORTS
-            // ===============================================================
-            case GET_MONTHLY_REPORT:
-                log("Generating Monthly Report...");
-                try {
-                    String payload = (String) message.getObject();
-                    String[] parts = payload.split("-");
-                    MonthlyReportData reportData = reportController.generateMonthlyReport(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
-                    response = new Message(TaskType.REPORT_GENERATED, reportData);
-                } catch (Exception e) {
-                    log("Error generating report: " + e.getMessage());
-                    response = new Message(TaskType.ERROR, "Report Generation Failed");
-                }
-                sendKryoToClient(response, client);
-                break;
-                
-            case GET_ALL_SUBSCRIBERS:
-                ArrayList<User> subs = subscriberController.getAllSubscribers();
-                response = new Message(TaskType.GET_ALL_SUBSCRIBERS, subs);
-                sendKryoToClient(response, client);
-                break;
-
-            // DEFAULT
-            default:
-                log("Received Unknown Task: " + message.getTask());
-                break;
+        if (registeredSub != null) {
+            new controllers.NotificationController().sendRegistrationWelcome(registeredSub);
+            return new Message(TaskType.REGISTRATION_SUCCESS, registeredSub);
+        }
+        return new Message(TaskType.FAIL, "Registration failed. User may already exist.");
+    }
+
+    private Message handleCheckUserExists(Message message, ConnectionToClient client) {
+        log("Verifying user existence...");
+        String inputId = (String) message.getObject();
+        User foundUser = userController.getSubscriber(inputId); 
+        if (foundUser == null) {
+            foundUser = userController.getUserByPhone(inputId);
+        }
+        if (foundUser != null) {
+            return new Message(TaskType.USER_FOUND, foundUser);
+        }
+        return new Message(TaskType.USER_NOT_FOUND, null);
+    }
+
+    private Message handleGetDailyOrders(Message message, ConnectionToClient client) {
+        try {
+            String idForCheckIn = (String) message.getObject();
+            log("Fetching today's orders for identifier: " + idForCheckIn);
+            
+            ArrayList<Order> dailyOrders = reservationController.getTodayOrdersForContact(idForCheckIn);
+            
+            return new Message(TaskType.DAILY_ORDERS_RESULT, dailyOrders);
+        } catch (Exception e) {
+            log("Error getting daily orders: " + e.getMessage());
+            return new Message(TaskType.FAIL, "Error fetching orders.");
+        }
+    }
+
+    private Message handleUpdateSubscriber(Message message, ConnectionToClient client) {
+        log("Updating subscriber details...");
+        User userToUpdate = (User) message.getObject();
+        boolean success = subscriberController.updateSubscriberDetails(userToUpdate);
+        return new Message(success ? TaskType.SUCCESS : TaskType.FAIL, 
+                success ? "Profile updated!" : "Update failed.");
+    }
+
+    // ===============================================================
+    // ORDERS & RESERVATIONS
+    // ===============================================================
+
+    private Message handleRequestReservation(Message message, ConnectionToClient client) {
+        log("Creating New Reservation...");
+        Order order = (Order) message.getObject();
+        String result = reservationController.createReservation(order);
+        if (result.startsWith("OK")) {
+            new controllers.NotificationController(this.uiListener).sendReservationConfirmation(
+                    order.getUserId(), 
+                    order.getOrderDate().toString(), 
+                    order.getOrderTime().toString(), 
+                    order.getConfirmationCode(), 
+                    order.getNumberOfDiners()
+                );
+        }
+        return new Message(TaskType.REQUEST_RESERVATION, result);
+    }
+
+    private Message handleResendCode(Message message, ConnectionToClient client) {
+        String inputIdentifier = (String) message.getObject();
+        log("Processing Lost Code Request for: " + inputIdentifier);
+        String contactInput = (String) message.getObject();
+        log("Client requested lost code recovery for: " + contactInput);
+
+        // 1. Fetch List of Orders (Active/Pending/Approved) using Subscriber ID or Phone
+        ArrayList<Order> ordersList = reservationController.getActiveOrdersForContact(inputIdentifier);
+        // 1. Find ALL active/approved orders for this contact
+        ArrayList<Order> ActiveOrders = reservationController.getActiveOrdersForContact(contactInput);
+
+        if (ordersList.isEmpty()) {
+            // Kept from the original switch: an empty lookup falls through to GET_ORDERS
+            return handleGetOrders(message, client);
+        }
+
+        // 2. Resolve Email for Notification (Using the new robust method)
+        String emailTarget = userController.getEmailByIdentifier(inputIdentifier);
+        
+        // Fallback to input if email not found (e.g., if it's a phone number, NotificationController handles SMS simulation)
+        if (emailTarget == null) emailTarget = inputIdentifier;
+        if (!ActiveOrders.isEmpty()) {
+            log("Found " + ActiveOrders.size() + " active orders. Resolving email...");
+
+            log("Found " + ordersList.size() + " active/pending orders. Sending details to: " + emailTarget);
+
+            // 2. Resolve the REAL email address
+            String realEmail = userController.getEmailByContact(contactInput);
+            String targetContact = (realEmail != null) ? realEmail : contactInput;
+            
+            // 3. Send Notification (Pass 'this.uiListener' for UI logging)
+            new controllers.NotificationController(this.uiListener)
+                .sendLostCodes(targetContact, ActiveOrders);
+
+            // 3. Send List Notification
+            // Ensure you pass 'this.uiListener' if your NotificationController supports logging to UI
+            new controllers.NotificationController(this.uiListener).sendLostCodes(emailTarget, ordersList);
+
+            return new Message(TaskType.SUCCESS, "Reservation details sent to your registered contact.");
         }
+
+        log("No active bookings found for identifier: " + inputIdentifier);
+        log("No active bookings found for: " + contactInput);
+        return new Message(TaskType.FAIL, "No active bookings found for this contact.");
+    }
+
+    private Message handleGetOrders(Message message, ConnectionToClient client) {
+        // log("Fetching all orders..."); 
+        if (message.getObject() instanceof Long) {
+            return new Message(TaskType.GET_ORDERS, ordersData.since((Long) message.getObject()));
+        }
+        List<Order> orders = columnarOrders ? reservationController.getAllOrderColumns()
+                                            : reservationController.getAllOrders();
+        return new Message(TaskType.GET_ORDERS, orders);
+    }
+
+    private Message handleGetActiveOrders(Message message, ConnectionToClient client) {
+        // log("Fetching all orders..."); 
+        List<Order> activeOrders = columnarOrders ? reservationController.getActiveOrderColumns()
+                                                  : reservationController.getActiveOrders();
+        return new Message(TaskType.GET_ORDERS, activeOrders);
+    }
+
+    private Message handleUpdateOrder(Message message, ConnectionToClient client) {
+        log("Updating Order...");
+        Order orderUpdate = (Order) message.getObject();
+        boolean success = reservationController.updateOrder(orderUpdate);
+        return new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
+    }
+
+    private Message handleCancelOrder(Message message, ConnectionToClient client) {
+        log("Cancelling Order...");
+        Object[] cancelData = (Object[]) message.getObject();
+        String cCode = (String) cancelData[0];
+        int cUserId = (int) cancelData[1];
+        
+        boolean success = reservationController.cancelOrder(cCode, cUserId);
+        
+        if (success) {
+            // Passing 'this.uiListener' ensures the server log updates in the UI
+            new controllers.NotificationController(this.uiListener)
+                .sendCancellationNotification(cUserId, cCode);
+        }
+        return new Message(success ? TaskType.SUCCESS : TaskType.FAIL, 
+                           success ? "Order Canceled" : "Failed to Cancel");
+    }
+
+    private Message handleGetUserHistory(Message message, ConnectionToClient client) {
+        log("Fetching history for user...");
+        int historyUserId = (int) message.getObject();
+        List<Order> history = columnarOrders ? reservationController.getOrderColumnsByUserId(historyUserId)
+                                             : reservationController.getOrdersByUserId(historyUserId);
+        return new Message(TaskType.HISTORY_IMPORTED, history);
+    }
+
+    // ===============================================================
+    // CHECK-IN & WAITING LIST
+    // ===============================================================
+
+    private Message handleCheckIn(Message message, ConnectionToClient client) {
+        String code = (String) message.getObject();
+        log("Check-In attempt: " + code);
+        
+        int tableId = reservationController.checkIn(code);
+
+        if (tableId > 0) {
+            log("Check-In Approved. Table " + tableId);
+            return new Message(TaskType.SUCCESS, "Check-in Successful! Table " + tableId); 
+        } 
+        else if (tableId == -2) {
+            return new Message(TaskType.FAIL, "Invalid confirmation code.");
+        } 
+        else if (tableId == -3) {
+            return new Message(TaskType.FAIL, "Your reservation is for a different day.");
+        } 
+        else if (tableId == -4) {
+            return new Message(TaskType.FAIL, "Your order is not approved.");
+        } 
+        else if (tableId == -5) {
+            return new Message(TaskType.FAIL, "No tables available, please wait.");
+        } 
+        return new Message(TaskType.FAIL, "Database error.");
+    }
+
+    private Message handleEnterWaitingList(Message message, ConnectionToClient client) {
+        WaitingList wlItem = (WaitingList) message.getObject();
+        String result = waitingListController.addToWaitingList(wlItem);
+        return new Message(TaskType.WAITING_LIST_ADDED, result);
+    }
+
+    private Message handleExitWaitingList(Message message, ConnectionToClient client) {
+        log("Exiting Waiting List...");
+        int userId = (int) message.getObject();
+        boolean success = waitingListController.exitWaitingList(userId);
+        String resultMsg = success ? "You have successfully left the waiting list" : "You are not currently in the waiting list";                
+        return new Message(success ? TaskType.SUCCESS : TaskType.FAIL, resultMsg);
+    }
+
+    private Message handleGetWaitingList(Message message, ConnectionToClient client) {
+        if (message.getObject() instanceof Long) {
+            return new Message(TaskType.GET_WAITING_LIST, waitingListData.since((Long) message.getObject()));
+        }
+        ArrayList<WaitingList> waitList = waitingListController.getAllWaitingList();
+        return new Message(TaskType.GET_WAITING_LIST, waitList);
+    }
+
+    // ===============================================================
+    // PAYMENT
+    // ===============================================================
+
+    private Message handleGetBill(Message message, ConnectionToClient client) {
+        log("Retrieving Bill...");
+        String code = (String) message.getObject();
+        
+        Object[] billData = paymentController.getBillData(code);
+        
+        boolean success = (billData != null);
+        
+        return new Message(success ? TaskType.GET_BILL : TaskType.FAIL, 
+                           success ? billData : "Invalid Code or Order not Active");
+    }
+
+    private Message handlePayBill(Message message, ConnectionToClient client) {
+        log("Processing Payment...");
+        String code = (String) message.getObject();
+        boolean success = paymentController.payBill(code);
+        return new Message(success ? TaskType.SUCCESS : TaskType.FAIL, 
+                           success ? "Payment Successful" : "Payment Failed");
+    }
+
+    // ===============================================================
+    // TABLE MANAGEMENT
+    // ===============================================================
+
+    private Message handleGetTables(Message message, ConnectionToClient client) {
+        if (message.getObject() instanceof Long) {
+            return new Message(TaskType.GET_TABLES, tablesData.since((Long) message.getObject()));
+        }
+        ArrayList<Table> tables = reservationController.getAllTables();
+        return new Message(TaskType.GET_TABLES, tables);
+    }
+
+    private Message handleUpdateTable(Message message, ConnectionToClient client) {
+        log("Updating Table...");
+        Table tableToUpdate = (Table) message.getObject();
+        boolean success = reservationController.updateTable(tableToUpdate);
+        return new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
+    }
+
+    private Message handleAddTable(Message message, ConnectionToClient client) {
+        log("Adding Table...");
+        Table newTable = (Table) message.getObject();
+        boolean success = reservationController.addTable(newTable);
+        return new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
+    }
+
+    private Message handleRemoveTable(Message message, ConnectionToClient client) {
+        log("Removing Table...");
+        int tableId = (int) message.getObject();
+        boolean success = reservationController.removeTable(tableId);
+        return new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
+    }
+
+    // ===============================================================
+    // SCHEDULE / OPENING HOURS
+    // ===============================================================
+
+    private Message handleGetSchedule(Message message, ConnectionToClient client) {
+        if (message.getObject() instanceof Long) {
+            return new Message(TaskType.GET_SCHEDULE, scheduleData.since((Long) message.getObject()));
+        }
+        ArrayList<BistroSchedule> schedule = reservationController.getSchedule();
+        return new Message(TaskType.GET_SCHEDULE, schedule);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message handleSaveSchedule(Message message, ConnectionToClient client) {
+        log("Saving Schedule...");
+        ArrayList<BistroSchedule> list = (ArrayList<BistroSchedule>) message.getObject();
+        boolean allSaved = true;
+        for (BistroSchedule item : list) {
+            if (!reservationController.saveScheduleItem(item)) allSaved = false;
+        }
+        return new Message(allSaved ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
+    }
+
+    private Message handleDeleteSchedule(Message message, ConnectionToClient client) {
+        log("Deleting Schedule Item...");
+        String id = (String) message.getObject();
+        boolean success = reservationController.deleteScheduleItem(id);
+        return new Message(success ? TaskType.UPDATE_SUCCESS : TaskType.UPDATE_FAILED, null);
+    }
+
+    // ===============================================================
+    // REPORTS
+    // ===============================================================
+
+    private Message handleMonthlyReport(Message message, ConnectionToClient client) {
+        log("Generating Monthly Report...");
+        try {
+            String payload = (String) message.getObject();
+            String[] parts = payload.split("-");
+            MonthlyReportData reportData = reportController.generateMonthlyReport(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            return new Message(TaskType.REPORT_GENERATED, reportData);
+        } catch (Exception e) {
+            log("Error generating report: " + e.getMessage());
+            return new Message(TaskType.ERROR, "Report Generation Failed");
+        }
+    }
+
+    // ===============================================================
+    // LIVE UPDATES
+    // ===============================================================
+
+    private Message handleSubscribe(ConnectionToClient client, TaskType topic) {
+        publisher.subscribe(client, topic);
+        return null;
+    }
+
+    private Message handleUnsubscribeAll(Message message, ConnectionToClient client) {
+        publisher.unsubscribeAll(client);
+        return null;
+    }
+
+    private Message handleGetAllSubscribers(Message message, ConnectionToClient client) {
+        ArrayList<User> subs = subscriberController.getAllSubscribers();
+        return new Message(TaskType.GET_ALL_SUBSCRIBERS, subs);
     }
 
     /**
@@ -522,31 +709,110 @@ public class BistroServer extends AbstractServer {
      * @param client The target client.
      */
     private void sendKryoToClient(Object msg, ConnectionToClient client) {
+        sendKryoToClient(msg, client, getOverflowPolicy());
+    }
+
+    /**
+     * Helper to send serialized messages to the client.
+     * @param msg The message object.
+     * @param client The target client.
+     * @param policy What to do if the client's outbound queue is full.
+     */
+    private void sendKryoToClient(Object msg, ConnectionToClient client, OverflowPolicy policy) {
+        // Kryo writes into a pooled buffer, which is copied to the socket or the outbound queue
+        Output out = KryoUtil.obtainOutput();
         try {
-            client.sendToClient(KryoUtil.serialize(msg));
+            if (msg instanceof EncodedMessage) {
+                // Payload shared with other clients: only the envelope is written for this one
+                EncodedMessage encoded = (EncodedMessage) msg;
+                KryoUtil.serializeMessage(encoded.getTask(), encoded.getRequestId(), encoded.getPayload(), out);
+            } else {
+                KryoUtil.serialize(msg, out);
+            }
+            if (client.isFramed()) {
+                client.sendFrame(out.getBuffer(), 0, out.position(), policy);
+            } else {
+                client.sendToClient(out.toBytes(), policy);
+            }
         } catch (IOException e) {
             log("Error sending to client: " + e.getMessage());
+        } finally {
+            KryoUtil.freeOutput(out);
         }
     }
 
     
     
+    /**
+     * Builds the outbound queue table shown in the Server UI: one line per connected client.
+     * @return The queue depth, peak and dropped messages of every connection.
+     */
+    public String getOutboundQueueReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Outbound queues: capacity=%d, overflow=%s%n",
+                getOutboundQueueCapacity(), getOverflowPolicy()));
+        if (getOutboundQueueCapacity() == 0) return sb.toString();
+        sb.append(String.format("%-32s %6s %6s %8s%n", "Client", "Queue", "Peak", "Dropped"));
+        for (Thread thread : getClientConnections()) {
+            ConnectionToClient client = (ConnectionToClient) thread;
+            sb.append(String.format("%-32s %6d %6d %8d%n", client, client.getQueueDepth(),
+                    client.getPeakQueueDepth(), client.getDroppedMessages()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The hit/miss counters of the table and schedule reply caches, for the Server UI.
+     */
+    public String getResponseCacheReport() {
+        return "Response cache: " + tablesCache.getStats() + System.lineSeparator()
+                + "Response cache: " + scheduleCache.getStats() + System.lineSeparator();
+    }
+
+    /**
+     * @return Latency per checkout stage (commit, waiting-list promotion), for the Server UI.
+     */
+    public String getCheckoutReport() {
+        return paymentController.getCheckoutReport();
+    }
+
+    /**
+     * @return Sent / failed / dropped notifications per channel (email, SMS), for the Server UI.
+     */
+    public String getNotificationReport() {
+        return NotificationDispatcher.getInstance().getMetricsReport();
+    }
+
+    /**
+     * @return The request dispatcher (used by the Server UI to display metrics).
+     */
+    public RequestDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     /**
      * Called when the server starts listening.
      * Initializes DB connection and background scheduler.
      */
     @Override
     protected void serverStarted() {
-        log("Server listening on port " + getPort());
+        if (isNioMode()) {
+            log("Server listening on port " + getPort() + " (NIO reactors, framed transport)");
+        } else {
+            log("Server listening on port " + getPort() + (isVirtualThreads() ? " (virtual threads)" : "")
+                    + (isFramedTransport() ? " (framed transport)" : ""));
+        }
         DatabaseConnection.getInstance(); 
+        OccupancyEngine.getInstance().warmUp();
+        ScheduleCalendar.getInstance().reload();
+        ConfirmationCodeAllocator.getInstance().warmUp();
+        ConfirmationCodeIndex.getInstance().warmUp();
+        CasualUserCleanup.getInstance().warmUp();
 
         scheduler = Executors.newSingleThreadScheduledExecutor();
         scheduler.scheduleAtFixedRate(() -> {
             // log("Running background maintenance..."); // Optional: Comment out to reduce noise
             
-            Connection conn = DatabaseConnection.getInstance().getConnection();
-            if (conn == null) return;
-
             NotificationController nc = new NotificationController(this.uiListener);
 
             // =================================================================================
@@ -562,19 +828,17 @@ public class BistroServer extends AbstractServer {
                                     ")";
 
             ArrayList<Integer> ordersToCancel = new ArrayList<>();
+            int cancelled = 0;
+            ArrayList<Integer> usersToNotify = new ArrayList<>();
+            ArrayList<String> codesToRelease = new ArrayList<>();
 
-            try (PreparedStatement psFind = conn.prepareStatement(findLateOrders)) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement psFind = conn.prepareStatement(findLateOrders)) {
                 ResultSet rs = psFind.executeQuery();
                 while (rs.next()) {
-                    int oId = rs.getInt("order_number");
-                    int uId = rs.getInt("user_id");
-                    String code = rs.getString("confirmation_code");
-                    
-                    ordersToCancel.add(oId);
-
-                    // SEND NOTIFICATION (The missing piece)
-                    log("Auto-cancelling late order: " + code);
-                    nc.sendCancellationNotification(uId, code); 
+                    ordersToCancel.add(rs.getInt("order_number"));
+                    usersToNotify.add(rs.getInt("user_id"));
+                    codesToRelease.add(rs.getString("confirmation_code"));
                 }
             } catch (SQLException e) {
                 log("Error finding late orders: " + e.getMessage());
@@ -584,34 +848,52 @@ public class BistroServer extends AbstractServer {
             // 2. CANCEL LATE ORDERS 
             // =================================================================================
             if (!ordersToCancel.isEmpty()) {
-                // Build a dynamic query like: UPDATE ... WHERE order_number IN (101, 102, 105)
-                StringBuilder sb = new StringBuilder("UPDATE orders SET status = 'CANCELLED' WHERE order_number IN (");
-                for (int i = 0; i < ordersToCancel.size(); i++) {
-                    sb.append(ordersToCancel.get(i));
-                    if (i < ordersToCancel.size() - 1) sb.append(",");
-                }
-                sb.append(")");
+                // Cancel order by order: a party that checked in since the SELECT keeps its ACTIVE order and its code
+                String cancelLate = "UPDATE orders SET status = 'CANCELLED' WHERE order_number = ? AND status = 'APPROVED'";
+                try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                     PreparedStatement psUpdate = conn.prepareStatement(cancelLate)) {
+                    for (int i = 0; i < ordersToCancel.size(); i++) {
+                        int oId = ordersToCancel.get(i);
+                        String code = codesToRelease.get(i);
+                        psUpdate.setInt(1, oId);
+                        if (psUpdate.executeUpdate() == 0) continue;
+                        cancelled++;
+                        OccupancyEngine.getInstance().removeBooking(oId);
+                        ConfirmationCodeIndex.getInstance().retire(code);
 
-                try (PreparedStatement psUpdate = conn.prepareStatement(sb.toString())) {
-                    psUpdate.executeUpdate();
-                    log("Cleanup: Cancelled " + ordersToCancel.size() + " late orders.");
+                        log("Auto-cancelling late order: " + code);
+                        nc.sendCancellationNotification(usersToNotify.get(i), code);
+                    }
                 } catch (SQLException e) {
                     log("Error updating late orders: " + e.getMessage());
                 }
+                if (cancelled > 0) log("Cleanup: Cancelled " + cancelled + " late orders.");
             }
 
             // =================================================================================
             // 3. CLEANUP WAITING LIST
             // =================================================================================
-            String cancelWaiting = "UPDATE waiting_list SET status = 'CANCELLED' " +
-                                   "WHERE status = 'NOTIFIED' " +
-                                   "AND (" +
-                                   "  date_requested < CURDATE() " +
-                                   "  OR " +
-                                   "  (date_requested = CURDATE() AND time_requested < SUBTIME(NOW(), '00:15:00'))" +
-                                   ")";
-            try (PreparedStatement psWait = conn.prepareStatement(cancelWaiting)) {
-                psWait.executeUpdate();
+            String expiredWaiting = "SELECT waiting_id, confirmation_code FROM waiting_list " +
+                                    "WHERE status = 'NOTIFIED' " +
+                                    "AND (" +
+                                    "  date_requested < CURDATE() " +
+                                    "  OR " +
+                                    "  (date_requested = CURDATE() AND time_requested < SUBTIME(NOW(), '00:15:00'))" +
+                                    ")";
+            // Cancel entry by entry so a code is only given back if its entry really expired
+            String cancelWaiting = "UPDATE waiting_list SET status = 'CANCELLED' WHERE waiting_id = ? AND status = 'NOTIFIED'";
+            boolean waitingCancelled = false;
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement psFind = conn.prepareStatement(expiredWaiting);
+                 PreparedStatement psWait = conn.prepareStatement(cancelWaiting);
+                 ResultSet rs = psFind.executeQuery()) {
+                while (rs.next()) {
+                    psWait.setInt(1, rs.getInt("waiting_id"));
+                    if (psWait.executeUpdate() > 0) {
+                        ConfirmationCodeIndex.getInstance().retire(rs.getString("confirmation_code"));
+                        waitingCancelled = true;
+                    }
+                }
             } catch (SQLException e) { e.printStackTrace(); }
 
             // =================================================================================
@@ -624,7 +906,8 @@ public class BistroServer extends AbstractServer {
                                    "AND o.order_date = CURDATE() " +
                                    "AND o.order_time BETWEEN ADDTIME(CURTIME(), '01:59:00') AND ADDTIME(CURTIME(), '02:01:00')";
 
-            try (PreparedStatement psRemind = conn.prepareStatement(reminderQuery)) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement psRemind = conn.prepareStatement(reminderQuery)) {
                 ResultSet rs = psRemind.executeQuery();
                 while (rs.next()) {
                     String contact = rs.getString("email");
@@ -648,7 +931,8 @@ public class BistroServer extends AbstractServer {
                                "AND order_date = CURDATE() " + 
                                "AND actual_arrival_time <= SUBTIME(CURTIME(), '02:00:00')";
 
-            try (PreparedStatement psBill = conn.prepareStatement(billQuery)) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement psBill = conn.prepareStatement(billQuery)) {
                 ResultSet rs = psBill.executeQuery();
                 while (rs.next()) {
                     int oId = rs.getInt("order_number");
@@ -669,7 +953,16 @@ public class BistroServer extends AbstractServer {
                 log("Auto-Bill Error: " + e.getMessage());
             }
 
+            // Only the cancellations are visible to clients (is_bill_sent is not part of an Order)
+            if (cancelled > 0) datasetChanged(ordersData);
+            if (waitingCancelled) datasetChanged(waitingListData);
+
         }, 0, 1, TimeUnit.MINUTES);
+
+        // Casual users finished at checkout are removed in batches, off-peak
+        long cleanupPeriod = ServerConfig.getLong("CASUAL_CLEANUP_INTERVAL_MS", 300_000L);
+        scheduler.scheduleWithFixedDelay(CasualUserCleanup.getInstance()::runOnce,
+                cleanupPeriod, cleanupPeriod, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -682,6 +975,40 @@ public class BistroServer extends AbstractServer {
             scheduler.shutdownNow();
             log("Background scheduler stopped.");
         }
+        ConnectionPool pool = DatabaseConnection.getInstance().getPool();
+        if (pool != null) {
+            log("DB pool stats: " + pool.getStats());
+        }
+        log(dispatcher.getMetricsReport());
+        log("Delta sync: " + ordersData.getStats() + " | " + tablesData.getStats()
+                + " | " + waitingListData.getStats() + " | " + scheduleData.getStats());
+        log("Single flight: " + ordersFlight.getStats() + " | " + tablesFlight.getStats()
+                + " | " + waitingListFlight.getStats() + " | " + scheduleFlight.getStats());
+        log(getResponseCacheReport());
+        log(getCheckoutReport());
+        log(ConfirmationCodeAllocator.getInstance().getStats() + " | " + ConfirmationCodeIndex.getInstance().getStats());
+        log(CasualUserCleanup.getInstance().getStats());
+        log(publisher.getStats());
+
+        // Let queued emails / SMS go out before the server goes away
+        NotificationDispatcher notifier = NotificationDispatcher.getInstance();
+        if (!notifier.drain()) {
+            log("Notifications: " + notifier.getPending() + " still pending after drain timeout.");
+        }
+        log(notifier.getMetricsReport());
+    }
+
+    /**
+     * Called when the server is closed. Stops the request worker threads, then closes the
+     * database pool once nothing can borrow from it anymore.
+     */
+    @Override
+    protected void serverClosed() {
+        dispatcher.shutdown();
+        paymentController.shutdown();
+        NotificationDispatcher.getInstance().shutdown();
+        publisher.shutdown();
+        DatabaseConnection.close();
     }
 
     /**
@@ -699,6 +1026,8 @@ public class BistroServer extends AbstractServer {
      */
     @Override
     synchronized protected void clientDisconnected(ConnectionToClient client) {
+        dispatcher.connectionClosed(client);
+        publisher.unsubscribeAll(client);
         if (uiListener != null) uiListener.onClientDisconnected(client);
     }
 
@@ -709,6 +1038,8 @@ public class BistroServer extends AbstractServer {
      */
     @Override
     synchronized protected void clientException(ConnectionToClient client, Throwable exception) {
+        dispatcher.connectionClosed(client);
+        publisher.unsubscribeAll(client);
         if (uiListener != null) uiListener.onClientDisconnected(client);
     }
 }
\ No newline at end of file
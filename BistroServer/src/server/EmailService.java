@@ -66,15 +66,16 @@ public class EmailService {
     }
 
     /**
-     * Sends an email in a background thread to avoid blocking the UI/Server.
+     * Sends an email. Blocks until the SMTP server answers; callers queue it on the {@link NotificationDispatcher}.
      * @param recipient The email address of the receiver.
      * @param subject The subject line.
      * @param body The email content (HTML allowed).
+     * @return true if the email was delivered.
      */
-    public static void sendEmail(String recipient, String subject, String body) {
+    public static boolean sendEmail(String recipient, String subject, String body) {
         if (!isConfigured) {
             System.err.println("[EmailService] Failed to send: Service not configured.");
-            return;
+            return false;
         }
 
         System.out.println("[EmailService] Sending email to: " + recipient);
@@ -107,10 +108,12 @@ public class EmailService {
             Transport.send(message);
             
             System.out.println("[EmailService] Success: Email delivered to " + recipient);
+            return true;
 
         } catch (MessagingException e) {
             System.err.println("[EmailService] Delivery Failed: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package server;
+
+import common.KryoUtil;
+import common.Message;
+import common.TaskType;
+
+/**
+ * A response whose payload is already serialized, so one serialization can be sent to several
+ * clients. When it is sent, only the envelope (task and request ID) is written for each client
+ * and the payload bytes are copied behind it (see {@link KryoUtil#serializeMessage}).
+ * Server-side only: it never goes through Kryo itself.
+ * @author Group 6
+ * @version 1.0
+ */
+public class EncodedMessage extends Message {
+
+    /** The payload serialized with {@link KryoUtil#serialize(Object)}. Shared, never modified. */
+    private final byte[] payload;
+
+    /**
+     * Constructs a response around a serialized payload.
+     * @param task The task of the response.
+     * @param payload The serialized payload.
+     */
+    public EncodedMessage(TaskType task, byte[] payload) {
+        super(task, null);
+        this.payload = payload;
+    }
+
+    /**
+     * Serializes the payload of a response.
+     * @param message The response.
+     * @return The encoded response.
+     */
+    public static EncodedMessage of(Message message) {
+        return new EncodedMessage(message.getTask(), KryoUtil.serialize(message.getObject()));
+    }
+
+    /**
+     * Returns a response with the same payload and its own request ID, for another client.
+     * @return The copy.
+     */
+    public EncodedMessage copy() {
+        return new EncodedMessage(getTask(), payload);
+    }
+
+    /**
+     * Gets the serialized payload.
+     * @return The payload bytes.
+     */
+    public byte[] getPayload() { return payload; }
+}
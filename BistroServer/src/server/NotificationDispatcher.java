@@ -0,0 +1,273 @@
+package server;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Delivers outgoing notifications (real emails and mock SMS) on a small, bounded worker pool.
+ * <p>
+ * Senders only queue the message and return; a burst (e.g. a capacity change cancelling
+ * hundreds of reservations) waits in a bounded queue instead of starting one thread per message.
+ * When the queue is full, NOTIFY_OVERFLOW decides what happens: drop_oldest (default) discards the
+ * oldest queued message, drop_newest discards the new one, caller_runs sends it on the caller's thread.
+ * <p>
+ * Per channel the dispatcher records sent, failed and dropped messages and the send time (average, max).
+ * Pool size, queue capacity and the drain timeout come from NOTIFY_THREADS, NOTIFY_QUEUE_CAPACITY
+ * and NOTIFY_DRAIN_MS.
+ * @author Group 6
+ * @version 1.0
+ */
+public class NotificationDispatcher {
+
+    /** Delivery channels. */
+    public enum Channel { EMAIL, SMS }
+
+    /** What to do with a message that does not fit in the queue. */
+    private enum Overflow { DROP_OLDEST, DROP_NEWEST, CALLER_RUNS }
+
+    /** The single instance of this class. */
+    private static final NotificationDispatcher instance = new NotificationDispatcher();
+
+    /** Worker pool with a bounded queue. */
+    private final ThreadPoolExecutor executor;
+
+    /** Overflow policy of the queue. */
+    private final Overflow overflow;
+
+    /** Messages queued or being sent. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** Notified when {@link #inFlight} drops to zero. */
+    private final Object idle = new Object();
+
+    // --- Metrics, indexed by Channel.ordinal() ---
+    private final AtomicLong[] sent = new AtomicLong[Channel.values().length];
+    private final AtomicLong[] failed = new AtomicLong[Channel.values().length];
+    private final AtomicLong[] dropped = new AtomicLong[Channel.values().length];
+    private final AtomicLong[] totalNanos = new AtomicLong[Channel.values().length];
+    private final AtomicLong[] maxNanos = new AtomicLong[Channel.values().length];
+
+    /**
+     * One queued message.
+     */
+    private final class Job implements Runnable {
+        final Channel channel;
+        final BooleanSupplier delivery;
+
+        Job(Channel channel, BooleanSupplier delivery) {
+            this.channel = channel;
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void run() {
+            int i = channel.ordinal();
+            long start = System.nanoTime();
+            try {
+                if (delivery.getAsBoolean()) sent[i].incrementAndGet();
+                else failed[i].incrementAndGet();
+            } catch (RuntimeException e) {
+                failed[i].incrementAndGet();
+                System.err.println("[Notify] " + channel + " delivery failed: " + e.getMessage());
+            } finally {
+                long nanos = System.nanoTime() - start;
+                totalNanos[i].addAndGet(nanos);
+                maxNanos[i].accumulateAndGet(nanos, Math::max);
+                done();
+            }
+        }
+    }
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private NotificationDispatcher() {
+        for (int i = 0; i < sent.length; i++) {
+            sent[i] = new AtomicLong();
+            failed[i] = new AtomicLong();
+            dropped[i] = new AtomicLong();
+            totalNanos[i] = new AtomicLong();
+            maxNanos[i] = new AtomicLong();
+        }
+
+        String policy = ServerConfig.getString("NOTIFY_OVERFLOW", "drop_oldest");
+        Overflow parsed;
+        try {
+            parsed = Overflow.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("[Notify] Unknown NOTIFY_OVERFLOW=" + policy + ", using drop_oldest");
+            parsed = Overflow.DROP_OLDEST;
+        }
+        this.overflow = parsed;
+
+        int threads = Math.max(1, ServerConfig.getInt("NOTIFY_THREADS", 4));
+        int capacity = Math.max(1, ServerConfig.getInt("NOTIFY_QUEUE_CAPACITY", 500));
+        AtomicInteger counter = new AtomicInteger(1);
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "bistro-notify-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), factory, new OverflowHandler());
+    }
+
+    /**
+     * @return The singleton NotificationDispatcher instance.
+     */
+    public static NotificationDispatcher getInstance() {
+        return instance;
+    }
+
+    // =========================================================================
+    // SENDING
+    // =========================================================================
+
+    /**
+     * Queues an email.
+     * @param recipient The email address of the receiver.
+     * @param subject The subject line.
+     * @param body The email content (HTML allowed).
+     */
+    public void sendEmail(String recipient, String subject, String body) {
+        submit(Channel.EMAIL, () -> EmailService.sendEmail(recipient, subject, body));
+    }
+
+    /**
+     * Queues a (simulated) SMS, printed to the console when delivered.
+     * @param recipient User ID or phone number.
+     * @param text The message.
+     */
+    public void sendSms(Object recipient, String text) {
+        submit(Channel.SMS, () -> {
+            System.out.println(">>> [SMS MOCK] To " + recipient + ": " + text);
+            return true;
+        });
+    }
+
+    private void submit(Channel channel, BooleanSupplier delivery) {
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(new Job(channel, delivery));
+        } catch (RejectedExecutionException e) {
+            // Only after shutdown; a full queue is handled by the OverflowHandler
+            drop(channel);
+        }
+    }
+
+    /**
+     * Applies NOTIFY_OVERFLOW when the queue is full, and drops everything once the pool is shut down.
+     */
+    private final class OverflowHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            Job job = (Job) r;
+            if (pool.isShutdown()) {
+                drop(job.channel);
+                return;
+            }
+            switch (overflow) {
+                case CALLER_RUNS:
+                    job.run();
+                    break;
+                case DROP_NEWEST:
+                    drop(job.channel);
+                    break;
+                default:
+                    Runnable oldest = pool.getQueue().poll();
+                    if (oldest != null) drop(((Job) oldest).channel);
+                    pool.execute(job);
+                    break;
+            }
+        }
+    }
+
+    private void drop(Channel channel) {
+        dropped[channel.ordinal()].incrementAndGet();
+        done();
+    }
+
+    private void done() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    // =========================================================================
+    // SHUTDOWN AND METRICS
+    // =========================================================================
+
+    /**
+     * Waits until every queued message has been sent, for up to NOTIFY_DRAIN_MS.
+     * Messages can still be queued meanwhile.
+     * @return true if nothing is left to send.
+     */
+    public boolean drain() {
+        long deadline = System.currentTimeMillis() + ServerConfig.getLong("NOTIFY_DRAIN_MS", 10_000L);
+        synchronized (idle) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    idle.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the workers. Messages still queued after a short wait are dropped.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                for (Runnable r : executor.shutdownNow()) drop(((Job) r).channel);
+            }
+        } catch (InterruptedException e) {
+            for (Runnable r : executor.shutdownNow()) drop(((Job) r).channel);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Messages queued or being sent.
+     */
+    public int getPending() {
+        return inFlight.get();
+    }
+
+    /**
+     * Builds a multi-line table, one line per channel.
+     * @return Text suitable for the server console.
+     */
+    public String getMetricsReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Notifications: workers=%d, queued=%d, overflow=%s%n",
+                executor.getMaximumPoolSize(), executor.getQueue().size(), overflow.name().toLowerCase(Locale.ROOT)));
+        sb.append(String.format("%-22s %8s %8s %8s %9s %9s%n", "Channel", "Sent", "Failed", "Dropped", "Avg(ms)", "Max(ms)"));
+        for (Channel channel : Channel.values()) {
+            int i = channel.ordinal();
+            long count = sent[i].get() + failed[i].get();
+            double avg = count == 0 ? 0 : totalNanos[i].get() / 1_000_000.0 / count;
+            double max = maxNanos[i].get() / 1_000_000.0;
+            sb.append(String.format("%-22s %8d %8d %8d %9.2f %9.2f%n",
+                    channel, sent[i].get(), failed[i].get(), dropped[i].get(), avg, max));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,292 @@
+package server;
+
+import common.Message;
+import common.TaskType;
+import ocsf.server.ConnectionToClient;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Moves request processing off the OCSF connection reader threads.
+ * <p>
+ * Handlers are registered per {@link TaskType} and executed on a worker pool
+ * (or on virtual threads when the JVM supports them and DISPATCH_VIRTUAL_THREADS=true).
+ * Requests coming from the same connection are executed one after the other, in arrival order,
+ * so a client always receives its responses in the order it sent the requests.
+ * Different connections are processed in parallel.
+ * <p>
+ * The request ID of a request is copied into its response, so a client can keep several requests
+ * in flight and match the responses. A request that waited in the queue longer than its timeout
+ * (counted from its arrival, on the server's clock) is not executed; it is answered with ERROR.
+ * <p>
+ * Per TaskType the dispatcher records the queue depth (accepted but not yet started)
+ * and the handler latency (count, average, max).
+ * @author Group 6
+ * @version 1.0
+ */
+public class RequestDispatcher {
+
+    /** Handler registry. */
+    private final EnumMap<TaskType, RequestHandler> handlers = new EnumMap<>(TaskType.class);
+
+    /** Worker pool running the handlers. */
+    private final ExecutorService executor;
+
+    /** Pending work per connection. A connection is drained by at most one worker at a time. */
+    private final Map<ConnectionToClient, SerialQueue> queues = new ConcurrentHashMap<>();
+
+    /** Sends a handler's response back to the client. */
+    private final BiConsumer<Message, ConnectionToClient> responder;
+
+    /** Writes to the server log. */
+    private final Consumer<String> logger;
+
+    /** True if handlers run on virtual threads. */
+    private final boolean virtualThreads;
+
+    // --- Metrics, indexed by TaskType.ordinal() ---
+    private final AtomicInteger[] queueDepth = new AtomicInteger[TaskType.values().length];
+    private final AtomicLong[] handled = new AtomicLong[TaskType.values().length];
+    private final AtomicLong[] totalNanos = new AtomicLong[TaskType.values().length];
+    private final AtomicLong[] maxNanos = new AtomicLong[TaskType.values().length];
+
+    /** Requests skipped because their timeout had passed. */
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * Tasks waiting for one connection, plus a flag telling whether a worker is currently draining them.
+     */
+    private static class SerialQueue {
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+        volatile boolean closed = false;
+    }
+
+    /**
+     * Creates the dispatcher. Pool size and thread mode are read from DISPATCH_THREADS
+     * and DISPATCH_VIRTUAL_THREADS.
+     * @param responder Sends a response to a client.
+     * @param logger Receives log lines.
+     */
+    public RequestDispatcher(BiConsumer<Message, ConnectionToClient> responder, Consumer<String> logger) {
+        this.responder = responder;
+        this.logger = logger;
+
+        for (int i = 0; i < queueDepth.length; i++) {
+            queueDepth[i] = new AtomicInteger();
+            handled[i] = new AtomicLong();
+            totalNanos[i] = new AtomicLong();
+            maxNanos[i] = new AtomicLong();
+        }
+
+        ExecutorService virtual = null;
+        if (ServerConfig.getBoolean("DISPATCH_VIRTUAL_THREADS", false)) {
+            virtual = newVirtualThreadExecutor();
+        }
+        this.virtualThreads = virtual != null;
+
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            int threads = Math.max(1, ServerConfig.getInt("DISPATCH_THREADS", 8));
+            AtomicInteger counter = new AtomicInteger(1);
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "bistro-worker-" + counter.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            };
+            this.executor = Executors.newFixedThreadPool(threads, factory);
+        }
+    }
+
+    /**
+     * Uses Executors.newVirtualThreadPerTaskExecutor() through reflection, so the server still
+     * compiles and runs on JVMs without virtual threads.
+     * @return The executor, or null if virtual threads are not available.
+     */
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.accept("Virtual threads not available on this JVM, using a worker pool.");
+            return null;
+        }
+    }
+
+    /**
+     * Registers the handler for a task type (replacing any previous one).
+     * @param task The request type.
+     * @param handler The handler.
+     */
+    public void register(TaskType task, RequestHandler handler) {
+        handlers.put(task, handler);
+    }
+
+    /**
+     * @param task The request type.
+     * @return The registered handler, or null.
+     */
+    public RequestHandler getHandler(TaskType task) {
+        return handlers.get(task);
+    }
+
+    /**
+     * Queues a request for execution. Returns immediately.
+     * @param request The decoded request.
+     * @param client The connection it arrived on.
+     */
+    public void dispatch(Message request, ConnectionToClient client) {
+        TaskType task = request.getTask();
+        RequestHandler handler = task == null ? null : handlers.get(task);
+        if (handler == null) {
+            logger.accept("Received Unknown Task: " + task);
+            return;
+        }
+
+        int slot = task.ordinal();
+        queueDepth[slot].incrementAndGet();
+        // The timeout is relative, so the client's clock never has to match ours
+        long deadline = request.getTimeout() > 0 ? System.currentTimeMillis() + request.getTimeout() : 0;
+
+        SerialQueue queue = queues.computeIfAbsent(client, c -> new SerialQueue());
+        queue.tasks.add(() -> {
+            queueDepth[slot].decrementAndGet();
+            if (deadline != 0 && System.currentTimeMillis() > deadline) {
+                expired.incrementAndGet();
+                if (request.getRequestId() != 0) {
+                    Message error = new Message(TaskType.ERROR, task + " expired while queued");
+                    error.setRequestId(request.getRequestId());
+                    responder.accept(error, client);
+                }
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                Message response = handler.handle(request, client);
+                if (response != null) {
+                    response.setRequestId(request.getRequestId());
+                    responder.accept(response, client);
+                }
+            } catch (Exception e) {
+                logger.accept("Error processing message: " + e.getMessage());
+                e.printStackTrace();
+                if (request.getRequestId() != 0) {
+                    // A correlated request is waiting for an answer; fail it now instead of at its timeout
+                    Message error = new Message(TaskType.ERROR, "Server error while processing " + task);
+                    error.setRequestId(request.getRequestId());
+                    responder.accept(error, client);
+                }
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                handled[slot].incrementAndGet();
+                totalNanos[slot].addAndGet(elapsed);
+                maxNanos[slot].accumulateAndGet(elapsed, Math::max);
+            }
+        });
+        schedule(client, queue);
+    }
+
+    /**
+     * Hands the connection's queue to a worker unless one is already draining it.
+     */
+    private void schedule(ConnectionToClient client, SerialQueue queue) {
+        if (queue.tasks.isEmpty() || !queue.scheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> drain(client, queue));
+        } catch (RejectedExecutionException e) {
+            queue.scheduled.set(false);
+            logger.accept("Dispatcher is shut down, request dropped.");
+        }
+    }
+
+    /**
+     * Runs the queued tasks of one connection in order.
+     */
+    private void drain(ConnectionToClient client, SerialQueue queue) {
+        Runnable task;
+        while ((task = queue.tasks.poll()) != null) {
+            task.run();
+        }
+        queue.scheduled.set(false);
+        if (queue.closed && queue.tasks.isEmpty()) {
+            queues.remove(client, queue);
+            return;
+        }
+        // A request may have arrived between the last poll and releasing the flag
+        schedule(client, queue);
+    }
+
+    /**
+     * Forgets the queue of a closed connection. Requests already queued are still executed.
+     * @param client The closed connection.
+     */
+    public void connectionClosed(ConnectionToClient client) {
+        SerialQueue queue = queues.get(client);
+        if (queue == null) return;
+        queue.closed = true;
+        if (queue.tasks.isEmpty() && !queue.scheduled.get()) {
+            queues.remove(client, queue);
+        }
+    }
+
+    /**
+     * Stops accepting work and waits briefly for running handlers to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Total number of requests waiting in all connection queues.
+     */
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (AtomicInteger depth : queueDepth) total += depth.get();
+        return total;
+    }
+
+    /**
+     * Builds a multi-line metrics table, one line per TaskType that has been used.
+     * @return Text suitable for the server console.
+     */
+    public String getMetricsReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Dispatcher: %s, queued=%d, expired=%d%n",
+                virtualThreads ? "virtual threads" : "worker pool", getTotalQueueDepth(), expired.get()));
+        sb.append(String.format("%-22s %6s %8s %9s %9s%n", "Task", "Queue", "Count", "Avg(ms)", "Max(ms)"));
+        for (TaskType task : TaskType.values()) {
+            int i = task.ordinal();
+            long count = handled[i].get();
+            int depth = queueDepth[i].get();
+            if (count == 0 && depth == 0) continue;
+            double avg = count == 0 ? 0 : totalNanos[i].get() / 1_000_000.0 / count;
+            double max = maxNanos[i].get() / 1_000_000.0;
+            sb.append(String.format("%-22s %6d %8d %9.2f %9.2f%n", task, depth, count, avg, max));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package server;
+
+import common.Message;
+import ocsf.server.ConnectionToClient;
+
+/**
+ * Handles one type of client request.
+ * Registered per {@link common.TaskType} in the {@link RequestDispatcher} and executed on a worker thread.
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface RequestHandler {
+
+    /**
+     * Processes a decoded request.
+     * @param request The message received from the client.
+     * @param client The connection the request arrived on.
+     * @return The response to send back to the same client, or null if no reply should be sent.
+     * @throws Exception Any error; it is logged by the dispatcher and the connection stays usable.
+     */
+    Message handle(Message request, ConnectionToClient client) throws Exception;
+}
@@ -0,0 +1,109 @@
+package server;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps serialized replies of a slow-changing list (tables, schedule) until the list changes.
+ * <p>
+ * A hit returns the stored {@link EncodedMessage}: no query and no serialization, only the
+ * envelope is written for the client. Every handler that modifies the list calls
+ * {@link #invalidate()}. A reply is also dropped after a maximum age, which bounds the staleness
+ * for changes made outside the server (direct DB edits).
+ * <p>
+ * Replies are keyed by request (task and payload), so "GET_TABLES since version V" is cached per V.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ResponseCache {
+
+    /** Above this many entries, the cache is emptied before storing a new one. */
+    private static final int MAX_ENTRIES = 256;
+
+    /** One stored reply. */
+    private static final class Entry {
+        final EncodedMessage reply;
+        final long generation;
+        final long storedAt;
+
+        Entry(EncodedMessage reply, long generation, long storedAt) {
+            this.reply = reply;
+            this.generation = generation;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /** Name used in the metrics. */
+    private final String name;
+
+    /** Maximum age of a stored reply in milliseconds. */
+    private final long ttlMillis;
+
+    /** Stored replies by request key. */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Incremented on every invalidation; replies of an older generation are never returned. */
+    private final AtomicLong generation = new AtomicLong();
+
+    // --- Statistics ---
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     * @param name Name used in the metrics.
+     * @param ttlMillis Maximum age of a stored reply.
+     */
+    public ResponseCache(String name, long ttlMillis) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the stored reply for a request, or loads and stores it.
+     * @param key The request key.
+     * @param loader Builds the reply on a miss.
+     * @return The reply (shared: callers must send a copy).
+     * @throws Exception The loader's exception.
+     */
+    public EncodedMessage get(String key, Callable<EncodedMessage> loader) throws Exception {
+        long current = generation.get();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.generation == current
+                && System.currentTimeMillis() - entry.storedAt <= ttlMillis) {
+            hits.incrementAndGet();
+            return entry.reply;
+        }
+
+        misses.incrementAndGet();
+        EncodedMessage reply = loader.call();
+        // Not stored if the list changed while it was loading; it may predate the change
+        if (reply != null && generation.get() == current) {
+            if (entries.size() >= MAX_ENTRIES) entries.clear();
+            entries.put(key, new Entry(reply, current, System.currentTimeMillis()));
+        }
+        return reply;
+    }
+
+    /**
+     * Drops all stored replies; called after the list changed.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * @return A one-line summary of hits, misses and invalidations for the metrics.
+     */
+    public String getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        double rate = h + m == 0 ? 0 : 100.0 * h / (h + m);
+        return String.format("%s: hits=%d, misses=%d (%.0f%% hits), invalidations=%d, entries=%d",
+                name, h, m, rate, invalidations.get(), entries.size());
+    }
+}
@@ -0,0 +1,115 @@
+package server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Central access point for server configuration values.
+ * Values are loaded once from the local .env file (KEY=VALUE per line) and can be
+ * overridden at startup with JVM system properties (e.g. -DDB_POOL_MAX_SIZE=20).
+ * @author Group 6
+ * @version 1.0
+ */
+public class ServerConfig {
+
+    /** All key/value pairs read from the .env file. */
+    private static final Properties values = new Properties();
+
+    /** Flag to indicate if the .env file was found and read. */
+    private static boolean loaded = false;
+
+    // Static block to load the configuration once when the server starts
+    static {
+        loadEnv();
+    }
+
+    /**
+     * Private Constructor to prevent instantiation.
+     */
+    private ServerConfig() {}
+
+    /**
+     * Loads all entries from the .env file in the root directory.
+     */
+    private static void loadEnv() {
+        try {
+            Path path = Paths.get(".env");
+            System.out.println("[ServerConfig] Loading configuration from: " + path.toAbsolutePath());
+
+            if (Files.exists(path)) {
+                for (String line : Files.readAllLines(path)) {
+                    if (line.trim().startsWith("#") || !line.contains("=")) continue;
+                    String[] parts = line.split("=", 2);
+                    values.setProperty(parts[0].trim(), parts[1].trim());
+                }
+                loaded = true;
+            } else {
+                System.err.println("[ServerConfig] Warning: .env file NOT FOUND. Using default values.");
+            }
+        } catch (IOException e) {
+            System.err.println("[ServerConfig] Config Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if the .env file was found and read.
+     */
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Retrieves a string value. System properties take priority over the .env file.
+     * @param key The configuration key.
+     * @param defaultValue The value to return if the key is not defined.
+     * @return The configured value or the default.
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) value = values.getProperty(key);
+        return (value == null || value.isEmpty()) ? defaultValue : value;
+    }
+
+    /**
+     * Retrieves an integer value.
+     * @param key The configuration key.
+     * @param defaultValue The value to return if the key is missing or not a number.
+     * @return The configured value or the default.
+     */
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.err.println("[ServerConfig] Invalid number for " + key + ". Using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Retrieves a long value.
+     * @param key The configuration key.
+     * @param defaultValue The value to return if the key is missing or not a number.
+     * @return The configured value or the default.
+     */
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.err.println("[ServerConfig] Invalid number for " + key + ". Using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Retrieves a boolean value ("true"/"false", case-insensitive).
+     * @param key The configuration key.
+     * @param defaultValue The value to return if the key is missing.
+     * @return The configured value or the default.
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, String.valueOf(defaultValue)));
+    }
+}
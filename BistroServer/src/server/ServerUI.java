@@ -1,5 +1,7 @@
 package server;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
@@ -11,6 +13,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import JDBC.ConnectionPool;
+import JDBC.DatabaseConnection;
 import ocsf.server.ConnectionToClient;
 
 import java.io.IOException;
@@ -40,6 +45,9 @@ public class ServerUI extends Application implements ServerEventListener {
     /** Area to display scrolling server logs. */
     private TextArea consoleLog;
 
+    /** Area showing request dispatcher, reply cache, outbound queue and database pool metrics. */
+    private TextArea metricsArea;
+
     // Map to assign simple IDs (1, 2, 3...) to clients
     /** Map linking OCSF thread IDs to simple display IDs. */
     private Map<Long, Integer> clientSimpleIdMap = new HashMap<>();
@@ -101,6 +109,14 @@ public class ServerUI extends Application implements ServerEventListener {
 
         VBox logBox = new VBox(5, new Label("Live Logs:"), consoleLog);
 
+        // --- Metrics Area ---
+        metricsArea = new TextArea();
+        metricsArea.setEditable(false);
+        metricsArea.setStyle("-fx-font-family: 'Consolas';");
+        metricsArea.setPrefHeight(140);
+
+        VBox metricsBox = new VBox(5, new Label("Server Metrics:"), metricsArea);
+
         Button btnExit = new Button("Stop & Exit");
         btnExit.setStyle("-fx-background-color: #d32f2f; -fx-text-fill: white; -fx-font-weight: bold;");
         btnExit.setOnAction(e -> {
@@ -108,12 +124,17 @@ public class ServerUI extends Application implements ServerEventListener {
             System.exit(0);
         });
 
-        VBox mainContainer = new VBox(15, lblHeader, lblStatus, table, new Separator(), logBox, btnExit);
+        VBox mainContainer = new VBox(15, lblHeader, lblStatus, table, new Separator(), logBox, metricsBox, btnExit);
         mainContainer.setPadding(new Insets(15));
-        mainContainer.setPrefSize(750, 650);
+        mainContainer.setPrefSize(750, 800);
 
         startServer();
 
+        // Refresh the metrics every 2 seconds
+        Timeline metricsRefresh = new Timeline(new KeyFrame(Duration.seconds(2), e -> refreshMetrics()));
+        metricsRefresh.setCycleCount(Timeline.INDEFINITE);
+        metricsRefresh.play();
+
         Scene scene = new Scene(mainContainer);
         primaryStage.setScene(scene);
         primaryStage.setOnCloseRequest(e -> System.exit(0));
@@ -132,6 +153,25 @@ public class ServerUI extends Application implements ServerEventListener {
         }
     }
 
+    /**
+     * Updates the metrics area with the dispatcher latency table, the reply cache counters, the checkout stages,
+     * the notification channels, the per-client outbound queues and the DB pool state.
+     * Runs on the JavaFX thread.
+     */
+    private void refreshMetrics() {
+        if (server == null) return;
+        StringBuilder sb = new StringBuilder(server.getDispatcher().getMetricsReport());
+        sb.append(server.getResponseCacheReport());
+        sb.append(server.getCheckoutReport());
+        sb.append(server.getNotificationReport());
+        sb.append(server.getOutboundQueueReport());
+        ConnectionPool pool = DatabaseConnection.getInstance().getPool();
+        if (pool != null) {
+            sb.append("DB pool: ").append(pool.getStats());
+        }
+        metricsArea.setText(sb.toString());
+    }
+
     // =========================================================
     // SERVER EVENT LISTENER IMPLEMENTATION
     // =========================================================
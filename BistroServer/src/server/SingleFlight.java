@@ -0,0 +1,138 @@
+package server;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets identical read requests that arrive at the same time share one execution.
+ * <p>
+ * The first caller for a key runs the loader; callers that arrive while it runs wait for its
+ * result instead of running their own query. A completed result is also reused for a short
+ * freshness window, which covers a burst of terminals asking for the same list one after the other.
+ * <p>
+ * {@link #invalidate()} is called after every change of the underlying data. From then on a
+ * result loaded before the change is neither joined nor reused, so a reader never gets data
+ * older than the last change it could have seen.
+ * @param <K> The request key (task and parameters).
+ * @param <V> The shared result.
+ * @author Group 6
+ * @version 1.0
+ */
+public class SingleFlight<K, V> {
+
+    /** Above this many keys, finished results are dropped when a new load starts. */
+    private static final int MAX_KEYS = 256;
+
+    /** One execution of the loader and its result. */
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final long generation;
+        /** System time when the result was set, 0 while the loader runs. */
+        volatile long completedAt;
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    /** Name used in log messages. */
+    private final String name;
+
+    /** How long a completed result is reused, in milliseconds. */
+    private final long freshMillis;
+
+    /** Latest execution per key. */
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    /** Incremented on every invalidation; executions of an older generation are not shared. */
+    private final AtomicLong generation = new AtomicLong();
+
+    // --- Statistics ---
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Creates an empty single-flight group.
+     * @param name Name used in log messages.
+     * @param freshMillis How long a completed result is reused (0 = only while it is loading).
+     */
+    public SingleFlight(String name, long freshMillis) {
+        this.name = name;
+        this.freshMillis = Math.max(0, freshMillis);
+    }
+
+    /**
+     * Returns the result for a key, running the loader only if no usable execution exists.
+     * @param key The request key.
+     * @param loader Computes the result (e.g. runs the query and serializes the reply).
+     * @return The result, possibly shared with other callers (it must not be modified).
+     * @throws Exception The loader's exception, also for callers that joined its execution.
+     */
+    public V get(K key, Callable<V> loader) throws Exception {
+        while (true) {
+            long current = generation.get();
+            Flight<V> flight = flights.get(key);
+            if (flight != null && isUsable(flight, current)) {
+                shared.incrementAndGet();
+                return await(flight);
+            }
+
+            Flight<V> mine = new Flight<>(current);
+            boolean started = flight == null ? flights.putIfAbsent(key, mine) == null
+                                             : flights.replace(key, flight, mine);
+            if (!started) continue; // another caller started a load meanwhile, join it
+
+            executions.incrementAndGet();
+            if (flights.size() > MAX_KEYS) {
+                flights.values().removeIf(f -> f != mine && f.result.isDone());
+            }
+            try {
+                V value = loader.call();
+                mine.completedAt = System.currentTimeMillis();
+                mine.result.complete(value);
+                return value;
+            } catch (Exception | Error e) {
+                flights.remove(key, mine);
+                mine.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Forgets all results; called after the underlying data changed.
+     * Loads already running finish for their current callers but are not joined any more.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        flights.clear();
+    }
+
+    /**
+     * @return A one-line summary of executions and shared replies for the server log.
+     */
+    public String getStats() {
+        return name + ": executions=" + executions.get() + ", shared=" + shared.get();
+    }
+
+    private boolean isUsable(Flight<V> flight, long current) {
+        if (flight.generation != current) return false;
+        if (!flight.result.isDone()) return true;
+        return !flight.result.isCompletedExceptionally()
+                && System.currentTimeMillis() - flight.completedAt <= freshMillis;
+    }
+
+    private V await(Flight<V> flight) throws Exception {
+        try {
+            return flight.result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package server;
+
+import common.Message;
+import common.TaskType;
+import ocsf.server.ConnectionToClient;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes change events (FLOOR_CHANGED, ORDERS_CHANGED, WAITING_LIST_CHANGED) to the staff
+ * terminals that subscribed to them.
+ * <p>
+ * Publishing never blocks: it only records the new version in each subscriber's pending set
+ * and schedules that subscriber's delivery on a worker thread. Every subscriber is drained by
+ * at most one thread at a time, so a terminal that reads slowly only delays its own events.
+ * The pending set holds one entry per topic (the newest version), so events for a slow
+ * terminal are coalesced instead of piling up; it still ends up with the latest version.
+ * <p>
+ * All work runs on a small fixed pool (PUBLISH_THREADS, default 2). A burst of changes queues at most
+ * one version computation per topic and one delivery per subscriber, so it never adds threads.
+ * @author Group 6
+ * @version 1.0
+ */
+public class TopicPublisher {
+
+    /** Subscription state of one connection. */
+    private static class Subscriber {
+        final Set<TaskType> topics = ConcurrentHashMap.newKeySet();
+        /** Newest undelivered version per topic. Guarded by the Subscriber monitor. */
+        final EnumMap<TaskType, Long> pending = new EnumMap<>(TaskType.class);
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+    }
+
+    /** Subscribers by connection. */
+    private final Map<ConnectionToClient, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    /** Highest version already published per topic. */
+    private final Map<TaskType, AtomicLong> lastPublished = new ConcurrentHashMap<>();
+
+    /** Topics whose version computation is queued but has not started yet. */
+    private final Map<TaskType, AtomicBoolean> computeQueued = new ConcurrentHashMap<>();
+
+    /** Computes versions and delivers the events (each connection drained by one thread at most). */
+    private final ExecutorService executor;
+
+    /** Sends a message to one client. */
+    private final BiConsumer<Message, ConnectionToClient> sender;
+
+    /** Writes to the server log. */
+    private final Consumer<String> logger;
+
+    // --- Statistics ---
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Creates the publisher.
+     * @param sender Sends an event to a client.
+     * @param logger Receives log lines.
+     */
+    public TopicPublisher(BiConsumer<Message, ConnectionToClient> sender, Consumer<String> logger) {
+        this.sender = sender;
+        this.logger = logger;
+        AtomicInteger counter = new AtomicInteger(1);
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "bistro-publisher-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = Executors.newFixedThreadPool(Math.max(1, ServerConfig.getInt("PUBLISH_THREADS", 2)), factory);
+    }
+
+    /**
+     * Subscribes a connection to a topic.
+     * @param client The staff terminal.
+     * @param topic The event type (e.g. FLOOR_CHANGED).
+     */
+    public void subscribe(ConnectionToClient client, TaskType topic) {
+        subscribers.computeIfAbsent(client, c -> new Subscriber()).topics.add(topic);
+    }
+
+    /**
+     * Removes all subscriptions of a connection (on UNSUBSCRIBE_ALL or when it closes).
+     * @param client The connection.
+     */
+    public void unsubscribeAll(ConnectionToClient client) {
+        subscribers.remove(client);
+    }
+
+    /**
+     * @param topic The event type.
+     * @return true if at least one connection is subscribed to it.
+     */
+    public boolean hasSubscribers(TaskType topic) {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.topics.contains(topic)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Announces that a topic reached a new version. Versions not newer than the last published
+     * one are ignored, so the same change reported twice is only sent once.
+     * @param topic The event type.
+     * @param version The version of the list after the change.
+     */
+    public void publish(TaskType topic, long version) {
+        AtomicLong last = lastPublished.computeIfAbsent(topic, t -> new AtomicLong(Long.MIN_VALUE));
+        if (last.getAndAccumulate(version, Math::max) >= version) return;
+        published.incrementAndGet();
+
+        for (Map.Entry<ConnectionToClient, Subscriber> entry : subscribers.entrySet()) {
+            Subscriber subscriber = entry.getValue();
+            if (!subscriber.topics.contains(topic)) continue;
+            synchronized (subscriber) {
+                if (subscriber.pending.put(topic, version) != null) coalesced.incrementAndGet();
+            }
+            schedule(entry.getKey(), subscriber);
+        }
+    }
+
+    /**
+     * Computes the version on a worker thread (e.g. reloading a list) and publishes it,
+     * so the caller does not wait for the reload. If a computation for the topic is already
+     * queued, that one covers this change as well.
+     * @param topic The event type.
+     * @param version Returns the version of the list after the change.
+     */
+    public void publishAsync(TaskType topic, LongSupplier version) {
+        AtomicBoolean queued = computeQueued.computeIfAbsent(topic, t -> new AtomicBoolean(false));
+        if (!queued.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> {
+                // Cleared before computing, so a change made from now on queues its own run
+                queued.set(false);
+                try {
+                    publish(topic, version.getAsLong());
+                } catch (RuntimeException e) {
+                    logger.accept("Publishing " + topic + " failed: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.set(false); // Server is closing
+        }
+    }
+
+    /**
+     * @return A one-line summary for the server log.
+     */
+    public String getStats() {
+        return "Live updates: subscribers=" + subscribers.size() + ", published=" + published.get()
+                + ", delivered=" + delivered.get() + ", coalesced=" + coalesced.get();
+    }
+
+    /**
+     * Stops the delivery threads. Pending events are dropped.
+     */
+    public void shutdown() {
+        subscribers.clear();
+        executor.shutdownNow();
+    }
+
+    private void schedule(ConnectionToClient client, Subscriber subscriber) {
+        if (!subscriber.scheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> drain(client, subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.scheduled.set(false);
+        }
+    }
+
+    /**
+     * Sends everything pending for one subscriber, until nothing new arrived meanwhile.
+     */
+    private void drain(ConnectionToClient client, Subscriber subscriber) {
+        while (true) {
+            EnumMap<TaskType, Long> batch;
+            synchronized (subscriber) {
+                if (subscriber.pending.isEmpty()) {
+                    subscriber.scheduled.set(false);
+                    return;
+                }
+                batch = new EnumMap<>(subscriber.pending);
+                subscriber.pending.clear();
+            }
+            for (Map.Entry<TaskType, Long> event : batch.entrySet()) {
+                if (subscribers.get(client) != subscriber) return; // unsubscribed meanwhile
+                sender.accept(new Message(event.getKey(), event.getValue()), client);
+                delivered.incrementAndGet();
+            }
+        }
+    }
+}
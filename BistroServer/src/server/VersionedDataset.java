@@ -0,0 +1,213 @@
+package server;
+
+import common.DatasetDelta;
+import common.KryoUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the last loaded copy of one list (orders, tables, waiting list, schedule) together with
+ * a change sequence, so clients can ask for "everything that changed since version V".
+ * <p>
+ * Handlers that modify the underlying table call {@link #markDirty()}. The next request then
+ * reloads the list once (shared by every waiting client), compares each row with the previous
+ * copy and gives all changed rows the next version number. Deleted rows are remembered as
+ * tombstones for a limited number of entries. Clients older than the oldest tombstone, or that
+ * changed too much, receive a full snapshot instead of a delta.
+ * <p>
+ * The list is also reloaded when it is older than a maximum age, which bounds the staleness
+ * for changes made outside a registered handler (background jobs, direct DB edits).
+ * Versions start at the server start time in milliseconds, so a version kept by a client
+ * from an earlier server run is always too old and results in a snapshot.
+ * @param <T> The row type.
+ * @author Group 6
+ * @version 1.0
+ */
+public class VersionedDataset<T> {
+
+    /** One loaded row with the version in which it last changed. */
+    private static class Row<T> {
+        final T value;
+        final byte[] content;
+        final long version;
+
+        Row(T value, byte[] content, long version) {
+            this.value = value;
+            this.content = content;
+            this.version = version;
+        }
+    }
+
+    /** Name used in log messages. */
+    private final String name;
+
+    /** Loads the full list from the database. */
+    private final Supplier<? extends List<T>> loader;
+
+    /** Extracts the primary key of a row. */
+    private final Function<T, Object> keyOf;
+
+    /** Maximum age of the loaded copy in milliseconds. */
+    private final long maxAgeMillis;
+
+    /** Maximum number of remembered deletions. */
+    private final int maxTombstones;
+
+    /** Current rows by key, in load order. */
+    private LinkedHashMap<Object, Row<T>> rows = new LinkedHashMap<>();
+
+    /** Deleted keys with the version of their deletion, oldest first. */
+    private final LinkedHashMap<Object, Long> tombstones = new LinkedHashMap<>();
+
+    /** Current version of the dataset. */
+    private long version;
+
+    /** Oldest client version that can still be answered with a delta. */
+    private long floor;
+
+    /** True if the table was modified since the last load. */
+    private volatile boolean dirty = true;
+
+    /** System time of the last load. */
+    private long loadedAt;
+
+    // --- Statistics ---
+    private long loads;
+    private long deltas;
+    private long snapshots;
+
+    /**
+     * Creates a dataset. Nothing is loaded until the first request.
+     * @param name Name used in log messages.
+     * @param loader Loads the full list from the database.
+     * @param keyOf Extracts the primary key of a row.
+     * @param maxAgeMillis Reload when the copy is older than this.
+     * @param maxTombstones Maximum number of remembered deletions.
+     */
+    public VersionedDataset(String name, Supplier<? extends List<T>> loader, Function<T, Object> keyOf,
+                            long maxAgeMillis, int maxTombstones) {
+        this.name = name;
+        this.loader = loader;
+        this.keyOf = keyOf;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxTombstones = Math.max(1, maxTombstones);
+        this.version = System.currentTimeMillis();
+        this.floor = version;
+    }
+
+    /**
+     * Marks the dataset as modified; the next request reloads it.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Reloads the list if needed and returns its version.
+     * @return The current version.
+     */
+    public synchronized long currentVersion() {
+        refreshIfNeeded();
+        return version;
+    }
+
+    /**
+     * Returns the changes since the given version, or a full snapshot if the client is too far behind.
+     * @param clientVersion The version the client holds (0 if it holds nothing).
+     * @return The delta (or snapshot) bringing the client to the current version.
+     */
+    public synchronized DatasetDelta<T> since(long clientVersion) {
+        refreshIfNeeded();
+
+        if (clientVersion == version) {
+            deltas++;
+            return new DatasetDelta<>(version, false, new ArrayList<>(), new ArrayList<>());
+        }
+        if (clientVersion < floor || clientVersion > version) {
+            return snapshot();
+        }
+
+        ArrayList<T> changed = new ArrayList<>();
+        for (Row<T> row : rows.values()) {
+            if (row.version > clientVersion) changed.add(row.value);
+        }
+        ArrayList<Object> removed = new ArrayList<>();
+        for (Map.Entry<Object, Long> tombstone : tombstones.entrySet()) {
+            if (tombstone.getValue() > clientVersion) removed.add(tombstone.getKey());
+        }
+        // A delta touching more than half of the rows is not worth it
+        if ((changed.size() + removed.size()) * 2 > rows.size()) {
+            return snapshot();
+        }
+        deltas++;
+        return new DatasetDelta<>(version, false, changed, removed);
+    }
+
+    /**
+     * @return A one-line summary of versions, loads and replies for the server log.
+     */
+    public synchronized String getStats() {
+        return name + ": version=" + version + ", rows=" + rows.size() + ", loads=" + loads
+                + ", deltas=" + deltas + ", snapshots=" + snapshots;
+    }
+
+    private DatasetDelta<T> snapshot() {
+        snapshots++;
+        ArrayList<T> all = new ArrayList<>(rows.size());
+        for (Row<T> row : rows.values()) all.add(row.value);
+        return new DatasetDelta<>(version, true, all, new ArrayList<>());
+    }
+
+    /**
+     * Reloads the list if it was modified or is too old, and assigns the next version to every changed row.
+     */
+    private void refreshIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (!dirty && now - loadedAt < maxAgeMillis) return;
+
+        // Cleared before loading: a change that lands during the load marks it dirty again
+        dirty = false;
+        List<T> loaded = loader.get();
+        loadedAt = now;
+        loads++;
+
+        long next = version + 1;
+        boolean changed = false;
+        LinkedHashMap<Object, Row<T>> fresh = new LinkedHashMap<>(loaded.size() * 2);
+        for (T value : loaded) {
+            Object key = keyOf.apply(value);
+            byte[] content = KryoUtil.serialize(value);
+            Row<T> previous = rows.remove(key);
+            if (previous != null && Arrays.equals(previous.content, content)) {
+                fresh.put(key, new Row<>(value, content, previous.version));
+            } else {
+                fresh.put(key, new Row<>(value, content, next));
+                tombstones.remove(key);
+                changed = true;
+            }
+        }
+        // Whatever is left in the old map was deleted
+        for (Object key : rows.keySet()) {
+            tombstones.put(key, next);
+            changed = true;
+        }
+        rows = fresh;
+
+        if (changed) {
+            version = next;
+        }
+        Iterator<Map.Entry<Object, Long>> oldest = tombstones.entrySet().iterator();
+        while (tombstones.size() > maxTombstones && oldest.hasNext()) {
+            // Clients that have not seen this deletion can only be served with a snapshot
+            floor = Math.max(floor, oldest.next().getValue());
+            oldest.remove();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package controllers;
+
+import JDBC.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency harness for check-in and waiting-list promotion, run against the real database.
+ * <p>
+ * Creates its own fixture in bistro_db through the connection pool: a small floor of tables
+ * (ids from 9001, 40 seats, so no real table fits the fixture parties), one casual user per party,
+ * today's APPROVED orders and some WAITING entries. Then it fires hundreds of check-ins from many threads
+ * at once (every code twice, like a double tap on two kiosks) mixed with waiting-list promotions, and checks:
+ * <ul>
+ * <li>no table is handed out twice and no code is checked in twice;</li>
+ * <li>every successful check-in is an ACTIVE order in the database sitting at an OCCUPIED fixture table,
+ *     and every OCCUPIED / RESERVED fixture table belongs to exactly one ACTIVE order / NOTIFIED entry
+ *     (no lost update);</li>
+ * <li>the confirmation code index agrees with the database.</li>
+ * </ul>
+ * The fixture is removed afterwards. Not part of the server build: compile it against the server classes
+ * (or add test as a source folder) and run it while the server is stopped, since it uses the same singletons:
+ * {@code java controllers.CheckInConcurrencyHarness [orders] [tables] [threads]}.
+ * Exits with 1 if an invariant is violated.
+ * @author Group 6
+ * @version 1.0
+ */
+public class CheckInConcurrencyHarness {
+
+    /** First table id of the fixture floor. */
+    private static final int FIRST_TABLE = 9001;
+
+    /** Seats of a fixture table and size of a fixture party; larger than any real table. */
+    private static final int PARTY = 40;
+
+    /** Waiting-list entries competing with the check-ins for the same tables. */
+    private static final int WAITING = 10;
+
+    private final int orderCount;
+    private final int tableCount;
+    private final int threads;
+
+    // --- Fixture ---
+    private final List<Integer> users = new ArrayList<>();
+    private final List<String> orderCodes = new ArrayList<>();
+    private final List<String> waitingCodes = new ArrayList<>();
+    private final List<Integer> waitingIds = new ArrayList<>();
+
+    /** Check-in results per code. */
+    private final Map<String, ConcurrentLinkedQueue<Integer>> results = new ConcurrentHashMap<>();
+
+    private final List<String> violations = new ArrayList<>();
+
+    private CheckInConcurrencyHarness(int orderCount, int tableCount, int threads) {
+        this.orderCount = orderCount;
+        this.tableCount = tableCount;
+        this.threads = threads;
+    }
+
+    /**
+     * @param args Optional: number of orders (300), tables (5) and threads (64).
+     */
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int tables = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        CheckInConcurrencyHarness harness = new CheckInConcurrencyHarness(orders, tables, threads);
+        boolean ok;
+        try {
+            harness.setUp();
+            harness.run();
+            ok = harness.verify();
+        } finally {
+            harness.tearDown();
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    // =========================================================================
+    // FIXTURE
+    // =========================================================================
+
+    private void setUp() throws SQLException {
+        // Load the live codes first, so the fixture entries recorded below are not replaced
+        ConfirmationCodeAllocator.getInstance().warmUp();
+        ConfirmationCodeIndex.getInstance().warmUp();
+
+        Date today = Date.valueOf(LocalDate.now());
+        Time now = Time.valueOf(LocalTime.now());
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO restaurant_tables (table_id, seats, status, user_id) VALUES (?, ?, 'AVAILABLE', NULL)")) {
+                for (int i = 0; i < tableCount; i++) {
+                    ps.setInt(1, FIRST_TABLE + i);
+                    ps.setInt(2, PARTY);
+                    ps.executeUpdate();
+                }
+            }
+
+            for (int i = 0; i < orderCount + WAITING; i++) {
+                int userId = insertUser(conn, i);
+                String code = ConfirmationCodeAllocator.getInstance().allocate();
+                if (code == null) throw new SQLException("No confirmation codes left for the fixture");
+
+                if (i < orderCount) {
+                    String sql = "INSERT INTO orders (user_id, order_date, order_time, num_of_diners, status, confirmation_code) VALUES (?, ?, ?, ?, 'APPROVED', ?)";
+                    int id = insert(conn, sql, userId, today, now, code);
+                    orderCodes.add(code);
+                    ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(false,
+                            id, userId, PARTY, today.toLocalDate(), "APPROVED", -1, 0, "CASUAL"));
+                } else {
+                    String sql = "INSERT INTO waiting_list (user_id, date_requested, time_requested, num_of_diners, status, confirmation_code) VALUES (?, ?, ?, ?, 'WAITING', ?)";
+                    int id = insert(conn, sql, userId, today, now, code);
+                    waitingCodes.add(code);
+                    waitingIds.add(id);
+                    ConfirmationCodeIndex.getInstance().put(code, new ConfirmationCodeIndex.Entry(true,
+                            id, userId, PARTY, today.toLocalDate(), "WAITING", -1, 0, "CASUAL"));
+                }
+            }
+        }
+        System.out.println("[Harness] Fixture: " + tableCount + " tables, " + orderCount + " orders, "
+                + WAITING + " waiting-list entries.");
+    }
+
+    private int insertUser(Connection conn, int i) throws SQLException {
+        String sql = "INSERT INTO users (phone_number, first_name, last_name, user_type) VALUES (?, 'Harness', ?, 'CASUAL')";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, "h-" + System.nanoTime() % 1_000_000_000L + "-" + i);
+            ps.setString(2, "User" + i);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                int userId = keys.getInt(1);
+                users.add(userId);
+                return userId;
+            }
+        }
+    }
+
+    private static int insert(Connection conn, String sql, int userId, Date date, Time time, String code) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, userId);
+            ps.setDate(2, date);
+            ps.setTime(3, time);
+            ps.setInt(4, PARTY);
+            ps.setString(5, code);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private void tearDown() {
+        if (users.isEmpty()) return;
+        String ids = join(users);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM orders WHERE user_id IN (" + ids + ")");
+            // Fulfilled entries no longer point at their user
+            if (!waitingIds.isEmpty()) {
+                st.executeUpdate("DELETE FROM waiting_list WHERE waiting_id IN (" + join(waitingIds) + ")");
+            }
+            st.executeUpdate("DELETE FROM restaurant_tables WHERE table_id BETWEEN " + FIRST_TABLE
+                    + " AND " + (FIRST_TABLE + tableCount - 1));
+            st.executeUpdate("DELETE FROM users WHERE user_id IN (" + ids + ")");
+        } catch (SQLException e) {
+            System.err.println("[Harness] Cleanup failed, remove the fixture by hand: " + e.getMessage());
+        }
+        for (String code : orderCodes) ConfirmationCodeIndex.getInstance().retire(code);
+        for (String code : waitingCodes) ConfirmationCodeIndex.getInstance().retire(code);
+        System.out.println("[Harness] Fixture removed.");
+    }
+
+    // =========================================================================
+    // RUN
+    // =========================================================================
+
+    private void run() throws InterruptedException {
+        ReservationController reservations = new ReservationController();
+        WaitingListController waitingList = new WaitingListController();
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (String code : orderCodes) {
+            results.put(code, new ConcurrentLinkedQueue<>());
+            // Every code twice: two kiosks racing for the same party
+            tasks.add(() -> results.get(code).add(reservations.checkIn(code)));
+            tasks.add(() -> results.get(code).add(reservations.checkIn(code)));
+        }
+        for (String code : waitingCodes) {
+            results.put(code, new ConcurrentLinkedQueue<>());
+            tasks.add(() -> results.get(code).add(reservations.checkIn(code)));
+        }
+        for (int i = 0; i < WAITING; i++) {
+            tasks.add(() -> waitingList.notifyNextInLine(PARTY));
+        }
+        Collections.shuffle(tasks);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (Runnable task : tasks) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        if (!pool.awaitTermination(5, TimeUnit.MINUTES)) {
+            violations.add("Tasks did not finish within 5 minutes");
+            pool.shutdownNow();
+        }
+        System.out.printf("[Harness] %d tasks on %d threads in %.0f ms%n",
+                tasks.size(), threads, (System.nanoTime() - begin) / 1_000_000.0);
+    }
+
+    // =========================================================================
+    // VERIFY
+    // =========================================================================
+
+    private boolean verify() throws SQLException {
+        // 1. What the kiosks were told
+        Map<Integer, String> tableToCode = new HashMap<>();
+        Map<String, Integer> seated = new HashMap<>();
+        int errors = 0;
+        for (Map.Entry<String, ConcurrentLinkedQueue<Integer>> e : results.entrySet()) {
+            for (int result : e.getValue()) {
+                if (result == -1) errors++;
+                if (result <= 0) continue;
+                if (seated.put(e.getKey(), result) != null) violations.add("Code " + e.getKey() + " checked in twice");
+                String other = tableToCode.put(result, e.getKey());
+                if (other != null) violations.add("Table " + result + " given to " + other + " and " + e.getKey());
+            }
+        }
+
+        // 2. What the database says
+        Map<Integer, Integer> activeOrdersByUser = new HashMap<>();
+        Map<Integer, String> activeCodeByUser = new HashMap<>();
+        Set<Integer> notifiedUsers = new HashSet<>();
+        Map<Integer, String> tableStatus = new HashMap<>();
+        Map<Integer, Integer> tableUser = new HashMap<>();
+        String ids = join(users);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT user_id, confirmation_code FROM orders WHERE status = 'ACTIVE' AND user_id IN (" + ids + ")")) {
+                while (rs.next()) {
+                    activeOrdersByUser.merge(rs.getInt("user_id"), 1, Integer::sum);
+                    activeCodeByUser.put(rs.getInt("user_id"), rs.getString("confirmation_code"));
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT user_id FROM waiting_list WHERE status = 'NOTIFIED' AND user_id IN (" + ids + ")")) {
+                while (rs.next()) notifiedUsers.add(rs.getInt("user_id"));
+            }
+            try (ResultSet rs = st.executeQuery("SELECT table_id, status, user_id FROM restaurant_tables WHERE table_id BETWEEN "
+                    + FIRST_TABLE + " AND " + (FIRST_TABLE + tableCount - 1))) {
+                while (rs.next()) {
+                    tableStatus.put(rs.getInt("table_id"), rs.getString("status"));
+                    tableUser.put(rs.getInt("table_id"), rs.getInt("user_id"));
+                }
+            }
+        }
+
+        int active = 0;
+        for (int count : activeOrdersByUser.values()) {
+            if (count > 1) violations.add("A user has " + count + " ACTIVE orders");
+            active += count;
+        }
+        if (active != seated.size()) {
+            violations.add(seated.size() + " successful check-ins but " + active + " ACTIVE orders");
+        }
+
+        int occupied = 0, reserved = 0, available = 0;
+        for (Map.Entry<Integer, String> t : tableStatus.entrySet()) {
+            int userId = tableUser.get(t.getKey());
+            switch (t.getValue()) {
+                case "OCCUPIED":
+                    occupied++;
+                    String code = activeCodeByUser.get(userId);
+                    if (code == null) {
+                        violations.add("Table " + t.getKey() + " OCCUPIED without an ACTIVE order");
+                    } else if (!t.getKey().equals(seated.get(code))) {
+                        violations.add("Table " + t.getKey() + " OCCUPIED by code " + code + ", kiosk said " + seated.get(code));
+                    }
+                    break;
+                case "RESERVED":
+                    reserved++;
+                    if (!notifiedUsers.contains(userId)) violations.add("Table " + t.getKey() + " RESERVED without a NOTIFIED entry");
+                    break;
+                default:
+                    available++;
+                    break;
+            }
+        }
+        if (occupied != seated.size()) {
+            violations.add(seated.size() + " successful check-ins but " + occupied + " OCCUPIED tables");
+        }
+        if (reserved != notifiedUsers.size()) {
+            violations.add(notifiedUsers.size() + " NOTIFIED entries but " + reserved + " RESERVED tables");
+        }
+        if (available > 0 && orderCount >= tableCount) {
+            // Not a safety violation: a table released by a rolled-back attempt after the last task looked
+            System.out.println("[Harness] Note: " + available + " tables ended AVAILABLE.");
+        }
+
+        // 3. What the index says
+        for (Map.Entry<String, Integer> s : seated.entrySet()) {
+            ConfirmationCodeIndex.Entry entry = ConfirmationCodeIndex.getInstance().get(s.getKey());
+            if (entry == null || !"ACTIVE".equals(entry.getStatus()) || entry.getTableId() != s.getValue()) {
+                violations.add("Index out of sync for code " + s.getKey());
+            }
+        }
+
+        System.out.println("[Harness] Seated " + seated.size() + ", held for waiting list " + reserved
+                + ", free " + available + ", failed after retries " + errors);
+        for (String v : violations) System.err.println("[Harness] VIOLATION: " + v);
+        System.out.println(violations.isEmpty() ? "[Harness] PASSED" : "[Harness] FAILED (" + violations.size() + ")");
+        return violations.isEmpty();
+    }
+
+    private static String join(List<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (int id : ids) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+}
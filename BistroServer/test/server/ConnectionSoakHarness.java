@@ -0,0 +1,228 @@
+package server;
+
+import common.KryoUtil;
+import common.Message;
+import common.Order;
+import common.TaskType;
+import ocsf.client.AbstractClient;
+import ocsf.server.AbstractServer;
+import ocsf.server.ConnectionToClient;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Soak harness for the object-stream transport of {@link ConnectionToClient}.
+ * <p>
+ * Starts an OCSF server and a client in this JVM and keeps one connection open for a simulated day
+ * of a representative terminal polling GET_ORDERS: every request is answered with a freshly built,
+ * Kryo-encoded order list, sent as a byte[] through the connection's ObjectOutputStream (as
+ * BistroServer does with TRANSPORT=object). After every simulated hour the retained heap (used heap
+ * after a full GC) is sampled. An object stream that is never reset keeps every response it wrote
+ * in its handle table, so the retained heap would grow by the size of the responses; the harness
+ * checks that it stays flat instead:
+ * <ul>
+ * <li>every request of the day is answered, in order, on the same connection;</li>
+ * <li>the retained heap never grows by more than LIMIT_MB (default 8) over the first hour,
+ *     while the day sends several times that much.</li>
+ * </ul>
+ * No database is needed. Not part of the server build: compile it against the OCSF and server classes
+ * (or add test as a source folder) and run it with a fixed heap so the samples are comparable:
+ * {@code java -Xms256m -Xmx256m server.ConnectionSoakHarness [polls] [orders per response] [port]}.
+ * The default is 8640 polls (one every 5 seconds over 12 opening hours) of 300 orders. The terminal keeps
+ * a few requests in flight, as ClientController allows, so the day runs in seconds instead of waiting
+ * for TCP acknowledgements on every round trip.
+ * Exits with 1 if the heap grew or a request went unanswered.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ConnectionSoakHarness {
+
+    /** Simulated opening hours; the heap is sampled once per hour. */
+    private static final int HOURS = 12;
+
+    /** How long the client waits for one response. */
+    private static final long RESPONSE_TIMEOUT_MS = 10_000;
+
+    /** Requests the terminal keeps in flight. */
+    private static final int WINDOW = 16;
+
+    private final int polls;
+    private final int ordersPerResponse;
+    private final int port;
+    private final long limitBytes = Long.getLong("LIMIT_MB", 8) * 1024 * 1024;
+
+    /** Free slots of the request window; a response gives its slot back. */
+    private final Semaphore window = new Semaphore(WINDOW);
+
+    /** Request ID of the next expected response. */
+    private final AtomicLong expected = new AtomicLong(1);
+
+    /** Total size of the encoded responses. */
+    private long bytesSent = 0;
+
+    private final List<String> violations = new ArrayList<>();
+
+    private ConnectionSoakHarness(int polls, int ordersPerResponse, int port) {
+        this.polls = polls;
+        this.ordersPerResponse = ordersPerResponse;
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int polls = args.length > 0 ? Integer.parseInt(args[0]) : 8640;
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 5599;
+
+        boolean ok = new ConnectionSoakHarness(polls, orders, port).run();
+        System.exit(ok ? 0 : 1);
+    }
+
+    // =========================================================================
+    // SERVER AND TERMINAL
+    // =========================================================================
+
+    /** Answers every request with a new GET_ORDERS list, like a full reload. */
+    private final class SoakServer extends AbstractServer {
+        SoakServer() {
+            super(port);
+        }
+
+        @Override
+        protected void handleMessageFromClient(Object msg, ConnectionToClient client) {
+            Message request = (Message) KryoUtil.deserialize((byte[]) msg);
+            Message response = new Message(TaskType.GET_ORDERS, buildOrders());
+            response.setRequestId(request.getRequestId());
+            byte[] bytes = KryoUtil.serialize(response);
+            try {
+                client.sendToClient(bytes);
+                synchronized (ConnectionSoakHarness.this) {
+                    bytesSent += bytes.length;
+                }
+            } catch (IOException e) {
+                System.err.println("[Soak] Send failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** A representative terminal that decodes every response and checks it answers the next request. */
+    private final class SoakClient extends AbstractClient {
+        SoakClient() {
+            super("localhost", port);
+        }
+
+        @Override
+        protected void handleMessageFromServer(Object msg) {
+            Object response = KryoUtil.deserialize((byte[]) msg);
+            long id = expected.getAndIncrement();
+            if (!(response instanceof Message) || ((Message) response).getRequestId() != id) {
+                addViolation("Response " + id + " missing or out of order");
+            }
+            window.release();
+        }
+    }
+
+    private ArrayList<Order> buildOrders() {
+        ArrayList<Order> orders = new ArrayList<>(ordersPerResponse);
+        Date today = Date.valueOf(LocalDate.now());
+        for (int i = 0; i < ordersPerResponse; i++) {
+            Time time = Time.valueOf(LocalTime.of(12 + i % 10, (i * 15) % 60));
+            orders.add(new Order(100_000 + i, 1000 + i, today, time, 2 + i % 6, "APPROVED",
+                    String.format("%04d", i % 10_000), null, null));
+        }
+        return orders;
+    }
+
+    // =========================================================================
+    // SOAK
+    // =========================================================================
+
+    private boolean run() throws Exception {
+        SoakServer server = new SoakServer();
+        SoakClient client = new SoakClient();
+        server.listen();
+        try {
+            client.openConnection();
+            int perHour = Math.max(1, polls / HOURS);
+            long baseline = -1;
+            long peak = 0;
+
+            for (int i = 1; i <= polls; i++) {
+                if (!window.tryAcquire(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    addViolation("Poll " + expected.get() + " was not answered");
+                    break;
+                }
+                Message request = new Message(TaskType.GET_ORDERS, null);
+                request.setRequestId(i);
+                client.sendToServer(KryoUtil.serialize(request));
+
+                if (i % perHour == 0 || i == polls) {
+                    // Wait for the hour's responses before sampling
+                    if (!window.tryAcquire(WINDOW, RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        addViolation("Poll " + expected.get() + " was not answered");
+                        break;
+                    }
+                    window.release(WINDOW);
+                    long retained = retainedHeap();
+                    if (baseline < 0) {
+                        // The first hour warms up Kryo, the streams and the JIT
+                        baseline = retained;
+                    } else {
+                        peak = Math.max(peak, retained - baseline);
+                    }
+                    System.out.printf("[Soak] hour %2d: %6d polls, retained heap %,d KB%n",
+                            (i + perHour - 1) / perHour, i, retained / 1024);
+                }
+            }
+
+            if (server.getNumberOfClients() != 1) {
+                addViolation("Expected one open connection at the end, found " + server.getNumberOfClients());
+            }
+            long sent;
+            synchronized (this) {
+                sent = bytesSent;
+            }
+            System.out.printf("[Soak] Sent %,d KB in total; retained heap grew by at most %,d KB (limit %,d KB)%n",
+                    sent / 1024, peak / 1024, limitBytes / 1024);
+            if (peak > limitBytes) {
+                addViolation("Retained heap grew by " + peak / 1024 + " KB over the day");
+            }
+            if (sent < 4 * limitBytes) {
+                System.out.println("[Soak] Note: the day sent less than 4x the limit; raise polls or orders for a meaningful run.");
+            }
+        } finally {
+            try { client.closeConnection(); } catch (IOException e) {}
+            server.close();
+        }
+
+        synchronized (violations) {
+            for (String v : violations) System.err.println("[Soak] VIOLATION: " + v);
+            System.out.println(violations.isEmpty() ? "[Soak] PASSED" : "[Soak] FAILED (" + violations.size() + ")");
+            return violations.isEmpty();
+        }
+    }
+
+    private void addViolation(String violation) {
+        synchronized (violations) {
+            violations.add(violation);
+        }
+    }
+
+    /** @return Used heap after a few full collections. */
+    private static long retainedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -1 +1 @@
-// This file contains material supporting section 3.8 of the textbook:// "Object Oriented Software Engineering" and is issued under the open-source// license found at www.lloseng.compackage ocsf.server;import java.io.*;import java.net.*;import java.util.*;/*** An instance of this class is created by the server when a client* connects. It accepts messages coming from the client and is* responsible for sending data to the client since the socket is* private to this class. The AbstractServer contains a set of* instances of this class and is responsible for adding and deleting* them.<p>** Project Name: OCSF (Object Client-Server Framework)<p>** @author Dr Robert Lagani&egrave;re* @author Dr Timothy C. Lethbridge* @author Fran&ccedil;ois B&eacute;langer* @author Paul Holden* @version February 2001 (2.12)*/public class ConnectionToClient extends Thread{// INSTANCE VARIABLES ***********************************************  /**  * A reference to the Server that created this instance.  */  private AbstractServer server;  /**  * Sockets are used in the operating system as channels  * of communication between two processes.  * @see java.net.Socket  */  private Socket clientSocket;  /**  * Stream used to read from the client.  */  private ObjectInputStream input;  /**  * Stream used to write to the client.  */  private ObjectOutputStream output;  /**  * Indicates if the thread is ready to stop. Set to true when closing  * of the connection is initiated.  */  private boolean readyToStop;  /**   * Map to save information about the client such as its login ID.   * The initial size of the map is small since it is not expected   * that concrete servers will want to store many different types of   * information about each client. Used by the setInfo and getInfo   * methods.   */  private HashMap savedInfo = new HashMap(10);// CONSTRUCTORS *****************************************************  /**   * Constructs a new connection to a client.   *   * @param group the thread group that contains the connections.   * @param clientSocket contains the client's socket.   * @param server a reference to the server that created   *        this instance   * @exception IOException if an I/O error occur when creating   *        the connection.   */  ConnectionToClient(ThreadGroup group, Socket clientSocket,    AbstractServer server) throws IOException  {    super(group,(Runnable)null);    // Initialize variables    this.clientSocket = clientSocket;    this.server = server;    clientSocket.setSoTimeout(0); // make sure timeout is infinite    //Initialize the objects streams    try    {      input = new ObjectInputStream(clientSocket.getInputStream());      output = new ObjectOutputStream(clientSocket.getOutputStream());    }    catch (IOException ex)    {      try      {        closeAll();      }      catch (Exception exc) { }      throw ex;  // Rethrow the exception.    }    readyToStop = false;    start(); // Start the thread waits for data from the socket  }// INSTANCE METHODS *************************************************  /**   * Sends an object to the client.   *   * @param msg the message to be sent.   * @exception IOException if an I/O error occur when sending the   *    message.   */  final public void sendToClient(Object msg) throws IOException  {    if (clientSocket == null || output == null)      throw new SocketException("socket does not exist");    output.writeObject(msg);  }  /**   * Closes the client.   * If the connection is already closed, this   * call has no effect.   *   * @exception IOException if an error occurs when closing the socket.   */  final public void close() throws IOException  {    readyToStop = true; // Set the flag that tells the thread to stop    try    {      closeAll();    }    finally    {      server.clientDisconnected(this);    }  }// ACCESSING METHODS ------------------------------------------------  /**   * Returns the address of the client.   *   * @return the client's Internet address.   */  final public InetAddress getInetAddress()  {    return clientSocket == null ? null : clientSocket.getInetAddress();  }  /**   * Returns a string representation of the client.   *   * @return the client's description.   */  public String toString()  {    return clientSocket == null ? null :      clientSocket.getInetAddress().getHostName()        +" (" + clientSocket.getInetAddress().getHostAddress() + ")";  }  /**   * Saves arbitrary information about this client. Designed to be   * used by concrete subclasses of AbstractServer. Based on a hash map.   *   * @param infoType   identifies the type of information   * @param info       the information itself.   */  public void setInfo(String infoType, Object info)  {    savedInfo.put(infoType, info);  }  /**   * Returns information about the client saved using setInfo.   * Based on a hash map.   *   * @param infoType   identifies the type of information   */  public Object getInfo(String infoType)  {    return savedInfo.get(infoType);  }// RUN METHOD -------------------------------------------------------  /**   * Constantly reads the client's input stream.   * Sends all objects that are read to the server.   * Not to be called.   */  final public void run()  {    server.clientConnected(this);    // This loop reads the input stream and responds to messages    // from clients    try    {      // The message from the client      Object msg;      while (!readyToStop)      {        // This block waits until it reads a message from the client        // and then sends it for handling by the server        msg = input.readObject();        server.receiveMessageFromClient(msg, this);      }    }    catch (Exception exception)    {      if (!readyToStop)      {        try        {          closeAll();        }        catch (Exception ex) { }        server.clientException(this, exception);      }    }  }// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------  /**   * Closes all connection to the server.   *   * @exception IOException if an I/O error occur when closing the   *     connection.   */  private void closeAll() throws IOException  {    try    {      // Close the socket      if (clientSocket != null)        clientSocket.close();      // Close the output stream      if (output != null)        output.close();      // Close the input stream      if (input != null)        input.close();    }    finally    {      // Set the streams and the sockets to NULL no matter what      // Doing so allows, but does not require, any finalizers      // of these objects to reclaim system resources if and      // when they are garbage collected.      output = null;      input = null;      clientSocket = null;    }  }  /**   * This method is called by garbage collection.   */  protected void finalize()  {    try    {      closeAll();    }    catch(IOException e) {}  }}// End of ConnectionToClient class
\ No newline at end of file
+// This file contains material supporting section 3.8 of the textbook:// "Object Oriented Software Engineering" and is issued under the open-source// license found at www.lloseng.compackage ocsf.server;import java.io.*;import java.net.*;import java.nio.channels.*;import java.util.*;import java.util.concurrent.*;import java.util.concurrent.atomic.*;import java.util.concurrent.locks.*;/*** An instance of this class is created by the server when a client* connects. It accepts messages coming from the client and is* responsible for sending data to the client since the socket is* private to this class. The AbstractServer contains a set of* instances of this class and is responsible for adding and deleting* them.<p>** Project Name: OCSF (Object Client-Server Framework)<p>** @author Dr Robert Lagani&egrave;re* @author Dr Timothy C. Lethbridge* @author Fran&ccedil;ois B&eacute;langer* @author Paul Holden* @version February 2001 (2.12)*/public class ConnectionToClient extends Thread{// CONSTANTS *******************************************************  /**   * Maximum number of queued messages the writer thread writes   * before flushing the socket.   */  private static final int MAX_BATCH = 64;// INSTANCE VARIABLES ***********************************************  /**  * A reference to the Server that created this instance.  */  private AbstractServer server;  /**  * Sockets are used in the operating system as channels  * of communication between two processes.  * @see java.net.Socket  */  private Socket clientSocket;  /**  * Stream used to read from the client.  */  private ObjectInputStream input;  /**  * Stream used to write to the client.  */  private ObjectOutputStream output;  /**   * Indicates if this connection uses the length-prefixed frame   * protocol instead of Java object streams. In this mode every   * message is a 4 byte big-endian length followed by that many   * bytes of payload, and only byte arrays can be exchanged.   */  private boolean framed;  /**   * Stream used to read frames from the client (framed mode only).   */  private DataInputStream frameInput;  /**   * Buffered stream used to write frames to the client (framed mode   * only). A frame header and its payload are flushed together.   */  private DataOutputStream frameOutput;  /**   * Lock held while a message or frame is written, so messages sent   * from different threads are never interleaved. A ReentrantLock   * rather than a monitor, so a virtual thread blocked on a slow   * socket does not pin its carrier thread.   */  private final ReentrantLock writeLock = new ReentrantLock();  /**   * The channel state of this connection when the server runs in   * NIO mode, or null when this connection has its own thread.   */  private NioReactor.Endpoint endpoint;  /**   * Maximum number of messages waiting to be written, or 0 when   * messages are written on the thread that sends them. Taken from   * the server when the connection is created.   */  private int queueCapacity;  /**   * Messages waiting for the writer thread, oldest first, or null   * when this connection has no writer thread. In framed mode the   * entries are copies of the frame payloads. Guarded by   * <code>queueLock</code>.   */  private ArrayDeque<Object> outbox;  /**   * The overflow policy of each message in <code>outbox</code>, in   * the same order. Guarded by <code>queueLock</code>.   */  private ArrayDeque<OverflowPolicy> outboxPolicies;  /**   * Indicates if the outbound queue was closed; the writer thread   * exits. Guarded by <code>queueLock</code>.   */  private boolean outboxClosed = false;  /**   * Largest number of messages queued at once. Guarded by   * <code>queueLock</code>.   */  private int peakQueueDepth = 0;  /**   * Number of messages discarded because the queue was full.   * Guarded by <code>queueLock</code>.   */  private long droppedMessages = 0;  /**   * Lock guarding the outbound queue.   */  private final ReentrantLock queueLock = new ReentrantLock();  /**   * Signalled when a message is queued or the queue is closed.   */  private final Condition messageQueued = queueLock.newCondition();  /**  * Indicates if the thread is ready to stop. Set to true when closing  * of the connection is initiated.  */  private final AtomicBoolean readyToStop = new AtomicBoolean(false);  /**   * Map to save information about the client such as its login ID.   * The initial size of the map is small since it is not expected   * that concrete servers will want to store many different types of   * information about each client. Used by the setInfo and getInfo   * methods.   */  private HashMap savedInfo = new HashMap(10);// CONSTRUCTORS *****************************************************  /**   * Constructs a new connection to a client.   *   * @param group the thread group that contains the connections.   * @param clientSocket contains the client's socket.   * @param server a reference to the server that created   *        this instance   * @param framed true to use the length-prefixed frame protocol,   *        false to use Java object streams.   * @param readerFactory creates the thread that reads from the   *        client (e.g. a virtual thread), or null to start this   *        thread itself. Also creates the writer thread when the   *        server sets an outbound queue capacity.   * @exception IOException if an I/O error occur when creating   *        the connection.   */  ConnectionToClient(ThreadGroup group, Socket clientSocket,    AbstractServer server, boolean framed, ThreadFactory readerFactory)    throws IOException  {    super(group,(Runnable)null);    // Initialize variables    this.clientSocket = clientSocket;    this.server = server;    this.framed = framed;    this.queueCapacity = server.getOutboundQueueCapacity();    clientSocket.setSoTimeout(0); // make sure timeout is infinite    //Initialize the streams    try    {      if (framed)      {        clientSocket.setTcpNoDelay(true);        frameInput = new DataInputStream(new BufferedInputStream(          clientSocket.getInputStream(), AbstractServer.FRAME_BUFFER_SIZE));        frameOutput = new DataOutputStream(new BufferedOutputStream(          clientSocket.getOutputStream(), AbstractServer.FRAME_BUFFER_SIZE));      }      else      {        input = new ObjectInputStream(clientSocket.getInputStream());        if (queueCapacity > 0)        {          // The writer thread flushes once per batch of messages          output = new ObjectOutputStream(new BufferedOutputStream(            clientSocket.getOutputStream(), AbstractServer.FRAME_BUFFER_SIZE));          output.flush(); // the client waits for the stream header        }        else          output = new ObjectOutputStream(clientSocket.getOutputStream());      }    }    catch (IOException ex)    {      try      {        closeAll();      }      catch (Exception exc) { }      throw ex;  // Rethrow the exception.    }    readyToStop.set(false);    server.connectionOpened(this);    // Start the thread that empties the outbound queue    if (queueCapacity > 0)      startWriter(readerFactory);    // Start the thread waits for data from the socket    if (readerFactory != null)      readerFactory.newThread(this).start();    else      start();  }  /**   * Constructs a connection served by an NIO reactor instead of its   * own thread. The thread of this object is never started; the   * reactor decodes frames and calls the server hooks. NIO   * connections always use the frame protocol.   *   * @param channel the accepted channel, in non-blocking mode.   * @param server a reference to the server that created   *        this instance   * @param reactor the reactor that will serve the channel.   * @param name the name of this connection.   */  ConnectionToClient(SocketChannel channel, AbstractServer server,    NioReactor reactor, String name)  {    super((Runnable)null, name);    this.clientSocket = channel.socket();    this.server = server;    this.framed = true;    this.queueCapacity = server.getOutboundQueueCapacity();    endpoint = reactor.new Endpoint(channel, this);    readyToStop.set(false);    server.connectionOpened(this);    reactor.register(endpoint); // The reactor waits for data from the channel  }// INSTANCE METHODS *************************************************  /**   * Sends an object to the client.   * In object-stream mode the stream is reset after every message,   * so the handle table never keeps references to objects that were   * already sent and the memory held per connection stays bounded.   * When the server sets an outbound queue capacity, the message is   * only queued and the server's overflow policy applies.   *   * @param msg the message to be sent.   * @exception IOException if an I/O error occur when sending the   *    message.   */  final public void sendToClient(Object msg) throws IOException  {    sendToClient(msg, server.getOverflowPolicy());  }  /**   * Sends an object to the client with the given overflow policy.   * When this connection has an outbound queue, the message is   * queued and written later by the writer thread, so this method   * does not wait for a slow client; the object must not be modified   * after it is sent. Without a queue the policy is ignored and the   * message is written before this method returns.   *   * @param msg the message to be sent.   * @param policy what to do if the outbound queue is full.   * @exception IOException if an I/O error occur when sending the   *    message, or the queue overflowed with the DISCONNECT policy.   */  final public void sendToClient(Object msg, OverflowPolicy policy)    throws IOException  {    if (framed)    {      if (!(msg instanceof byte[]))        throw new IOException("framed transport only sends byte arrays");      byte[] bytes = (byte[])msg;      sendFrame(bytes, 0, bytes.length, policy);      return;    }    if (outbox != null)    {      enqueue(msg, policy);      return;    }    writeLock.lock();    try    {      ObjectOutputStream out = output;      if (clientSocket == null || out == null)        throw new SocketException("socket does not exist");      out.writeObject(msg);      out.reset();    }    finally    {      writeLock.unlock();    }  }  /**   * Sends a region of a buffer to the client as one frame. Only   * available in framed mode. The buffer is copied to the socket   * (or to the outbound queue) before this method returns, so the   * caller may reuse it. The server's overflow policy applies.   *   * @param buffer the buffer holding the payload.   * @param offset the index of the first payload byte.   * @param length the number of payload bytes.   * @exception IOException if an I/O error occur when sending the   *    frame.   */  final public void sendFrame(byte[] buffer, int offset, int length)    throws IOException  {    sendFrame(buffer, offset, length, server.getOverflowPolicy());  }  /**   * Sends a region of a buffer to the client as one frame, with the   * given overflow policy. Only available in framed mode. The buffer   * is copied before this method returns, so the caller may reuse it.   *   * @param buffer the buffer holding the payload.   * @param offset the index of the first payload byte.   * @param length the number of payload bytes.   * @param policy what to do if the outbound queue is full.   * @exception IOException if an I/O error occur when sending the   *    frame, or the queue overflowed with the DISCONNECT policy.   */  final public void sendFrame(byte[] buffer, int offset, int length,    OverflowPolicy policy) throws IOException  {    if (!framed)      throw new IOException("connection does not use framed transport");    NioReactor.Endpoint nio = endpoint;    if (nio != null)    {      nio.send(buffer, offset, length, policy);      return;    }    if (outbox != null)    {      enqueue(Arrays.copyOfRange(buffer, offset, offset + length), policy);      return;    }    writeLock.lock();    try    {      DataOutputStream out = frameOutput;      if (clientSocket == null || out == null)        throw new SocketException("socket does not exist");      out.writeInt(length);      out.write(buffer, offset, length);      out.flush();    }    finally    {      writeLock.unlock();    }  }  /**   * Closes the client.   * If the connection is already closed, this   * call has no effect.   *   * @exception IOException if an error occurs when closing the socket.   */  final public void close() throws IOException  {    readyToStop.set(true); // Set the flag that tells the thread to stop    try    {      closeAll();    }    finally    {      server.clientDisconnected(this);    }  }// ACCESSING METHODS ------------------------------------------------  /**   * Returns true if this connection uses the length-prefixed frame   * protocol.   *   * @return true in framed mode, false with object streams.   */  final public boolean isFramed()  {    return framed;  }  /**   * Returns the maximum number of messages waiting to be written,   * or 0 if messages are written by the thread that sends them.   *   * @return the outbound queue capacity.   */  final public int getQueueCapacity()  {    return queueCapacity;  }  /**   * Returns the number of messages waiting to be written to the   * client.   *   * @return the outbound queue depth.   */  final public int getQueueDepth()  {    NioReactor.Endpoint nio = endpoint;    if (nio != null)      return nio.getQueueDepth();    queueLock.lock();    try    {      return outbox == null ? 0 : outbox.size();    }    finally    {      queueLock.unlock();    }  }  /**   * Returns the largest number of messages that were waiting to be   * written at the same time.   *   * @return the peak outbound queue depth.   */  final public int getPeakQueueDepth()  {    NioReactor.Endpoint nio = endpoint;    if (nio != null)      return nio.getPeakQueueDepth();    queueLock.lock();    try    {      return peakQueueDepth;    }    finally    {      queueLock.unlock();    }  }  /**   * Returns the number of messages discarded or refused because the   * outbound queue was full.   *   * @return the number of dropped messages.   */  final public long getDroppedMessages()  {    NioReactor.Endpoint nio = endpoint;    if (nio != null)      return nio.getDroppedFrames();    queueLock.lock();    try    {      return droppedMessages;    }    finally    {      queueLock.unlock();    }  }  /**   * Returns the address of the client.   *   * @return the client's Internet address.   */  final public InetAddress getInetAddress()  {    return clientSocket == null ? null : clientSocket.getInetAddress();  }  /**   * Returns a string representation of the client.   *   * @return the client's description.   */  public String toString()  {    return clientSocket == null ? null :      clientSocket.getInetAddress().getHostName()        +" (" + clientSocket.getInetAddress().getHostAddress() + ")";  }  /**   * Saves arbitrary information about this client. Designed to be   * used by concrete subclasses of AbstractServer. Based on a hash map.   *   * @param infoType   identifies the type of information   * @param info       the information itself.   */  public void setInfo(String infoType, Object info)  {    savedInfo.put(infoType, info);  }  /**   * Returns information about the client saved using setInfo.   * Based on a hash map.   *   * @param infoType   identifies the type of information   */  public Object getInfo(String infoType)  {    return savedInfo.get(infoType);  }// RUN METHOD -------------------------------------------------------  /**   * Constantly reads the client's input stream.   * Sends all objects that are read to the server.   * Not to be called.   */  final public void run()  {    server.clientConnected(this);    // This loop reads the input stream and responds to messages    // from clients    try    {      // The message from the client      Object msg;      while (!readyToStop.get())      {        // This block waits until it reads a message from the client        // and then sends it for handling by the server        msg = framed ? readFrame() : input.readObject();        server.receiveMessageFromClient(msg, this);      }    }    catch (Exception exception)    {      abort(exception);    }  }// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------  /**   * Called by the reactor once the channel is registered.   */  void nioConnected()  {    server.clientConnected(this);  }  /**   * Called by the reactor for every complete frame.   *   * @param frame the payload of the frame.   */  void nioFrameReceived(byte[] frame)  {    server.receiveMessageFromClient(frame, this);  }  /**   * Called by the reactor when reading or writing the channel failed,   * including when the client closed the connection. Mirrors the   * exception path of the run method.   *   * @param exception the exception raised.   */  void nioFailed(Exception exception)  {    abort(exception);  }  /**   * Closes the connection after reading or writing failed and   * reports the exception to the server, unless the connection was   * already closing. The reader and the writer thread may both fail;   * only the first one reports.   *   * @param exception the exception raised.   */  private void abort(Exception exception)  {    if (readyToStop.compareAndSet(false, true))    {      try      {        closeAll();      }      catch (Exception ex) { }      server.clientException(this, exception);    }  }  /**   * Starts the thread that writes the queued messages.   *   * @param factory creates the thread (e.g. a virtual thread), or   *        null for a daemon platform thread.   */  private void startWriter(ThreadFactory factory)  {    outbox = new ArrayDeque<Object>(Math.min(queueCapacity, MAX_BATCH));    outboxPolicies = new ArrayDeque<OverflowPolicy>(Math.min(queueCapacity, MAX_BATCH));    Runnable writer = new Runnable()    {      public void run()      {        runWriter();      }    };    Thread thread;    if (factory != null)      thread = factory.newThread(writer);    else    {      thread = new Thread(writer, getName() + "-writer");      thread.setDaemon(true);    }    thread.start();  }  /**   * Queues a message for the writer thread. When the queue is full,   * the oldest queued DROP_OLDEST message makes room; if there is   * none, a DROP_OLDEST message is discarded and a DISCONNECT message   * closes the connection.   *   * @param msg the message, or a copy of the frame payload.   * @param policy what to do if the queue is full.   * @exception IOException if the connection is closed or the queue   *     overflowed with the DISCONNECT policy.   */  private void enqueue(Object msg, OverflowPolicy policy)    throws IOException  {    boolean overflow = false;    queueLock.lock();    try    {      if (outboxClosed)        throw new SocketException("socket does not exist");      if (outbox.size() >= queueCapacity)      {        droppedMessages++;        if (!dropOldest())        {          if (policy == OverflowPolicy.DROP_OLDEST)            return; // The new message is the one discarded          overflow = true;        }      }      if (!overflow)      {        outbox.add(msg);        outboxPolicies.add(policy);        peakQueueDepth = Math.max(peakQueueDepth, outbox.size());        messageQueued.signal();      }    }    finally    {      queueLock.unlock();    }    if (overflow)    {      IOException ex = new IOException("outbound queue full ("        + queueCapacity + " messages), connection closed");      abort(ex);      throw ex;    }  }  /**   * Removes the oldest queued message sent with DROP_OLDEST.   * Called with <code>queueLock</code> held.   *   * @return true if a message was removed.   */  private boolean dropOldest()  {    Iterator<Object> messages = outbox.iterator();    Iterator<OverflowPolicy> policies = outboxPolicies.iterator();    while (messages.hasNext())    {      messages.next();      if (policies.next() == OverflowPolicy.DROP_OLDEST)      {        messages.remove();        policies.remove();        return true;      }    }    return false;  }  /**   * Body of the writer thread. Waits for queued messages, takes up   * to MAX_BATCH of them at once and writes them with a single   * flush, until the queue is closed.   */  private void runWriter()  {    Object[] batch = new Object[MAX_BATCH];    try    {      while (true)      {        int count = 0;        queueLock.lock();        try        {          while (outbox.isEmpty() && !outboxClosed)            messageQueued.await();          if (outboxClosed)            return;          while (count < batch.length && !outbox.isEmpty())          {            batch[count++] = outbox.poll();            outboxPolicies.poll();          }        }        finally        {          queueLock.unlock();        }        writeBatch(batch, count);        Arrays.fill(batch, 0, count, null);      }    }    catch (InterruptedException ex) { }    catch (Exception ex)    {      abort(ex);    }  }  /**   * Writes a batch of queued messages and flushes the socket once.   *   * @param batch the messages, oldest first.   * @param count the number of messages in the batch.   * @exception IOException if an I/O error occur when writing.   */  private void writeBatch(Object[] batch, int count) throws IOException  {    writeLock.lock();    try    {      if (framed)      {        DataOutputStream out = frameOutput;        if (clientSocket == null || out == null)          throw new SocketException("socket does not exist");        for (int i = 0; i < count; i++)        {          byte[] frame = (byte[])batch[i];          out.writeInt(frame.length);          out.write(frame);        }        out.flush();      }      else      {        ObjectOutputStream out = output;        if (clientSocket == null || out == null)          throw new SocketException("socket does not exist");        for (int i = 0; i < count; i++)        {          out.writeObject(batch[i]);          out.reset();        }        out.flush();      }    }    finally    {      writeLock.unlock();    }  }  /**   * Reads one frame from the client.   *   * @return the payload of the frame.   * @exception IOException if the stream is closed or the frame   *     length is invalid.   */  private byte[] readFrame() throws IOException  {    int length = frameInput.readInt();    if (length < 0 || length > AbstractServer.MAX_FRAME_SIZE)      throw new IOException("invalid frame length: " + length);    byte[] payload = new byte[length];    frameInput.readFully(payload);    return payload;  }  /**   * Closes all connection to the server.   *   * @exception IOException if an I/O error occur when closing the   *     connection.   */  private void closeAll() throws IOException  {    // Stop the writer thread; messages not yet written are dropped    queueLock.lock();    try    {      outboxClosed = true;      if (outbox != null)      {        outbox.clear();        outboxPolicies.clear();      }      messageQueued.signalAll();    }    finally    {      queueLock.unlock();    }    try    {      server.connectionClosed(this);      // Close the channel of an NIO connection      if (endpoint != null)        endpoint.close();      // Close the socket      if (clientSocket != null)        clientSocket.close();      // Close the output stream      if (output != null)        output.close();      // Close the input stream      if (input != null)        input.close();      // Close the frame streams      if (frameOutput != null)        frameOutput.close();      if (frameInput != null)        frameInput.close();    }    finally    {      // Set the streams and the sockets to NULL no matter what      // Doing so allows, but does not require, any finalizers      // of these objects to reclaim system resources if and      // when they are garbage collected.      output = null;      input = null;      frameOutput = null;      frameInput = null;      clientSocket = null;    }  }  /**   * This method is called by garbage collection.   */  protected void finalize()  {    try    {      closeAll();    }    catch(IOException e) {}  }}// End of ConnectionToClient class
\ No newline at end of file
@@ -0,0 +1 @@
+package ocsf.server;import java.io.*;import java.net.*;import java.nio.*;import java.nio.channels.*;import java.util.*;import java.util.concurrent.*;import java.util.concurrent.locks.*;/*** A selector thread serving many client connections of an* <code>AbstractServer</code> running in NIO mode. Each reactor owns a* <code>Selector</code>; accepted channels are spread over the* reactors by the server.<p>** Incoming bytes are decoded into length-prefixed frames (4 byte* big-endian length followed by the payload) and every complete frame* is handed to <code>AbstractServer.receiveMessageFromClient</code> on* the reactor thread, so the handler must return quickly. Outgoing* frames are written directly by the sending thread when the socket* accepts them, and queued for the reactor otherwise. The reactor* writes all queued frames of a channel with one gathering write.* When the server sets an outbound queue capacity, that bound applies* to the queued frames and the overflow policy of each send decides* what happens when it is reached.<p>** Project Name: OCSF (Object Client-Server Framework)<p>** @author Group 6* @version 1.0* @see ocsf.server.ConnectionToClient*/class NioReactor implements Runnable{// CONSTANTS *******************************************************  /**   * Size of the read buffer shared by all channels of a reactor.   */  private static final int READ_BUFFER_SIZE = 64 * 1024;  /**   * Maximum number of queued frames written by one gathering write.   */  private static final int MAX_GATHER = 64;// INSTANCE VARIABLES ***********************************************  /**   * The selector watching the channels of this reactor.   */  private final Selector selector;  /**   * The thread running the select loop.   */  private final Thread thread;  /**   * Work that must run on the reactor thread (registrations and   * interest changes).   */  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();  /**   * Read buffer shared by all channels; only used by the reactor   * thread.   */  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);  /**   * Indicates if the select loop should stop.   */  private volatile boolean readyToStop = false;// CONSTRUCTORS *****************************************************  /**   * Opens the selector and starts the reactor thread.   *   * @param name the name of the reactor thread.   * @exception IOException if the selector cannot be opened.   */  NioReactor(String name) throws IOException  {    selector = Selector.open();    thread = new Thread(this, name);    thread.setDaemon(true);    thread.start();  }// INSTANCE METHODS *************************************************  /**   * Registers a connection with this reactor. Its clientConnected   * hook is called from the reactor thread once the channel is   * being watched.   *   * @param endpoint the channel state of the connection.   */  void register(final Endpoint endpoint)  {    runOnReactor(new Runnable()    {      public void run()      {        try        {          endpoint.key = endpoint.channel.register(            selector, SelectionKey.OP_READ, endpoint);        }        catch (IOException ex)        {          endpoint.connection.nioFailed(ex);          return;        }        endpoint.connection.nioConnected();      }    });  }  /**   * Stops the select loop and closes the selector. Channels still   * registered are not closed by this method.   */  void shutdown()  {    readyToStop = true;    selector.wakeup();    try    {      thread.join(1000);    }    catch (InterruptedException ex)    {      Thread.currentThread().interrupt();    }  }  /**   * Queues work for the reactor thread and wakes up the selector.   */  private void runOnReactor(Runnable task)  {    tasks.add(task);    selector.wakeup();  }// RUN METHOD -------------------------------------------------------  /**   * Runs the select loop. Not to be called.   */  public void run()  {    while (!readyToStop)    {      try      {        selector.select();      }      catch (IOException ex)      {        break;      }      Runnable task;      while ((task = tasks.poll()) != null)        task.run();      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();      while (keys.hasNext())      {        SelectionKey key = keys.next();        keys.remove();        Endpoint endpoint = (Endpoint)key.attachment();        try        {          if (key.isValid() && key.isReadable())            endpoint.onReadable(readBuffer);          if (key.isValid() && key.isWritable())            endpoint.onWritable();        }        catch (Exception ex)        {          endpoint.connection.nioFailed(ex);        }      }    }    try    {      selector.close();    }    catch (IOException ex) { }  }// NESTED CLASSES ---------------------------------------------------  /**   * The channel and framing state of one NIO connection.   */  final class Endpoint  {    /**     * The non-blocking channel to the client.     */    final SocketChannel channel;    /**     * The connection object given to the server hooks.     */    final ConnectionToClient connection;    /**     * The registration with the selector; set on the reactor thread.     */    volatile SelectionKey key;    /**     * The length header of the frame being read.     */    private final ByteBuffer header = ByteBuffer.allocate(4);    /**     * The payload of the frame being read, or null while the header     * is being read.     */    private byte[] payload;    /**     * Number of payload bytes read so far.     */    private int payloadRead;    /**     * Frames that could not be written immediately, guarded by     * <code>writeLock</code>.     */    private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<ByteBuffer>();    /**     * The overflow policy of each frame in <code>pendingWrites</code>,     * in the same order, guarded by <code>writeLock</code>.     */    private final ArrayDeque<OverflowPolicy> pendingPolicies =      new ArrayDeque<OverflowPolicy>();    /**     * Lock guarding the write side of the channel. Not a monitor, so     * virtual threads sending frames never pin their carrier.     */    private final ReentrantLock writeLock = new ReentrantLock();    /**     * Indicates if OP_WRITE was requested, guarded by     * <code>writeLock</code>.     */    private boolean writeInterest = false;    /**     * The frames handed to one gathering write, guarded by     * <code>writeLock</code>.     */    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];    /**     * Largest number of frames queued at once, guarded by     * <code>writeLock</code>.     */    private int peakQueueDepth = 0;    /**     * Number of frames discarded because the queue was full, guarded     * by <code>writeLock</code>.     */    private long droppedFrames = 0;    /**     * Indicates if the channel was closed.     */    private volatile boolean closed = false;    /**     * Constructs the endpoint of a new connection.     *     * @param channel the accepted channel, in non-blocking mode.     * @param connection the connection object of the channel.     */    Endpoint(SocketChannel channel, ConnectionToClient connection)    {      this.channel = channel;      this.connection = connection;    }    /**     * Sends one frame. The payload is copied, so the caller may reuse     * the buffer as soon as this method returns. When the connection     * has an outbound queue capacity and that many frames are already     * queued, the oldest queued DROP_OLDEST frame makes room; if there     * is none, a DROP_OLDEST frame is discarded and a DISCONNECT frame     * closes the connection.     *     * @param buffer the buffer holding the payload.     * @param offset the index of the first payload byte.     * @param length the number of payload bytes.     * @param policy what to do when the queue is full.     * @exception IOException if the channel is closed, the write     *   fails or the queue overflowed with the DISCONNECT policy.     */    void send(byte[] buffer, int offset, int length, OverflowPolicy policy)      throws IOException    {      ByteBuffer frame = ByteBuffer.allocate(4 + length);      frame.putInt(length).put(buffer, offset, length).flip();      int capacity = connection.getQueueCapacity();      boolean overflow = false;      writeLock.lock();      try      {        if (closed)          throw new SocketException("socket does not exist");        // Write directly when nothing is queued ahead of this frame        if (pendingWrites.isEmpty())        {          channel.write(frame);          if (!frame.hasRemaining())            return;        }        if (capacity > 0 && pendingWrites.size() >= capacity)        {          droppedFrames++;          if (!dropOldest())          {            if (policy == OverflowPolicy.DROP_OLDEST)              return; // The new frame is the one discarded            overflow = true;          }        }        if (!overflow)        {          pendingWrites.add(frame);          pendingPolicies.add(policy);          peakQueueDepth = Math.max(peakQueueDepth, pendingWrites.size());          if (!writeInterest)          {            writeInterest = true;            runOnReactor(new Runnable()            {              public void run()              {                SelectionKey k = key;                if (k != null && k.isValid())                  k.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);              }            });          }        }      }      finally      {        writeLock.unlock();      }      if (overflow)      {        IOException ex = new IOException("outbound queue full ("          + capacity + " frames), connection closed");        connection.nioFailed(ex);        throw ex;      }    }    /**     * Discards the oldest queued DROP_OLDEST frame. A frame the     * channel already started to write is kept, since dropping it     * would corrupt the stream. Called with <code>writeLock</code>     * held.     *     * @return true if a frame was discarded.     */    private boolean dropOldest()    {      Iterator<ByteBuffer> frames = pendingWrites.iterator();      Iterator<OverflowPolicy> policies = pendingPolicies.iterator();      while (frames.hasNext())      {        ByteBuffer frame = frames.next();        if (policies.next() == OverflowPolicy.DROP_OLDEST          && frame.position() == 0)        {          frames.remove();          policies.remove();          return true;        }      }      return false;    }    /**     * Returns the number of frames waiting to be written.     *     * @return the queue depth.     */    int getQueueDepth()    {      writeLock.lock();      try      {        return pendingWrites.size();      }      finally      {        writeLock.unlock();      }    }    /**     * Returns the largest number of frames queued at once.     *     * @return the peak queue depth.     */    int getPeakQueueDepth()    {      writeLock.lock();      try      {        return peakQueueDepth;      }      finally      {        writeLock.unlock();      }    }    /**     * Returns the number of frames discarded because the queue was     * full.     *     * @return the number of dropped frames.     */    long getDroppedFrames()    {      writeLock.lock();      try      {        return droppedFrames;      }      finally      {        writeLock.unlock();      }    }    /**     * Reads the available bytes and delivers every complete frame.     * Called on the reactor thread.     *     * @param buffer the reactor's shared read buffer.     * @exception IOException if the read fails, the client closed the     *   connection or a frame length is invalid.     */    void onReadable(ByteBuffer buffer) throws IOException    {      buffer.clear();      int count = channel.read(buffer);      if (count < 0)        throw new EOFException("connection closed by client");      buffer.flip();      while (buffer.hasRemaining())      {        if (payload == null)        {          while (header.hasRemaining() && buffer.hasRemaining())            header.put(buffer.get());          if (header.hasRemaining())            return;          header.flip();          int length = header.getInt();          header.clear();          if (length < 0 || length > AbstractServer.MAX_FRAME_SIZE)            throw new IOException("invalid frame length: " + length);          payload = new byte[length];          payloadRead = 0;        }        int chunk = Math.min(payload.length - payloadRead, buffer.remaining());        buffer.get(payload, payloadRead, chunk);        payloadRead += chunk;        if (payloadRead == payload.length)        {          byte[] frame = payload;          payload = null;          connection.nioFrameReceived(frame);        }      }    }    /**     * Writes queued frames until the socket buffer is full. Up to     * MAX_GATHER frames are passed to a single gathering write, so a     * backlog of small frames costs one system call instead of one     * per frame. Called on the reactor thread.     *     * @exception IOException if the write fails.     */    void onWritable() throws IOException    {      writeLock.lock();      try      {        while (!pendingWrites.isEmpty())        {          int count = 0;          Iterator<ByteBuffer> queued = pendingWrites.iterator();          while (count < gather.length && queued.hasNext())            gather[count++] = queued.next();          channel.write(gather, 0, count);          Arrays.fill(gather, 0, count, null);          int written = 0;          ByteBuffer head;          while ((head = pendingWrites.peek()) != null && !head.hasRemaining())          {            pendingWrites.poll();            pendingPolicies.poll();            written++;          }          // The socket buffer is full when part of the batch is left          if (written < count)            return;        }        writeInterest = false;        if (key.isValid())          key.interestOps(SelectionKey.OP_READ);      }      finally      {        writeLock.unlock();      }    }    /**     * Closes the channel and drops any queued frames.     *     * @exception IOException if the channel cannot be closed.     */    void close() throws IOException    {      writeLock.lock();      try      {        closed = true;        pendingWrites.clear();        pendingPolicies.clear();      }      finally      {        writeLock.unlock();      }      SelectionKey k = key;      if (k != null)        k.cancel();      channel.close();    }  }}// End of NioReactor class
\ No newline at end of file
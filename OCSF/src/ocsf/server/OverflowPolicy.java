@@ -0,0 +1 @@
+package ocsf.server;/*** Tells a connection whether a message may be discarded when its* outbound queue is full, i.e. when the client reads more slowly than* the server sends. Only used when the server gives each connection a* bounded outbound queue (see* <code>AbstractServer.setOutboundQueue</code>).<p>** Project Name: OCSF (Object Client-Server Framework)<p>** @author Group 6* @version 1.0* @see ocsf.server.ConnectionToClient*/public enum OverflowPolicy{  /**   * The message may be discarded. When the queue is full, the oldest   * queued message that was also sent with DROP_OLDEST is discarded   * to make room; if there is none, the new message is discarded.   * Meant for telemetry and change notifications, where a newer   * message supersedes an older one.   */  DROP_OLDEST,  /**   * The message must be delivered. When the queue is full, the oldest   * discardable message makes room for it; if every queued message   * must be delivered too, the connection is closed. Meant for   * replies the client cannot do without: a client that falls this   * far behind is disconnected instead of silently missing a reply.   */  DISCONNECT}// End of OverflowPolicy class
\ No newline at end of file